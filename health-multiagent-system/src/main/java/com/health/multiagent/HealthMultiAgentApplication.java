@@ -10,9 +10,10 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * 
  * Fluxo de agentes:
  * 1. Triage Agent - Avalia sintomas e determina nível de risco
- * 2. Pharmacist Agent - Analisa medicações e interações
- * 3. Exam Agent - Recomenda exames diagnósticos
- * 4. EMR/Comms Agent - Gera documentação FHIR com aprovação humana (HITL)
+ * 2. Resumo do histórico médico - Reaproveitado entre sessões do paciente
+ * 3. Pharmacist Agent - Analisa medicações e interações
+ * 4. Exam Agent - Recomenda exames diagnósticos
+ * 5. EMR/Comms Agent - Gera documentação FHIR com aprovação humana (HITL)
  * 
  * @author Health Multi-Agent Team
  * @version 1.0.0
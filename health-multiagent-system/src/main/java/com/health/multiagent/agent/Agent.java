@@ -0,0 +1,44 @@
+package com.health.multiagent.agent;
+
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.StateField;
+
+import java.util.Set;
+
+/**
+ * Contrato comum dos agentes do fluxo
+ * Cada agente declara os campos do PatientAssessmentState que lê e os que
+ * produz; as dependências entre agentes são derivadas dessas declarações.
+ */
+public interface Agent {
+    
+    /**
+     * Nome do agente, exposto em currentAgent e nos eventos de progresso
+     */
+    String name();
+    
+    /**
+     * Campos que precisam estar preenchidos antes da execução
+     */
+    Set<StateField> requiredInputs();
+    
+    /**
+     * Campos que enriquecem a análise mas não bloqueiam a execução
+     * no modo PARALLEL
+     */
+    default Set<StateField> optionalInputs() {
+        return Set.of();
+    }
+    
+    /**
+     * Campos escritos pelo agente
+     */
+    Set<StateField> outputs();
+    
+    /**
+     * Executa o agente e aplica o resultado no estado
+     *
+     * @return resultado produzido pelo agente
+     */
+    Object execute(PatientAssessmentState state);
+}
@@ -0,0 +1,179 @@
+package com.health.multiagent.agent;
+
+import com.health.multiagent.llm.AgentCallContext;
+import com.health.multiagent.llm.CallPriority;
+import com.health.multiagent.llm.ResponseSchemas;
+import com.health.multiagent.llm.StructuredOutputException;
+import com.health.multiagent.llm.StructuredOutputParser;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.service.AssessmentEventPublisher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ponto único de chamada ao LLM utilizado pelos agentes
+ * Quando o streaming de tokens está habilitado e existe algum cliente SSE
+ * inscrito na sessão, utiliza ChatModel.stream e repassa cada fragmento
+ * gerado; caso contrário, utiliza a chamada bloqueante ChatModel.call.
+ * Respostas estruturadas são solicitadas com o JSON Schema do record de
+ * resultado; falhas de conversão e resultados padrão usados pelos agentes
+ * após erros são contabilizados por agente. Os prompts são gerados dentro
+ * do orçamento de tokens de cada agente. A chamada ao LLM (health.llm.request)
+ * e a conversão da resposta (health.llm.parse) são observadas por agente.
+ */
+@Slf4j
+@Component
+public class AgentChatInvoker {
+    
+    static final String PARSE_FAILURES_METRIC = "health.llm.parse.failures";
+    static final String FALLBACKS_METRIC = "health.agent.fallbacks";
+    static final String REQUEST_OBSERVATION = "health.llm.request";
+    static final String PARSE_OBSERVATION = "health.llm.parse";
+    
+    private final ChatModel chatModel;
+    private final AssessmentEventPublisher eventPublisher;
+    private final PromptBudget promptBudget;
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+    private final boolean streamTokens;
+    private final boolean schemaEnabled;
+    
+    public AgentChatInvoker(
+            ChatModel chatModel,
+            AssessmentEventPublisher eventPublisher,
+            PromptBudget promptBudget,
+            MeterRegistry meterRegistry,
+            ObservationRegistry observationRegistry,
+            @Value("${health.multiagent.streaming.tokens-enabled:false}") boolean streamTokens,
+            @Value("${health.multiagent.structured-output.schema-enabled:true}") boolean schemaEnabled) {
+        this.chatModel = chatModel;
+        this.eventPublisher = eventPublisher;
+        this.promptBudget = promptBudget;
+        this.meterRegistry = meterRegistry;
+        this.observationRegistry = observationRegistry;
+        this.streamTokens = streamTokens;
+        this.schemaEnabled = schemaEnabled;
+    }
+    
+    /**
+     * Prompt do agente dentro do seu orçamento de tokens (PromptBudget)
+     */
+    public Prompt prompt(String agent, PromptRenderer renderer, PatientAssessmentState state) {
+        return promptBudget.create(agent, renderer, state);
+    }
+    
+    /**
+     * Executa o prompt restringindo a saída ao schema do record e converte a resposta
+     *
+     * @param defaults valores usados para campos ausentes na resposta
+     * @throws StructuredOutputException se a resposta não contém um objeto JSON
+     */
+    public <T extends Record> T call(String agent, PatientAssessmentState state, Prompt prompt,
+                                     Class<T> type, T defaults) {
+        String response = call(agent, state, schemaEnabled ? withSchema(prompt, type) : prompt);
+        log.debug("{} agent response: {}", agent, response);
+        
+        Observation observation = observation(PARSE_OBSERVATION, "parse-response", agent).start();
+        StructuredOutputParser.Result<T> result;
+        try (Observation.Scope scope = observation.openScope()) {
+            result = StructuredOutputParser.read(response, type, defaults);
+            observation.lowCardinalityKeyValue("outcome", result.complete() ? "complete" : "incomplete");
+        } catch (StructuredOutputException e) {
+            recordParseFailure(agent, "malformed");
+            observation.lowCardinalityKeyValue("outcome", "malformed").error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+        
+        if (!result.complete()) {
+            log.warn("{} response without fields {}, using defaults", agent, result.defaultedFields());
+            recordParseFailure(agent, "incomplete");
+        }
+        return result.value();
+    }
+    
+    /**
+     * Executa o prompt e retorna o texto completo da resposta
+     */
+    public String call(String agent, PatientAssessmentState state, Prompt prompt) {
+        CallPriority priority = CallPriority.of(state.getRiskLevel(), state.getUrgent());
+        boolean streaming = streamTokens && eventPublisher.hasSubscribers(state.getSessionId());
+        return observation(REQUEST_OBSERVATION, "llm-request", agent)
+            .lowCardinalityKeyValue("mode", streaming ? "stream" : "call")
+            .lowCardinalityKeyValue("priority", priority.name())
+            .observe(() -> AgentCallContext.call(agent, priority, () -> {
+                if (streaming) {
+                    return stream(agent, state.getSessionId(), prompt);
+                }
+                return chatModel.call(prompt).getResult().getOutput().getText();
+            }));
+    }
+    
+    private String stream(String agent, String sessionId, Prompt prompt) {
+        log.debug("Streaming {} response for session: {}", agent, sessionId);
+        
+        StringBuilder response = new StringBuilder();
+        chatModel.stream(prompt)
+            .doOnNext(chunk -> {
+                String text = textOf(chunk);
+                if (text != null && !text.isEmpty()) {
+                    response.append(text);
+                    eventPublisher.token(sessionId, agent, text);
+                }
+            })
+            .blockLast();
+        return response.toString();
+    }
+    
+    private static Prompt withSchema(Prompt prompt, Class<? extends Record> type) {
+        OllamaOptions options = prompt.getOptions() instanceof OllamaOptions ollamaOptions
+            ? ollamaOptions.copy()
+            : OllamaOptions.builder().build();
+        options.setFormat(ResponseSchemas.of(type));
+        return new Prompt(prompt.getInstructions(), options);
+    }
+    
+    /**
+     * Registra o uso do resultado padrão do agente após falha na chamada ou na conversão da resposta
+     */
+    public void recordFallback(String agent, Exception cause) {
+        Counter.builder(FALLBACKS_METRIC)
+            .description("Agent results replaced by the safe default after an LLM or parsing error")
+            .tag("agent", agent)
+            .tag("reason", cause instanceof StructuredOutputException ? "parse" : "error")
+            .register(meterRegistry)
+            .increment();
+    }
+    
+    private Observation observation(String name, String contextualName, String agent) {
+        return Observation.createNotStarted(name, observationRegistry)
+            .contextualName(contextualName)
+            .lowCardinalityKeyValue("agent", agent);
+    }
+    
+    private void recordParseFailure(String agent, String reason) {
+        Counter.builder(PARSE_FAILURES_METRIC)
+            .description("Structured agent responses that could not be fully parsed")
+            .tag("agent", agent)
+            .tag("reason", reason)
+            .register(meterRegistry)
+            .increment();
+    }
+    
+    private static String textOf(ChatResponse chunk) {
+        if (chunk == null || chunk.getResult() == null || chunk.getResult().getOutput() == null) {
+            return null;
+        }
+        return chunk.getResult().getOutput().getText();
+    }
+}
@@ -1,14 +1,18 @@
 package com.health.multiagent.agent;
 
+import com.health.multiagent.fhir.FhirBundleWriter;
 import com.health.multiagent.model.FHIRDocumentation;
+import com.health.multiagent.model.FhirDocument;
 import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.ProviderCommunication;
+import com.health.multiagent.model.StateField;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
 
 /**
  * EMR/Communications Agent - Quarto e último agente do fluxo
@@ -17,15 +21,34 @@ import java.util.Map;
  * - Preparar comunicações para profissionais de saúde
  * - Consolidar todas as informações dos agentes anteriores
  * - Requer aprovação humana (HITL) antes de finalizar
+ * O Bundle FHIR é montado a partir do estado (FhirBundleWriter); o LLM
+ * escreve apenas o texto de comunicação e o tipo de documento.
  */
 @Slf4j
 @Component
-public class EMRCommsAgent {
+public class EMRCommsAgent implements Agent {
     
-    private final ChatModel chatModel;
+    public static final String NAME = "EMR_COMMS";
     
-    private static final String EMR_PROMPT_TEMPLATE = """
-        You are responsible for generating accurate FHIR documentation and healthcare communications.
+    private final AgentChatInvoker chatInvoker;
+    
+    private static final Set<StateField> REQUIRED_INPUTS = Set.of(
+        StateField.PATIENT_ID, StateField.SYMPTOMS, StateField.MEDICAL_HISTORY, StateField.MEDICAL_HISTORY_SUMMARY,
+        StateField.CURRENT_MEDICATIONS, StateField.MEDICATION_IDS, StateField.RISK_LEVEL, StateField.URGENT,
+        StateField.SYMPTOMS_SUMMARY, StateField.TRIAGE_RECOMMENDATIONS, StateField.DRUG_INTERACTIONS,
+        StateField.CONTRAINDICATIONS, StateField.PHARMACIST_RECOMMENDATIONS, StateField.RECOMMENDED_LAB_EXAMS,
+        StateField.RECOMMENDED_IMAGING_EXAMS, StateField.EXAM_PRIORITY, StateField.EXAM_RECOMMENDATIONS,
+        StateField.PHYSICIAN_FEEDBACK, StateField.ASSESSMENT_HISTORY);
+    
+    private static final Set<StateField> OUTPUTS = Set.of(
+        StateField.FHIR_DOCUMENT, StateField.COMMUNICATION_TEXT);
+    
+    // Valores usados para campos ausentes na resposta do LLM
+    private static final ProviderCommunication DEFAULT_COMMUNICATION = new ProviderCommunication(
+        "Documentation generated", "ASSESSMENT");
+    
+    public static final String EMR_PROMPT_TEMPLATE = """
+        You are responsible for writing healthcare communications about a completed patient assessment.
         
         Complete Patient Assessment:
         - Patient ID: {patientId}
@@ -53,24 +76,17 @@ public class EMRCommsAgent {
         {physicianFeedbackSection}
         
         Generate:
-        1. A FHIR-formatted document (simplified JSON structure)
-        2. A clear communication text for healthcare providers
-        3. Document type (ASSESSMENT, REFERRAL, or PRESCRIPTION)
+        1. A clear communication text for healthcare providers
+        2. Document type (ASSESSMENT, REFERRAL, or PRESCRIPTION)
+        
+        The FHIR document is generated separately; do not write FHIR or JSON resources.
         
         Respond in JSON format with the following structure:
         {{
-          "fhirDocument": "{{FHIR JSON structure}}",
           "communicationText": "clear text for healthcare providers",
           "documentType": "ASSESSMENT|REFERRAL|PRESCRIPTION"
         }}
         
-        The FHIR document should include:
-        - Patient information
-        - Clinical impression (from triage)
-        - Medication analysis
-        - Diagnostic plan (exams)
-        - Recommendations
-        
         The communication text should be:
         - Professional and concise
         - Highlight critical findings
@@ -80,167 +96,119 @@ public class EMRCommsAgent {
         Ensure all information is accurate and complete in portuguese.
         """;
     
-    public EMRCommsAgent(ChatModel chatModel) {
-        this.chatModel = chatModel;
+    private static final PromptRenderer PROMPT_RENDERER = PromptRenderer.builder(EMR_PROMPT_TEMPLATE)
+        .text("patientId", PatientAssessmentState::getPatientId, "UNKNOWN")
+        .text("symptoms", PatientAssessmentState::getSymptoms, "No symptoms")
+        .text("medicalHistory", MedicalHistorySummarizer::medicalHistory, "No history")
+        .list("currentMedications", PatientAssessmentState::getCurrentMedications, ", ", "None")
+        .text("riskLevel", PatientAssessmentState::getRiskLevel, "UNKNOWN")
+        .text("symptomsSummary", PatientAssessmentState::getSymptomsSummary, "N/A")
+        .text("triageRecommendations", PatientAssessmentState::getTriageRecommendations, "None")
+        .list("drugInteractions", PatientAssessmentState::getDrugInteractions, ", ", "None")
+        .list("contraindications", PatientAssessmentState::getContraindications, ", ", "None")
+        .text("pharmacyRecommendations", PatientAssessmentState::getPharmacistRecommendations, "None")
+        .list("labExams", PatientAssessmentState::getRecommendedLabExams, ", ", "None")
+        .list("imagingExams", PatientAssessmentState::getRecommendedImagingExams, ", ", "None")
+        .text("examPriority", PatientAssessmentState::getExamPriority, "ROUTINE")
+        .text("examRationale", PatientAssessmentState::getExamRecommendations, "N/A")
+        .bind("reprocessingInfoSection", EMRCommsAgent::appendReprocessingInfo)
+        .bind("physicianFeedbackSection", EMRCommsAgent::appendPhysicianFeedback)
+        .truncatable("symptoms", "medicalHistory", "symptomsSummary", "triageRecommendations", "drugInteractions",
+            "contraindications", "pharmacyRecommendations", "examRationale", "reprocessingInfoSection")
+        .build();
+    
+    public EMRCommsAgent(AgentChatInvoker chatInvoker) {
+        this.chatInvoker = chatInvoker;
+    }
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public Set<StateField> requiredInputs() {
+        return REQUIRED_INPUTS;
+    }
+    
+    @Override
+    public Set<StateField> outputs() {
+        return OUTPUTS;
+    }
+    
+    @Override
+    public FHIRDocumentation execute(PatientAssessmentState state) {
+        FhirDocument fhirDocument = FhirBundleWriter.write(state, Instant.now());
+        FHIRDocumentation documentation = generateDocumentation(state, fhirDocument);
+        state.setFhirDocument(fhirDocument);
+        state.setCommunicationText(documentation.communicationText());
+        return documentation;
+    }
+    
+    /**
+     * Prompt do agente para o estado do paciente
+     */
+    public Prompt createPrompt(PatientAssessmentState state) {
+        return PROMPT_RENDERER.create(state);
     }
     
     /**
      * Gera documentação FHIR e comunicações
      */
     public FHIRDocumentation generateDocumentation(PatientAssessmentState state) {
+        return generateDocumentation(state, FhirBundleWriter.write(state, Instant.now()));
+    }
+    
+    private FHIRDocumentation generateDocumentation(PatientAssessmentState state, FhirDocument fhirDocument) {
         log.info("Starting FHIR documentation generation for patient: {}", state.getPatientId());
         
         try {
-            PromptTemplate promptTemplate = new PromptTemplate(EMR_PROMPT_TEMPLATE);
-            
-            // Adicionar informações de reprocessamento se aplicável
-            String reprocessingInfo = "";
-            String feedbackSection = "";
-            
-            if (state.getReprocessingCount() > 0) {
-                reprocessingInfo = String.format("""
-                    
-                    Reprocessing Information:
-                    - Current iteration: %d of %d
-                    - Assessment history: %s
-                    """,
-                    state.getReprocessingCount(),
-                    state.getMaxReprocessingIterations(),
-                    state.getAssessmentHistory() != null && !state.getAssessmentHistory().isEmpty()
-                        ? String.join("; ", state.getAssessmentHistory())
-                        : "None"
-                );
-                
-                if (state.getPhysicianFeedback() != null && !state.getPhysicianFeedback().isEmpty()) {
-                    feedbackSection = String.format("""
-                        
-                        CRITICAL - Physician Feedback that MUST be addressed:
-                        %s
-                        
-                        Ensure the new documentation addresses all physician concerns.
-                        """,
-                        state.getPhysicianFeedback()
-                    );
-                }
-            }
-
-            Map<String, Object> variables = new java.util.HashMap<>();
-            variables.put("patientId", state.getPatientId() != null ? state.getPatientId() : "UNKNOWN");
-            variables.put("symptoms", state.getSymptoms() != null ? state.getSymptoms() : "No symptoms");
-            variables.put("medicalHistory", state.getMedicalHistory() != null ? state.getMedicalHistory() : "No history");
-            variables.put("currentMedications", state.getCurrentMedications() != null && !state.getCurrentMedications().isEmpty()
-                ? String.join(", ", state.getCurrentMedications())
-                : "None");
-            variables.put("riskLevel", state.getRiskLevel() != null ? state.getRiskLevel() : "UNKNOWN");
-            variables.put("symptomsSummary", state.getSymptomsSummary() != null ? state.getSymptomsSummary() : "N/A");
-            variables.put("triageRecommendations", state.getTriageRecommendations() != null
-                ? state.getTriageRecommendations() : "None");
-            variables.put("drugInteractions", state.getDrugInteractions() != null && !state.getDrugInteractions().isEmpty()
-                ? String.join(", ", state.getDrugInteractions()) : "None");
-            variables.put("contraindications", state.getContraindications() != null && !state.getContraindications().isEmpty()
-                ? String.join(", ", state.getContraindications()) : "None");
-            variables.put("pharmacyRecommendations", state.getPharmacistRecommendations() != null
-                ? state.getPharmacistRecommendations() : "None");
-            variables.put("labExams", state.getRecommendedLabExams() != null && !state.getRecommendedLabExams().isEmpty()
-                ? String.join(", ", state.getRecommendedLabExams()) : "None");
-            variables.put("imagingExams", state.getRecommendedImagingExams() != null && !state.getRecommendedImagingExams().isEmpty()
-                ? String.join(", ", state.getRecommendedImagingExams()) : "None");
-            variables.put("examPriority", state.getExamPriority() != null ? state.getExamPriority() : "ROUTINE");
-            variables.put("examRationale", state.getExamRecommendations() != null ? state.getExamRecommendations() : "N/A");
-            variables.put("reprocessingInfoSection", reprocessingInfo);
-            variables.put("physicianFeedbackSection", feedbackSection);
-            
-            Prompt prompt = promptTemplate.create(variables);
-            String response = chatModel.call(prompt).getResult().getOutput().getText();
+            Prompt prompt = chatInvoker.prompt(NAME, PROMPT_RENDERER, state);
+            ProviderCommunication communication = chatInvoker.call(
+                NAME, state, prompt, ProviderCommunication.class, DEFAULT_COMMUNICATION);
             
-            log.debug("EMR/Comms agent response: {}", response);
-
-            if (response == null || response.isEmpty()) {
-                throw new RuntimeException("Empty response from exam agent");
-            }
-            FHIRDocumentation documentation = parseFHIRDocumentation(response);
+            log.info("FHIR documentation generated - Type: {}", communication.documentType());
             
-            log.info("FHIR documentation generated - Type: {}", documentation.documentType());
-            
-            return documentation;
+            return new FHIRDocumentation(fhirDocument, communication.communicationText(), communication.documentType());
             
         } catch (Exception e) {
-            log.error("Error during FHIR documentation generation", e);
+            log.error("Error during communication text generation", e);
+            chatInvoker.recordFallback(NAME, e);
             return new FHIRDocumentation(
-                "{\"error\": \"Failed to generate FHIR document: " + e.getMessage() + "\"}",
-                "ERROR: Documentation generation failed. Manual review required.",
+                fhirDocument,
+                "ERROR: Communication text generation failed. Manual review required.",
                 "ASSESSMENT"
             );
         }
     }
     
-    /**
-     * Parse JSON response to FHIRDocumentation object
-     */
-    private FHIRDocumentation parseFHIRDocumentation(String jsonResponse) {
-        String cleaned = jsonResponse.replaceAll("```json\\s*", "").replaceAll("```\\s*", "").trim();
-        
-        // Extract FHIR document (may be nested JSON)
-        String fhirDoc = extractNestedJson(cleaned, "fhirDocument");
-        if (fhirDoc == null || fhirDoc.isEmpty()) {
-            fhirDoc = "{\"resourceType\": \"Bundle\", \"type\": \"document\"}";
+    private static void appendReprocessingInfo(StringBuilder out, PatientAssessmentState state) {
+        if (state.getReprocessingCount() <= 0) {
+            return;
         }
-        
-        String commText = extractJsonValue(cleaned, "communicationText", "Documentation generated");
-        String docType = extractJsonValue(cleaned, "documentType", "ASSESSMENT");
-        
-        return new FHIRDocumentation(fhirDoc, commText, docType);
-    }
-    
-    /**
-     * Extract nested JSON object
-     */
-    private String extractNestedJson(String json, String key) {
-        try {
-            // Find the key and extract the nested JSON
-            int keyIndex = json.indexOf("\"" + key + "\"");
-            if (keyIndex == -1) return null;
-            
-            int startIndex = json.indexOf("{", keyIndex);
-            if (startIndex == -1) {
-                // Try to extract as string value
-                return extractJsonValue(json, key, "{}");
-            }
-            
-            int braceCount = 1;
-            int endIndex = startIndex + 1;
-            
-            while (endIndex < json.length() && braceCount > 0) {
-                char c = json.charAt(endIndex);
-                if (c == '{') braceCount++;
-                else if (c == '}') braceCount--;
-                endIndex++;
+        out.append("\nReprocessing Information:\n- Current iteration: ")
+            .append(state.getReprocessingCount())
+            .append(" of ")
+            .append(state.getMaxReprocessingIterations())
+            .append("\n- Assessment history: ");
+        List<String> history = state.getAssessmentHistory();
+        if (history == null || history.isEmpty()) {
+            out.append("None");
+        } else {
+            for (int i = 0; i < history.size(); i++) {
+                out.append(i > 0 ? "; " : "").append(history.get(i));
             }
-            
-            if (braceCount == 0) {
-                return json.substring(startIndex, endIndex);
-            }
-        } catch (Exception e) {
-            log.warn("Error extracting nested JSON for {}", key, e);
         }
-        return "{}";
+        out.append('\n');
     }
     
-    /**
-     * Extract value from JSON string
-     */
-    private String extractJsonValue(String json, String key, String defaultValue) {
-        try {
-            String pattern = "\"" + key + "\"\\s*:\\s*\"([^\"]+)\"";
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-            java.util.regex.Matcher m = p.matcher(json);
-            if (m.find()) {
-                return m.group(1);
-            }
-        } catch (Exception e) {
-            log.warn("Error extracting {} from JSON", key, e);
+    private static void appendPhysicianFeedback(StringBuilder out, PatientAssessmentState state) {
+        String feedback = state.getPhysicianFeedback();
+        if (state.getReprocessingCount() <= 0 || feedback == null || feedback.isEmpty()) {
+            return;
         }
-        return defaultValue;
+        out.append("\nCRITICAL - Physician Feedback that MUST be addressed:\n")
+            .append(feedback)
+            .append("\n\nEnsure the new documentation addresses all physician concerns.\n");
     }
 }
-
@@ -2,17 +2,13 @@ package com.health.multiagent.agent;
 
 import com.health.multiagent.model.ExamRecommendations;
 import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.StateField;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * Exam Agent - Terceiro agente do fluxo
@@ -25,11 +21,29 @@ import java.util.stream.Collectors;
  */
 @Slf4j
 @Component
-public class ExamAgent {
+public class ExamAgent implements Agent {
     
-    private final ChatModel chatModel;
+    public static final String NAME = "EXAM";
     
-    private static final String EXAM_PROMPT_TEMPLATE = """
+    private final AgentChatInvoker chatInvoker;
+    
+    private static final Set<StateField> REQUIRED_INPUTS = Set.of(
+        StateField.PATIENT_ID, StateField.SYMPTOMS, StateField.MEDICAL_HISTORY, StateField.MEDICAL_HISTORY_SUMMARY,
+        StateField.RISK_LEVEL, StateField.TRIAGE_RECOMMENDATIONS, StateField.PHYSICIAN_FEEDBACK);
+    
+    // Dados farmacêuticos enriquecem a recomendação, mas não bloqueiam o modo PARALLEL
+    private static final Set<StateField> OPTIONAL_INPUTS = Set.of(
+        StateField.DRUG_INTERACTIONS, StateField.PHARMACIST_RECOMMENDATIONS);
+    
+    private static final Set<StateField> OUTPUTS = Set.of(
+        StateField.RECOMMENDED_LAB_EXAMS, StateField.RECOMMENDED_IMAGING_EXAMS,
+        StateField.EXAM_PRIORITY, StateField.EXAM_RECOMMENDATIONS);
+    
+    // Valores usados para campos ausentes na resposta do LLM
+    private static final ExamRecommendations DEFAULT_RECOMMENDATIONS = new ExamRecommendations(
+        List.of(), List.of(), "ROUTINE", "Standard diagnostic workup");
+    
+    public static final String EXAM_PROMPT_TEMPLATE = """
         You are a diagnostic exam recommendation agent.
         
         Patient Information:
@@ -71,8 +85,59 @@ public class ExamAgent {
         All content give in portuguese.
         """;
     
-    public ExamAgent(ChatModel chatModel) {
-        this.chatModel = chatModel;
+    private static final PromptRenderer PROMPT_RENDERER = PromptRenderer.builder(EXAM_PROMPT_TEMPLATE)
+        .text("patientId", PatientAssessmentState::getPatientId, "UNKNOWN")
+        .text("symptoms", PatientAssessmentState::getSymptoms, "No symptoms")
+        .text("medicalHistory", MedicalHistorySummarizer::medicalHistory, "No history")
+        .text("riskLevel", PatientAssessmentState::getRiskLevel, "UNKNOWN")
+        .text("triageRecommendations", PatientAssessmentState::getTriageRecommendations, "None")
+        .list("drugInteractions", PatientAssessmentState::getDrugInteractions, ", ", "None identified")
+        .text("pharmacyRecommendations", PatientAssessmentState::getPharmacistRecommendations, "None")
+        .bind("physicianFeedbackSection", PromptRenderer.physicianFeedback(
+            "Please incorporate this feedback in your exam recommendations."))
+        .truncatable("symptoms", "medicalHistory", "triageRecommendations", "drugInteractions",
+            "pharmacyRecommendations")
+        .build();
+    
+    public ExamAgent(AgentChatInvoker chatInvoker) {
+        this.chatInvoker = chatInvoker;
+    }
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public Set<StateField> requiredInputs() {
+        return REQUIRED_INPUTS;
+    }
+    
+    @Override
+    public Set<StateField> optionalInputs() {
+        return OPTIONAL_INPUTS;
+    }
+    
+    @Override
+    public Set<StateField> outputs() {
+        return OUTPUTS;
+    }
+    
+    @Override
+    public ExamRecommendations execute(PatientAssessmentState state) {
+        ExamRecommendations recommendations = recommendExams(state);
+        state.setRecommendedLabExams(recommendations.laboratoryExams());
+        state.setRecommendedImagingExams(recommendations.imagingExams());
+        state.setExamPriority(recommendations.priority());
+        state.setExamRecommendations(recommendations.rationale());
+        return recommendations;
+    }
+    
+    /**
+     * Prompt do agente para o estado do paciente
+     */
+    public Prompt createPrompt(PatientAssessmentState state) {
+        return PROMPT_RENDERER.create(state);
     }
     
     /**
@@ -82,51 +147,9 @@ public class ExamAgent {
         log.info("Starting exam recommendations for patient: {}", state.getPatientId());
         
         try {
-            PromptTemplate promptTemplate = new PromptTemplate(EXAM_PROMPT_TEMPLATE);
-            
-            // Adicionar seção de feedback do médico se houver reprocessamento
-            String feedbackSection = "";
-            if (state.getPhysicianFeedback() != null && !state.getPhysicianFeedback().isEmpty()) {
-                feedbackSection = String.format("""
-                    
-                    IMPORTANT - Physician Feedback from Previous Assessment:
-                    %s
-                    
-                    Please incorporate this feedback in your exam recommendations.
-                    Reprocessing iteration: %d of %d
-                    """, 
-                    state.getPhysicianFeedback(),
-                    state.getReprocessingCount(),
-                    state.getMaxReprocessingIterations()
-                );
-            }
-            
-            Map<String, Object> variables = Map.of(
-                "patientId", state.getPatientId() != null ? state.getPatientId() : "UNKNOWN",
-                "symptoms", state.getSymptoms() != null ? state.getSymptoms() : "No symptoms",
-                "medicalHistory", state.getMedicalHistory() != null ? state.getMedicalHistory() : "No history",
-                "riskLevel", state.getRiskLevel() != null ? state.getRiskLevel() : "UNKNOWN",
-                "triageRecommendations", state.getTriageRecommendations() != null 
-                    ? state.getTriageRecommendations() 
-                    : "None",
-                "drugInteractions", state.getDrugInteractions() != null && !state.getDrugInteractions().isEmpty()
-                    ? String.join(", ", state.getDrugInteractions())
-                    : "None identified",
-                "pharmacyRecommendations", state.getPharmacistRecommendations() != null
-                    ? state.getPharmacistRecommendations()
-                    : "None",
-                "physicianFeedbackSection", feedbackSection
-            );
-            
-            Prompt prompt = promptTemplate.create(variables);
-            String response = chatModel.call(prompt).getResult().getOutput().getText();
-            
-            log.debug("Exam agent response: {}", response);
-
-            if (response == null || response.isEmpty()) {
-                throw new RuntimeException("Empty response from exam agent");
-            }
-            ExamRecommendations recommendations = parseExamRecommendations(response);
+            Prompt prompt = chatInvoker.prompt(NAME, PROMPT_RENDERER, state);
+            ExamRecommendations recommendations = chatInvoker.call(
+                NAME, state, prompt, ExamRecommendations.class, DEFAULT_RECOMMENDATIONS);
             
             log.info("Exam recommendations completed - Priority: {}, Lab exams: {}, Imaging: {}", 
                 recommendations.priority(), 
@@ -137,6 +160,7 @@ public class ExamAgent {
             
         } catch (Exception e) {
             log.error("Error during exam recommendations", e);
+            chatInvoker.recordFallback(NAME, e);
             return new ExamRecommendations(
                 List.of(),
                 List.of(),
@@ -145,57 +169,4 @@ public class ExamAgent {
             );
         }
     }
-    
-    /**
-     * Parse JSON response to ExamRecommendations object
-     */
-    private ExamRecommendations parseExamRecommendations(String jsonResponse) {
-        String cleaned = jsonResponse.replaceAll("```json\\s*", "").replaceAll("```\\s*", "").trim();
-        
-        List<String> labExams = extractJsonArray(cleaned, "laboratoryExams");
-        List<String> imagingExams = extractJsonArray(cleaned, "imagingExams");
-        String priority = extractJsonValue(cleaned, "priority", "ROUTINE");
-        String rationale = extractJsonValue(cleaned, "rationale", "Standard diagnostic workup");
-        
-        return new ExamRecommendations(labExams, imagingExams, priority, rationale);
-    }
-    
-    /**
-     * Extract array from JSON string
-     */
-    private List<String> extractJsonArray(String json, String key) {
-        try {
-            String pattern = "\"" + key + "\"\\s*:\\s*\\[([^\\]]+)\\]";
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-            java.util.regex.Matcher m = p.matcher(json);
-            if (m.find()) {
-                String arrayContent = m.group(1);
-                return Arrays.stream(arrayContent.split(","))
-                    .map(s -> s.trim().replaceAll("^\"|\"$", ""))
-                    .filter(s -> !s.isEmpty())
-                    .collect(Collectors.toList());
-            }
-        } catch (Exception e) {
-            log.warn("Error extracting array {} from JSON", key, e);
-        }
-        return new ArrayList<>();
-    }
-    
-    /**
-     * Extract value from JSON string
-     */
-    private String extractJsonValue(String json, String key, String defaultValue) {
-        try {
-            String pattern = "\"" + key + "\"\\s*:\\s*\"([^\"]+)\"";
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-            java.util.regex.Matcher m = p.matcher(json);
-            if (m.find()) {
-                return m.group(1);
-            }
-        } catch (Exception e) {
-            log.warn("Error extracting {} from JSON", key, e);
-        }
-        return defaultValue;
-    }
 }
-
@@ -0,0 +1,207 @@
+package com.health.multiagent.agent;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.StateField;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resumo do histórico médico longo, reaproveitado entre sessões do mesmo paciente
+ * Nó do grafo executado após o Triage: a triagem (e o atalho dos sinais de
+ * alarme) não espera o resumo, e a chamada ao LLM entra na fila do limitador
+ * com a prioridade do risco já classificado. O resumo é usado no lugar do
+ * histórico nos prompts de Pharmacist, Exam e EMR Comms.
+ * O cache é indexado pelo patientId e guarda o hash do histórico resumido:
+ * um histórico diferente invalida a entrada e gera um novo resumo. Sessões
+ * simultâneas do mesmo paciente aguardam o mesmo resumo em geração.
+ * Históricos curtos e pacientes sem patientId usam o texto original; falhas
+ * do LLM também.
+ */
+@Slf4j
+@Component
+public class MedicalHistorySummarizer implements Agent {
+    
+    public static final String NAME = "HISTORY_SUMMARY";
+    
+    private static final Set<StateField> REQUIRED_INPUTS = Set.of(
+        StateField.PATIENT_ID, StateField.MEDICAL_HISTORY, StateField.RISK_LEVEL, StateField.URGENT);
+    
+    private static final Set<StateField> OUTPUTS = Set.of(StateField.MEDICAL_HISTORY_SUMMARY);
+    
+    static final String REQUESTS_METRIC = "health.llm.history_summary.requests";
+    
+    public static final String SUMMARY_PROMPT_TEMPLATE = """
+        Summarize the patient's medical history below. The summary replaces the full history
+        in the prompts of the pharmacy, exam and documentation agents.
+        
+        Medical History:
+        {medicalHistory}
+        
+        Keep:
+        - Chronic conditions and their control
+        - Surgeries, hospitalizations and major past events, with dates
+        - Allergies and adverse drug reactions (never omit these)
+        - Risk factors (smoking, alcohol, family history, pregnancy)
+        
+        Omit routine visits without findings and repeated information.
+        Respond with the summary text only, at most 120 words, without JSON or headings.
+        All content give in portuguese.
+        """;
+    
+    private static final PromptRenderer PROMPT_RENDERER = PromptRenderer.builder(SUMMARY_PROMPT_TEMPLATE)
+        .text("medicalHistory", PatientAssessmentState::getMedicalHistory, "")
+        .truncatable("medicalHistory")
+        .build();
+    
+    /**
+     * Resumo e hash do histórico a partir do qual foi gerado
+     */
+    private record Summary(String historyHash, String text) {
+    }
+    
+    private final AgentChatInvoker chatInvoker;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int minTokens;
+    private final AsyncCache<String, Summary> cache;
+    
+    public MedicalHistorySummarizer(
+            AgentChatInvoker chatInvoker,
+            MeterRegistry meterRegistry,
+            @Value("${health.multiagent.history-summary.enabled:true}") boolean enabled,
+            @Value("${health.multiagent.history-summary.min-tokens:200}") int minTokens,
+            @Value("${health.multiagent.history-summary.max-entries:10000}") long maxEntries,
+            @Value("${health.multiagent.history-summary.expire-after-access:P7D}") Duration expireAfterAccess) {
+        this.chatInvoker = chatInvoker;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.minTokens = minTokens;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterAccess(expireAfterAccess)
+            .recordStats()
+            .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "history-summary");
+    }
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public Set<StateField> requiredInputs() {
+        return REQUIRED_INPUTS;
+    }
+    
+    @Override
+    public Set<StateField> outputs() {
+        return OUTPUTS;
+    }
+    
+    @Override
+    public String execute(PatientAssessmentState state) {
+        String summary = summarize(state);
+        state.setMedicalHistorySummary(summary);
+        return summary;
+    }
+    
+    /**
+     * Histórico usado nos prompts: o resumo, quando existe, ou o texto original
+     */
+    public static String medicalHistory(PatientAssessmentState state) {
+        String summary = state.getMedicalHistorySummary();
+        return summary != null ? summary : state.getMedicalHistory();
+    }
+    
+    /**
+     * Resumo do histórico do paciente, gerado ou reaproveitado do cache
+     *
+     * @return null quando o histórico original deve ser usado
+     */
+    public String summarize(PatientAssessmentState state) {
+        String history = state.getMedicalHistory();
+        String patientId = state.getPatientId();
+        if (!enabled || patientId == null || patientId.isBlank() || TokenEstimator.estimate(history) < minTokens) {
+            return null;
+        }
+        
+        String historyHash = hash(history);
+        String result = "miss";
+        while (true) {
+            // A entrada é registrada antes da geração: quem chegar depois aguarda o mesmo resumo
+            CompletableFuture<Summary> pending = new CompletableFuture<>();
+            CompletableFuture<Summary> future = cache.get(patientId, (id, executor) -> pending);
+            if (future == pending) {
+                record(result);
+                String summary = generate(state, history);
+                // Resultado nulo remove a entrada do cache
+                pending.complete(summary != null ? new Summary(historyHash, summary) : null);
+                return summary;
+            }
+            
+            Summary cached = future.join();
+            if (cached == null) {
+                // A geração em andamento falhou: usa o histórico original sem repetir a chamada
+                return null;
+            }
+            if (cached.historyHash().equals(historyHash)) {
+                record("hit");
+                return cached.text();
+            }
+            cache.asMap().remove(patientId, future);
+            result = "invalidated";
+        }
+    }
+    
+    private String generate(PatientAssessmentState state, String history) {
+        log.info("Summarizing medical history for patient: {}", state.getPatientId());
+        try {
+            Prompt prompt = chatInvoker.prompt(NAME, PROMPT_RENDERER, state);
+            String response = chatInvoker.call(NAME, state, prompt);
+            String summary = response != null ? response.strip() : "";
+            if (summary.isEmpty() || TokenEstimator.estimate(summary) >= TokenEstimator.estimate(history)) {
+                log.warn("Medical history summary for patient {} is empty or not shorter than the history, "
+                    + "using the full history", state.getPatientId());
+                return null;
+            }
+            return summary;
+        } catch (Exception e) {
+            log.warn("Unable to summarize medical history for patient {}, using the full history",
+                state.getPatientId(), e);
+            return null;
+        }
+    }
+    
+    private static String hash(String history) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(history.strip().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private void record(String result) {
+        Counter.builder(REQUESTS_METRIC)
+            .description("Medical history summary lookups by result")
+            .tag("result", result)
+            .register(meterRegistry)
+            .increment();
+    }
+}
@@ -1,18 +1,19 @@
 package com.health.multiagent.agent;
 
+import com.health.multiagent.llm.SemanticResultCache;
 import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.StateField;
 import com.health.multiagent.model.PharmacyAnalysis;
+import com.health.multiagent.pharmacy.DrugInteractionKnowledgeBase;
+import com.health.multiagent.pharmacy.InteractionFindings;
+import com.health.multiagent.pharmacy.MedicationNormalizer;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * Pharmacist Agent - Segundo agente do fluxo
@@ -21,14 +22,40 @@ import java.util.stream.Collectors;
  * - Identificar interações medicamentosas
  * - Detectar contraindicações
  * - Recomendar ajustes de medicação
+ * Interações entre medicamentos da base local (DrugInteractionKnowledgeBase)
+ * são determinísticas e formam o mínimo garantido do resultado; o LLM
+ * explica essas interações e as demais que identificar são somadas a elas
+ * (a base não cobre todos os pares). Sem medicações, o LLM não é chamado.
  */
 @Slf4j
 @Component
-public class PharmacistAgent {
+public class PharmacistAgent implements Agent {
     
-    private final ChatModel chatModel;
+    public static final String NAME = "PHARMACIST";
     
-    private static final String PHARMACY_PROMPT_TEMPLATE = """
+    private final AgentChatInvoker chatInvoker;
+    private final SemanticResultCache semanticCache;
+    private final DrugInteractionKnowledgeBase knowledgeBase;
+    private final MedicationNormalizer medicationNormalizer;
+    
+    private static final Set<StateField> REQUIRED_INPUTS = Set.of(
+        StateField.PATIENT_ID, StateField.SYMPTOMS, StateField.MEDICAL_HISTORY, StateField.MEDICAL_HISTORY_SUMMARY,
+        StateField.CURRENT_MEDICATIONS, StateField.MEDICATION_IDS, StateField.RISK_LEVEL,
+        StateField.TRIAGE_RECOMMENDATIONS, StateField.PHYSICIAN_FEEDBACK);
+    
+    private static final Set<StateField> OUTPUTS = Set.of(
+        StateField.DRUG_INTERACTIONS, StateField.CONTRAINDICATIONS, StateField.PHARMACIST_RECOMMENDATIONS);
+    
+    // Valores usados para campos ausentes na resposta do LLM
+    private static final PharmacyAnalysis DEFAULT_ANALYSIS = new PharmacyAnalysis(
+        List.of(), List.of(), "No specific recommendations", false);
+    
+    private static final PharmacyAnalysis NO_MEDICATIONS_ANALYSIS = new PharmacyAnalysis(
+        List.of(), List.of(),
+        "Nenhuma medicação em uso informada: não há interações medicamentosas ou contraindicações a avaliar.",
+        false);
+    
+    public static final String PHARMACY_PROMPT_TEMPLATE = """
         You are a pharmacist agent specialized in medication analysis and drug interactions.
         
         Patient Information:
@@ -39,6 +66,8 @@ public class PharmacistAgent {
         - Risk Level from Triage: {riskLevel}
         - Triage Recommendations: {triageRecommendations}
         
+        {knownInteractionsSection}
+        
         {physicianFeedbackSection}
         
         Analyze the patient's medications and provide:
@@ -67,8 +96,122 @@ public class PharmacistAgent {
         All content give in portuguese.
         """;
     
-    public PharmacistAgent(ChatModel chatModel) {
-        this.chatModel = chatModel;
+    private static final PromptRenderer PROMPT_RENDERER = PromptRenderer.builder(PHARMACY_PROMPT_TEMPLATE)
+        .text("patientId", PatientAssessmentState::getPatientId, "UNKNOWN")
+        .text("symptoms", PatientAssessmentState::getSymptoms, "No symptoms")
+        .text("medicalHistory", MedicalHistorySummarizer::medicalHistory, "No history")
+        .list("currentMedications", PatientAssessmentState::getCurrentMedications, ", ", "None reported")
+        .text("riskLevel", PatientAssessmentState::getRiskLevel, "UNKNOWN")
+        .text("triageRecommendations", PatientAssessmentState::getTriageRecommendations, "No recommendations")
+        .bind("knownInteractionsSection", PharmacistAgent::knownInteractions)
+        .bind("physicianFeedbackSection", PromptRenderer.physicianFeedback(
+            "Please incorporate this feedback in your medication analysis."))
+        .truncatable("symptoms", "medicalHistory", "triageRecommendations")
+        .build();
+    
+    public PharmacistAgent(AgentChatInvoker chatInvoker, SemanticResultCache semanticCache,
+                           DrugInteractionKnowledgeBase knowledgeBase, MedicationNormalizer medicationNormalizer) {
+        this.chatInvoker = chatInvoker;
+        this.semanticCache = semanticCache;
+        this.knowledgeBase = knowledgeBase;
+        this.medicationNormalizer = medicationNormalizer;
+    }
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public Set<StateField> requiredInputs() {
+        return REQUIRED_INPUTS;
+    }
+    
+    @Override
+    public Set<StateField> outputs() {
+        return OUTPUTS;
+    }
+    
+    @Override
+    public PharmacyAnalysis execute(PatientAssessmentState state) {
+        if (state.getCurrentMedications() == null || state.getCurrentMedications().isEmpty()) {
+            log.info("No medications reported for patient {}, skipping pharmacy analysis", state.getPatientId());
+            return apply(state, NO_MEDICATIONS_ANALYSIS);
+        }
+        
+        // Interações dependem exatamente das medicações: só reaproveita com os mesmos ids canônicos e risco
+        String guard = SemanticResultCache.normalize(medicationIds(state)) + "|" + state.getRiskLevel();
+        PharmacyAnalysis analysis = semanticCache.computeIfAbsent(
+            NAME, state, semanticInput(state), guard, PharmacyAnalysis.class, () -> analyzeMedications(state));
+        return apply(state, analysis);
+    }
+    
+    /**
+     * Ids canônicos das medicações, calculados quando a sessão não os tem (ex.: gravada por uma versão anterior)
+     */
+    private List<String> medicationIds(PatientAssessmentState state) {
+        List<String> ids = state.getMedicationIds();
+        List<String> medications = state.getCurrentMedications();
+        if (ids == null || ids.size() != (medications == null ? 0 : medications.size())) {
+            ids = medicationNormalizer.canonicalIds(medications);
+            state.setMedicationIds(ids);
+        }
+        return ids;
+    }
+    
+    private static PharmacyAnalysis apply(PatientAssessmentState state, PharmacyAnalysis analysis) {
+        state.setDrugInteractions(analysis.drugInteractions());
+        state.setContraindications(analysis.contraindications());
+        state.setPharmacistRecommendations(analysis.recommendations());
+        return analysis;
+    }
+    
+    /**
+     * Seção com as interações da base local, pré-preenchidas em drugInteractions antes da chamada ao LLM
+     */
+    private static void knownInteractions(StringBuilder out, PatientAssessmentState state) {
+        List<String> known = state.getDrugInteractions();
+        if (known == null || known.isEmpty()) {
+            return;
+        }
+        out.append("Known drug interactions (confirmed by the clinical knowledge base):\n");
+        for (String interaction : known) {
+            out.append("- ").append(interaction).append('\n');
+        }
+        out.append("Explain their clinical relevance for this patient in your recommendations. ")
+            .append("Do not repeat them in drugInteractions; list any other interactions you identify, ")
+            .append("including between the medications above, since the knowledge base does not cover every pair.\n");
+    }
+    
+    /**
+     * Interações da base local somadas às do LLM, sem repetições
+     * A base é o mínimo garantido: mesmo com todas as medicações reconhecidas
+     * ela não cobre todos os pares, então as interações do LLM são mantidas.
+     */
+    private static PharmacyAnalysis merge(InteractionFindings findings, PharmacyAnalysis analysis) {
+        List<String> interactions = new ArrayList<>(findings.descriptions());
+        analysis.drugInteractions().stream()
+            .filter(interaction -> interaction != null && !interaction.isBlank())
+            .filter(interaction -> !interactions.contains(interaction))
+            .forEach(interactions::add);
+        return new PharmacyAnalysis(interactions, analysis.contraindications(), analysis.recommendations(),
+            analysis.hasSafetyConcerns() || findings.hasMajor());
+    }
+    
+    /**
+     * Apresentação do paciente usada na busca por análises aprovadas semelhantes
+     */
+    private String semanticInput(PatientAssessmentState state) {
+        return "medications: " + SemanticResultCache.normalize(medicationIds(state))
+            + "\nsymptoms: " + SemanticResultCache.normalize(state.getSymptoms())
+            + "\nmedical history: " + SemanticResultCache.normalize(state.getMedicalHistory());
+    }
+    
+    /**
+     * Prompt do agente para o estado do paciente
+     */
+    public Prompt createPrompt(PatientAssessmentState state) {
+        return PROMPT_RENDERER.create(state);
     }
     
     /**
@@ -77,49 +220,15 @@ public class PharmacistAgent {
     public PharmacyAnalysis analyzeMedications(PatientAssessmentState state) {
         log.info("Starting pharmacy analysis for patient: {}", state.getPatientId());
         
+        InteractionFindings findings = knowledgeBase.check(medicationIds(state));
+        state.setDrugInteractions(findings.descriptions());
+        log.debug("Known interactions: {}, medications outside the knowledge base: {}",
+            findings.interactions().size(), findings.unresolved());
+        
         try {
-            PromptTemplate promptTemplate = new PromptTemplate(PHARMACY_PROMPT_TEMPLATE);
-            
-            // Adicionar seção de feedback do médico se houver reprocessamento
-            String feedbackSection = "";
-            if (state.getPhysicianFeedback() != null && !state.getPhysicianFeedback().isEmpty()) {
-                feedbackSection = String.format("""
-                    
-                    IMPORTANT - Physician Feedback from Previous Assessment:
-                    %s
-                    
-                    Please incorporate this feedback in your medication analysis.
-                    Reprocessing iteration: %d of %d
-                    """, 
-                    state.getPhysicianFeedback(),
-                    state.getReprocessingCount(),
-                    state.getMaxReprocessingIterations()
-                );
-            }
-            
-            Map<String, Object> variables = Map.of(
-                "patientId", state.getPatientId() != null ? state.getPatientId() : "UNKNOWN",
-                "symptoms", state.getSymptoms() != null ? state.getSymptoms() : "No symptoms",
-                "medicalHistory", state.getMedicalHistory() != null ? state.getMedicalHistory() : "No history",
-                "currentMedications", state.getCurrentMedications() != null && !state.getCurrentMedications().isEmpty()
-                    ? String.join(", ", state.getCurrentMedications())
-                    : "None reported",
-                "riskLevel", state.getRiskLevel() != null ? state.getRiskLevel() : "UNKNOWN",
-                "triageRecommendations", state.getTriageRecommendations() != null 
-                    ? state.getTriageRecommendations() 
-                    : "No recommendations",
-                "physicianFeedbackSection", feedbackSection
-            );
-            
-            Prompt prompt = promptTemplate.create(variables);
-            String response = chatModel.call(prompt).getResult().getOutput().getText();
-            
-            log.debug("Pharmacist agent response: {}", response);
-
-            if (response == null || response.isEmpty()) {
-                throw new RuntimeException("Empty response from exam agent");
-            }
-            PharmacyAnalysis analysis = parsePharmacyAnalysis(response);
+            Prompt prompt = chatInvoker.prompt(NAME, PROMPT_RENDERER, state);
+            PharmacyAnalysis analysis = merge(findings, chatInvoker.call(
+                NAME, state, prompt, PharmacyAnalysis.class, DEFAULT_ANALYSIS));
             
             log.info("Pharmacy analysis completed - Safety Concerns: {}, Interactions: {}", 
                 analysis.hasSafetyConcerns(), analysis.drugInteractions().size());
@@ -128,72 +237,13 @@ public class PharmacistAgent {
             
         } catch (Exception e) {
             log.error("Error during pharmacy analysis", e);
-            return new PharmacyAnalysis(
+            chatInvoker.recordFallback(NAME, e);
+            return merge(findings, new PharmacyAnalysis(
                 List.of(),
                 List.of(),
                 "Error during analysis: " + e.getMessage() + ". Manual pharmacy review required.",
                 true
-            );
+            ));
         }
     }
-    
-    /**
-     * Parse JSON response to PharmacyAnalysis object
-     */
-    private PharmacyAnalysis parsePharmacyAnalysis(String jsonResponse) {
-        String cleaned = jsonResponse.replaceAll("```json\\s*", "").replaceAll("```\\s*", "").trim();
-        
-        List<String> interactions = extractJsonArray(cleaned, "drugInteractions");
-        List<String> contraindications = extractJsonArray(cleaned, "contraindications");
-        String recommendations = extractJsonValue(cleaned, "recommendations", "No specific recommendations");
-        boolean safetyConcerns = Boolean.parseBoolean(extractJsonValue(cleaned, "hasSafetyConcerns", "false"));
-        
-        return new PharmacyAnalysis(interactions, contraindications, recommendations, safetyConcerns);
-    }
-    
-    /**
-     * Extract array from JSON string (simplified)
-     */
-    private List<String> extractJsonArray(String json, String key) {
-        try {
-            String pattern = "\"" + key + "\"\\s*:\\s*\\[([^]]+)]";
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-            java.util.regex.Matcher m = p.matcher(json);
-            if (m.find()) {
-                String arrayContent = m.group(1);
-                return Arrays.stream(arrayContent.split(","))
-                    .map(s -> s.trim().replaceAll("^\"|\"$", ""))
-                    .filter(s -> !s.isEmpty())
-                    .collect(Collectors.toList());
-            }
-        } catch (Exception e) {
-            log.warn("Error extracting array {} from JSON", key, e);
-        }
-        return new ArrayList<>();
-    }
-    
-    /**
-     * Extract value from JSON string
-     */
-    private String extractJsonValue(String json, String key, String defaultValue) {
-        try {
-            String pattern = "\"" + key + "\"\\s*:\\s*\"([^\"]+)\"";
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-            java.util.regex.Matcher m = p.matcher(json);
-            if (m.find()) {
-                return m.group(1);
-            }
-            
-            pattern = "\"" + key + "\"\\s*:\\s*([^,}\\s]+)";
-            p = java.util.regex.Pattern.compile(pattern);
-            m = p.matcher(json);
-            if (m.find()) {
-                return m.group(1);
-            }
-        } catch (Exception e) {
-            log.warn("Error extracting {} from JSON", key, e);
-        }
-        return defaultValue;
-    }
 }
-
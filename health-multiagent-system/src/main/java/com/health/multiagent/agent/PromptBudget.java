@@ -0,0 +1,103 @@
+package com.health.multiagent.agent;
+
+import com.health.multiagent.model.PatientAssessmentState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Orçamento de tokens do prompt de cada agente
+ * Mantém o tempo de avaliação do prompt no Ollama (proporcional ao número
+ * de tokens em CPU) estável para históricos longos: as variáveis truncáveis
+ * de cada PromptRenderer são encurtadas até o prompt estimado caber no
+ * orçamento do agente. Zero desativa o limite. A geração é observada como
+ * health.llm.prompt (span filho do agente com o tracing habilitado).
+ */
+@Slf4j
+@Component
+public class PromptBudget {
+    
+    static final String PROMPT_TOKENS_METRIC = "health.llm.prompt.tokens";
+    static final String TRUNCATIONS_METRIC = "health.llm.prompt.truncations";
+    static final String TRUNCATED_TOKENS_METRIC = "health.llm.prompt.truncated_tokens";
+    static final String PROMPT_OBSERVATION = "health.llm.prompt";
+    
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+    private final Map<String, Integer> maxTokens;
+    
+    public PromptBudget(
+            MeterRegistry meterRegistry,
+            ObservationRegistry observationRegistry,
+            @Value("${health.multiagent.agents.triage.prompt-tokens:1024}") int triageTokens,
+            @Value("${health.multiagent.agents.pharmacist.prompt-tokens:1536}") int pharmacistTokens,
+            @Value("${health.multiagent.agents.exam.prompt-tokens:1536}") int examTokens,
+            @Value("${health.multiagent.agents.emr-comms.prompt-tokens:2048}") int emrCommsTokens,
+            @Value("${health.multiagent.history-summary.prompt-tokens:4096}") int historySummaryTokens) {
+        this.meterRegistry = meterRegistry;
+        this.observationRegistry = observationRegistry;
+        this.maxTokens = Map.of(
+            TriageAgent.NAME, triageTokens,
+            PharmacistAgent.NAME, pharmacistTokens,
+            ExamAgent.NAME, examTokens,
+            EMRCommsAgent.NAME, emrCommsTokens,
+            MedicalHistorySummarizer.NAME, historySummaryTokens);
+    }
+    
+    /**
+     * Gera o prompt do agente dentro do orçamento e registra os tokens estimados
+     */
+    public Prompt create(String agent, PromptRenderer renderer, PatientAssessmentState state) {
+        Observation observation = Observation.createNotStarted(PROMPT_OBSERVATION, observationRegistry)
+            .contextualName("render-prompt")
+            .lowCardinalityKeyValue("agent", agent)
+            .start();
+        PromptRenderer.Rendered rendered;
+        try (Observation.Scope scope = observation.openScope()) {
+            rendered = renderer.render(state, maxTokens(agent));
+            observation.highCardinalityKeyValue("prompt.tokens", Integer.toString(rendered.tokens()))
+                .highCardinalityKeyValue("prompt.truncated_tokens", Integer.toString(rendered.truncatedTokens()));
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+        
+        DistributionSummary.builder(PROMPT_TOKENS_METRIC)
+            .description("Estimated prompt tokens sent to the LLM, by agent")
+            .baseUnit("tokens")
+            .tag("agent", agent)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry)
+            .record(rendered.tokens());
+        
+        if (rendered.truncated()) {
+            log.debug("{} prompt truncated by {} estimated tokens to {} for session: {}",
+                agent, rendered.truncatedTokens(), rendered.tokens(), state.getSessionId());
+            counter(TRUNCATIONS_METRIC, "Prompts shortened to fit the agent token budget", agent).increment();
+            counter(TRUNCATED_TOKENS_METRIC, "Estimated tokens removed from prompts by the token budget", agent)
+                .increment(rendered.truncatedTokens());
+        }
+        return new Prompt(rendered.text());
+    }
+    
+    public int maxTokens(String agent) {
+        return maxTokens.getOrDefault(agent, 0);
+    }
+    
+    private Counter counter(String name, String description, String agent) {
+        return Counter.builder(name)
+            .description(description)
+            .tag("agent", agent)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,321 @@
+package com.health.multiagent.agent;
+
+import com.health.multiagent.model.PatientAssessmentState;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Template de prompt pré-compilado de um agente
+ * O template é dividido uma única vez em trechos literais e variáveis
+ * ({nome}); "{{" e "}}" representam chaves literais. Cada variável é
+ * associada a uma função que escreve o valor lido do estado do paciente
+ * diretamente em um único StringBuilder, dimensionado pelo maior prompt
+ * já gerado. Não há PromptTemplate, mapa de variáveis nem String.join
+ * por chamada.
+ * Com um orçamento de tokens, as variáveis marcadas como truncáveis
+ * (históricos, resumos e textos livres) são encurtadas quando o prompt
+ * estimado o excede. O orçamento restante após o texto fixo é dividido
+ * igualmente entre elas: valores menores que a parte ficam inteiros e a
+ * sobra passa aos maiores, que são reduzidos por TokenEstimator.truncate.
+ */
+public final class PromptRenderer {
+    
+    // Espaço inicial reservado para os valores das variáveis
+    private static final int VALUES_CAPACITY = 1024;
+    
+    private final String[] literals;
+    private final Binding[] bindings;
+    private final boolean[] truncatable;
+    private final int literalTokens;
+    private volatile int capacity;
+    
+    private PromptRenderer(List<String> literals, List<Binding> bindings, boolean[] truncatable) {
+        this.literals = literals.toArray(String[]::new);
+        this.bindings = bindings.toArray(Binding[]::new);
+        this.truncatable = truncatable;
+        this.literalTokens = literals.stream().mapToInt(TokenEstimator::estimate).sum();
+        this.capacity = literals.stream().mapToInt(String::length).sum() + VALUES_CAPACITY;
+    }
+    
+    /**
+     * Prompt gerado com a estimativa de tokens
+     *
+     * @param tokens tokens estimados do texto final
+     * @param truncatedTokens tokens estimados removidos das variáveis truncáveis
+     */
+    public record Rendered(String text, int tokens, int truncatedTokens) {
+        
+        public boolean truncated() {
+            return truncatedTokens > 0;
+        }
+    }
+    
+    /**
+     * Escreve o valor de uma variável a partir do estado do paciente
+     */
+    @FunctionalInterface
+    public interface Binding {
+        void append(StringBuilder out, PatientAssessmentState state);
+    }
+    
+    public static Builder builder(String template) {
+        return new Builder(template);
+    }
+    
+    /**
+     * Seção com o feedback do médico, vazia quando não há reprocessamento com feedback
+     *
+     * @param instruction frase que orienta o agente sobre como usar o feedback
+     */
+    public static Binding physicianFeedback(String instruction) {
+        return (out, state) -> {
+            String feedback = state.getPhysicianFeedback();
+            if (feedback == null || feedback.isEmpty()) {
+                return;
+            }
+            out.append("\nIMPORTANT - Physician Feedback from Previous Assessment:\n")
+                .append(feedback)
+                .append("\n\n")
+                .append(instruction)
+                .append("\nReprocessing iteration: ")
+                .append(state.getReprocessingCount())
+                .append(" of ")
+                .append(state.getMaxReprocessingIterations())
+                .append('\n');
+        };
+    }
+    
+    /**
+     * Gera o texto do prompt para o estado informado
+     */
+    public String render(PatientAssessmentState state) {
+        StringBuilder out = new StringBuilder(capacity);
+        out.append(literals[0]);
+        for (int i = 0; i < bindings.length; i++) {
+            bindings[i].append(out, state);
+            out.append(literals[i + 1]);
+        }
+        if (out.length() > capacity) {
+            capacity = out.length();
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Gera o texto do prompt limitado a maxTokens estimados
+     * O limite não é garantido quando o texto fixo e as variáveis não
+     * truncáveis já o excedem; maxTokens <= 0 desativa o limite.
+     */
+    public Rendered render(PatientAssessmentState state, int maxTokens) {
+        StringBuilder out = new StringBuilder(capacity);
+        int[] starts = new int[bindings.length];
+        int[] ends = new int[bindings.length];
+        int[] tokens = new int[bindings.length];
+        int total = literalTokens;
+        int truncatableTotal = 0;
+        
+        out.append(literals[0]);
+        for (int i = 0; i < bindings.length; i++) {
+            starts[i] = out.length();
+            bindings[i].append(out, state);
+            ends[i] = out.length();
+            tokens[i] = TokenEstimator.estimate(out, starts[i], ends[i]);
+            total += tokens[i];
+            if (truncatable[i]) {
+                truncatableTotal += tokens[i];
+            }
+            out.append(literals[i + 1]);
+        }
+        if (out.length() > capacity) {
+            capacity = out.length();
+        }
+        if (maxTokens <= 0 || total <= maxTokens || truncatableTotal == 0) {
+            return new Rendered(out.toString(), total, 0);
+        }
+        
+        int[] allowances = allocate(tokens, Math.max(0, maxTokens - (total - truncatableTotal)));
+        StringBuilder shortened = new StringBuilder(out.length());
+        int position = 0;
+        int truncatedTotal = 0;
+        for (int i = 0; i < bindings.length; i++) {
+            if (!truncatable[i] || allowances[i] >= tokens[i]) {
+                continue;
+            }
+            shortened.append(out, position, starts[i]);
+            int start = shortened.length();
+            TokenEstimator.truncate(out, starts[i], ends[i], allowances[i], shortened);
+            truncatedTotal += tokens[i] - TokenEstimator.estimate(shortened, start, shortened.length());
+            position = ends[i];
+        }
+        shortened.append(out, position, out.length());
+        return new Rendered(shortened.toString(), total - truncatedTotal, truncatedTotal);
+    }
+    
+    /**
+     * Gera o prompt (mensagem de usuário) para o estado informado
+     */
+    public Prompt create(PatientAssessmentState state) {
+        return new Prompt(render(state));
+    }
+    
+    /**
+     * Divide o orçamento entre as variáveis truncáveis, das menores para as maiores
+     */
+    private int[] allocate(int[] tokens, int available) {
+        Integer[] order = new Integer[tokens.length];
+        int count = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (truncatable[i]) {
+                order[count++] = i;
+            }
+        }
+        Arrays.sort(order, 0, count, Comparator.comparingInt((Integer i) -> tokens[i]).thenComparingInt(i -> i));
+        
+        int[] allowances = new int[tokens.length];
+        int remaining = available;
+        for (int k = 0; k < count; k++) {
+            int i = order[k];
+            allowances[i] = Math.min(tokens[i], remaining / (count - k));
+            remaining -= allowances[i];
+        }
+        return allowances;
+    }
+    
+    public static final class Builder {
+        
+        private final String template;
+        private final Map<String, Binding> bindings = new LinkedHashMap<>();
+        private final Set<String> truncatable = new HashSet<>();
+        
+        private Builder(String template) {
+            this.template = template;
+        }
+        
+        /**
+         * Variável de texto, substituída pelo valor padrão quando nula
+         */
+        public Builder text(String name, Function<PatientAssessmentState, String> value, String fallback) {
+            return bind(name, (out, state) -> {
+                String text = value.apply(state);
+                out.append(text != null ? text : fallback);
+            });
+        }
+        
+        /**
+         * Variável de lista, com os itens unidos pelo separador ou o valor padrão quando vazia
+         */
+        public Builder list(String name, Function<PatientAssessmentState, List<String>> values,
+                            String separator, String fallback) {
+            return bind(name, (out, state) -> {
+                List<String> items = values.apply(state);
+                if (items == null || items.isEmpty()) {
+                    out.append(fallback);
+                    return;
+                }
+                for (int i = 0; i < items.size(); i++) {
+                    if (i > 0) {
+                        out.append(separator);
+                    }
+                    out.append(items.get(i));
+                }
+            });
+        }
+        
+        public Builder bind(String name, Binding binding) {
+            if (bindings.put(name, binding) != null) {
+                throw new IllegalArgumentException("Variable already bound: " + name);
+            }
+            return this;
+        }
+        
+        /**
+         * Variáveis que podem ser encurtadas para respeitar o orçamento de tokens
+         */
+        public Builder truncatable(String... names) {
+            for (String name : names) {
+                if (!bindings.containsKey(name)) {
+                    throw new IllegalArgumentException("No value bound to truncatable variable: " + name);
+                }
+                truncatable.add(name);
+            }
+            return this;
+        }
+        
+        /**
+         * Compila o template
+         *
+         * @throws IllegalArgumentException se alguma variável do template não tem valor associado ou vice-versa
+         */
+        public PromptRenderer build() {
+            List<String> literals = new ArrayList<>();
+            List<Binding> slots = new ArrayList<>();
+            List<Boolean> truncatableSlots = new ArrayList<>();
+            Set<String> used = new HashSet<>();
+            StringBuilder literal = new StringBuilder();
+            
+            int i = 0;
+            while (i < template.length()) {
+                char c = template.charAt(i);
+                boolean doubled = i + 1 < template.length() && template.charAt(i + 1) == c;
+                if ((c == '{' || c == '}') && doubled) {
+                    literal.append(c);
+                    i += 2;
+                    continue;
+                }
+                
+                int end = c == '{' ? variableEnd(i) : -1;
+                if (end < 0) {
+                    literal.append(c);
+                    i++;
+                    continue;
+                }
+                
+                String name = template.substring(i + 1, end);
+                Binding binding = bindings.get(name);
+                if (binding == null) {
+                    throw new IllegalArgumentException("No value bound to template variable: " + name);
+                }
+                used.add(name);
+                literals.add(literal.toString());
+                literal.setLength(0);
+                slots.add(binding);
+                truncatableSlots.add(truncatable.contains(name));
+                i = end + 1;
+            }
+            literals.add(literal.toString());
+            
+            if (!used.containsAll(bindings.keySet())) {
+                Set<String> unused = new HashSet<>(bindings.keySet());
+                unused.removeAll(used);
+                throw new IllegalArgumentException("Variables not present in template: " + unused);
+            }
+            boolean[] truncatableFlags = new boolean[slots.size()];
+            for (int slot = 0; slot < truncatableFlags.length; slot++) {
+                truncatableFlags[slot] = truncatableSlots.get(slot);
+            }
+            return new PromptRenderer(literals, slots, truncatableFlags);
+        }
+        
+        /**
+         * Posição do '}' que fecha uma variável iniciada em start, ou -1 se não for uma variável
+         */
+        private int variableEnd(int start) {
+            int i = start + 1;
+            while (i < template.length() && Character.isJavaIdentifierPart(template.charAt(i))) {
+                i++;
+            }
+            boolean valid = i > start + 1 && i < template.length() && template.charAt(i) == '}'
+                && Character.isJavaIdentifierStart(template.charAt(start + 1));
+            return valid ? i : -1;
+        }
+    }
+}
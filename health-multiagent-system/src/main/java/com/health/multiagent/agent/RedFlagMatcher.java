@@ -0,0 +1,177 @@
+package com.health.multiagent.agent;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Busca simultânea de vários termos em um texto (Aho-Corasick)
+ * Os termos são compilados em um autômato com links de falha, e o texto é
+ * percorrido uma única vez, independentemente da quantidade de termos.
+ * Texto e termos são comparados sem acentos, sem diferenciar maiúsculas e
+ * com pontuação tratada como espaço; os termos só casam com palavras
+ * inteiras ("dor" não casa com "dormência").
+ * Ocorrências negadas são ignoradas: um termo precedido, na mesma frase e
+ * em até três palavras, por uma negação ("nega", "sem", "nenhum",
+ * "ausência de", ...) não é reportado ("nega dor torácica", "sem dor no
+ * peito"). O escopo da negação termina em "mas", "porém" e "com".
+ */
+public final class RedFlagMatcher {
+    
+    private static final int NEGATION_WINDOW = 3;
+    
+    // Negações e fins de escopo já normalizados
+    private static final List<List<String>> NEGATION_CUES = Stream.of(
+            "nega", "negou", "negando", "sem", "nenhum", "nenhuma", "ausencia de",
+            "denies", "denied", "without", "negative for")
+        .map(cue -> List.of(cue.split(" ")))
+        .toList();
+    private static final int MAX_CUE_WORDS = NEGATION_CUES.stream().mapToInt(List::size).max().orElse(1);
+    private static final Set<String> SCOPE_TERMINATORS = Set.of("mas", "porem", "com", "but", "with");
+    
+    private static final Pattern SENTENCE_END = Pattern.compile("[.;:!?\\n]+");
+    
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final List<Integer> failures = new ArrayList<>();
+    private final List<List<String>> outputs = new ArrayList<>();
+    private final Map<String, Integer> termLengths = new HashMap<>();
+    
+    public RedFlagMatcher(Collection<String> terms) {
+        addState();
+        for (String term : terms) {
+            String normalized = normalize(term);
+            if (!normalized.isBlank()) {
+                addTerm(normalized, term.strip());
+            }
+        }
+        buildFailureLinks();
+    }
+    
+    /**
+     * Termos encontrados no texto sem negação, na ordem da primeira ocorrência
+     */
+    public Set<String> find(String text) {
+        Set<String> found = new LinkedHashSet<>();
+        if (text == null || text.isBlank()) {
+            return found;
+        }
+        
+        for (String sentence : SENTENCE_END.split(text)) {
+            String normalized = normalize(sentence);
+            int state = 0;
+            for (int i = 0; i < normalized.length(); i++) {
+                state = next(state, normalized.charAt(i));
+                for (String term : outputs.get(state)) {
+                    if (!found.contains(term) && !negated(normalized, i - termLengths.get(term) + 1)) {
+                        found.add(term);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Negação terminada em uma das palavras que precedem o termo iniciado em start
+     * Palavras além da janela são lidas apenas para completar negações de mais
+     * de uma palavra ("ausência de febre e dor torácica").
+     */
+    private static boolean negated(String normalized, int start) {
+        String[] preceding = normalized.substring(0, start).strip().split(" ");
+        List<String> scope = new ArrayList<>();
+        for (int i = preceding.length - 1; i >= 0 && scope.size() < NEGATION_WINDOW + MAX_CUE_WORDS - 1; i--) {
+            if (SCOPE_TERMINATORS.contains(preceding[i])) {
+                break;
+            }
+            scope.addFirst(preceding[i]);
+        }
+        for (int end = Math.max(0, scope.size() - NEGATION_WINDOW); end < scope.size(); end++) {
+            for (List<String> cue : NEGATION_CUES) {
+                int from = end - cue.size() + 1;
+                if (from >= 0 && scope.subList(from, end + 1).equals(cue)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Sem acentos, em minúsculas e com espaço nas bordas para casar apenas palavras inteiras
+     */
+    static String normalize(String text) {
+        return " " + Normalizer.normalize(text, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "")
+            .toLowerCase(Locale.ROOT)
+            .replaceAll("[^a-z0-9]+", " ")
+            .strip() + " ";
+    }
+    
+    private int addState() {
+        transitions.add(new HashMap<>());
+        failures.add(0);
+        outputs.add(new ArrayList<>());
+        return transitions.size() - 1;
+    }
+    
+    private void addTerm(String normalized, String term) {
+        int state = 0;
+        for (int i = 0; i < normalized.length(); i++) {
+            Integer target = transitions.get(state).get(normalized.charAt(i));
+            state = target != null ? target : link(state, normalized.charAt(i));
+        }
+        if (!outputs.get(state).contains(term)) {
+            outputs.get(state).add(term);
+        }
+        termLengths.putIfAbsent(term, normalized.length());
+    }
+    
+    private int link(int state, char c) {
+        int target = addState();
+        transitions.get(state).put(c, target);
+        return target;
+    }
+    
+    /**
+     * Links de falha em largura: cada estado aponta para o maior sufixo que também é prefixo de um termo
+     */
+    private void buildFailureLinks() {
+        Queue<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(state).entrySet()) {
+                int child = edge.getValue();
+                int failure = state == 0 ? 0 : next(failures.get(state), edge.getKey());
+                failures.set(child, failure);
+                // Termos que terminam no sufixo também terminam no estado filho
+                outputs.get(failure).stream()
+                    .filter(term -> !outputs.get(child).contains(term))
+                    .forEach(outputs.get(child)::add);
+                queue.add(child);
+            }
+        }
+    }
+    
+    private int next(int state, char c) {
+        while (true) {
+            Integer target = transitions.get(state).get(c);
+            if (target != null) {
+                return target;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failures.get(state);
+        }
+    }
+}
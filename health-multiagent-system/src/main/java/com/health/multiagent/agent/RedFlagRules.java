@@ -0,0 +1,100 @@
+package com.health.multiagent.agent;
+
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.RiskAssessment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Regras determinísticas de sinais de alarme aplicadas antes da triagem
+ * Os sintomas atuais são verificados contra um léxico de sinais de alarme
+ * em português e inglês (um termo por linha, configurável), ignorando
+ * ocorrências negadas. Havendo ocorrência, o paciente é classificado como
+ * CRITICAL e urgente sem aguardar o LLM. O histórico não é verificado:
+ * eventos passados ("convulsão na infância") não são emergências atuais.
+ */
+@Slf4j
+@Component
+public class RedFlagRules {
+    
+    static final String MATCHES_METRIC = "health.triage.red-flags";
+    
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final RedFlagMatcher matcher;
+    
+    @Autowired
+    public RedFlagRules(
+            MeterRegistry meterRegistry,
+            @Value("${health.multiagent.red-flags.enabled:true}") boolean enabled,
+            @Value("${health.multiagent.red-flags.lexicon:classpath:red-flags.txt}") Resource lexicon) throws IOException {
+        this(meterRegistry, enabled, readLexicon(lexicon));
+        log.info("Red flag lexicon {} loaded", lexicon.getDescription());
+    }
+    
+    RedFlagRules(MeterRegistry meterRegistry, boolean enabled, Collection<String> terms) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.matcher = new RedFlagMatcher(terms);
+    }
+    
+    /**
+     * Avaliação CRITICAL quando os sintomas contêm sinais de alarme
+     */
+    public Optional<RiskAssessment> assess(PatientAssessmentState state) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        
+        Set<String> flags = matcher.find(state.getSymptoms());
+        count(flags.isEmpty() ? "clear" : "matched");
+        if (flags.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        log.info("Red flags found for patient {}: {}", state.getPatientId(), flags);
+        String summary = "Sinais de alarme identificados: " + String.join(", ", flags) + ". Sintomas relatados: "
+            + state.getSymptoms();
+        return Optional.of(new RiskAssessment(
+            "CRITICAL",
+            summary,
+            "Encaminhar imediatamente para atendimento de emergência. Classificação automática por sinais de "
+                + "alarme; confirmar com avaliação médica presencial.",
+            true));
+    }
+    
+    private void count(String result) {
+        Counter.builder(MATCHES_METRIC)
+            .description("Patients checked against the red flag lexicon before triage")
+            .tag("result", result)
+            .register(meterRegistry)
+            .increment();
+    }
+    
+    /**
+     * Um termo por linha; linhas em branco e iniciadas por # são ignoradas
+     */
+    private static List<String> readLexicon(Resource lexicon) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(lexicon.getInputStream(), StandardCharsets.UTF_8))) {
+            return reader.lines()
+                .map(String::strip)
+                .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                .toList();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.health.multiagent.agent;
+
+/**
+ * Estimativa local do número de tokens de um texto, sem o tokenizador do modelo
+ * Cada sequência de letras e dígitos conta um token a cada 4 caracteres
+ * (arredondado para cima) e cada símbolo ou pontuação conta um token;
+ * espaços não contam. Para texto em português com tokenizadores BPE
+ * (Qwen, Gemma) a estimativa fica próxima ou acima da contagem real, o
+ * que basta para manter os prompts dentro do orçamento.
+ */
+public final class TokenEstimator {
+    
+    private static final int CHARS_PER_TOKEN = 4;
+    
+    // Marca do trecho omitido na truncagem
+    static final String OMISSION = "[...]";
+    private static final int OMISSION_TOKENS = estimate(OMISSION);
+    
+    private TokenEstimator() {
+    }
+    
+    public static int estimate(CharSequence text) {
+        return text != null ? estimate(text, 0, text.length()) : 0;
+    }
+    
+    public static int estimate(CharSequence text, int from, int to) {
+        int tokens = 0;
+        int i = from;
+        while (i < to) {
+            int end = unitEnd(text, i, to);
+            tokens += unitTokens(text, i, end);
+            i = end;
+        }
+        return tokens;
+    }
+    
+    /**
+     * Escreve em out o trecho [from, to) reduzido a no máximo maxTokens
+     * O início e o final do texto são mantidos (cerca de 2/3 e 1/3 do
+     * orçamento), sem cortar palavras, com a marca "[...]" no lugar do
+     * trecho omitido. O resultado depende apenas do texto e do orçamento.
+     */
+    static void truncate(CharSequence text, int from, int to, int maxTokens, StringBuilder out) {
+        int available = Math.max(0, maxTokens - OMISSION_TOKENS);
+        int headEnd = advance(text, from, to, available * 2 / 3);
+        int tailStart = retreat(text, headEnd, to, available - estimate(text, from, headEnd));
+        headEnd = trimEnd(text, from, headEnd);
+        tailStart = trimStart(text, tailStart, to);
+        
+        out.append(text, from, headEnd);
+        if (headEnd > from) {
+            out.append(' ');
+        }
+        out.append(OMISSION);
+        if (tailStart < to) {
+            out.append(' ').append(text, tailStart, to);
+        }
+    }
+    
+    /**
+     * Fim do maior prefixo de [from, to) com até maxTokens
+     */
+    private static int advance(CharSequence text, int from, int to, int maxTokens) {
+        int tokens = 0;
+        int i = from;
+        while (i < to) {
+            int end = unitEnd(text, i, to);
+            tokens += unitTokens(text, i, end);
+            if (tokens > maxTokens) {
+                break;
+            }
+            i = end;
+        }
+        return i;
+    }
+    
+    /**
+     * Início do maior sufixo de [from, to) com até maxTokens
+     */
+    private static int retreat(CharSequence text, int from, int to, int maxTokens) {
+        int tokens = 0;
+        int i = to;
+        while (i > from) {
+            int start = unitStart(text, from, i);
+            tokens += unitTokens(text, start, i);
+            if (tokens > maxTokens) {
+                break;
+            }
+            i = start;
+        }
+        return i;
+    }
+    
+    /**
+     * Fim da unidade (palavra, símbolo ou espaços) que começa em i
+     */
+    private static int unitEnd(CharSequence text, int i, int to) {
+        char c = text.charAt(i);
+        if (Character.isLetterOrDigit(c)) {
+            do {
+                i++;
+            } while (i < to && Character.isLetterOrDigit(text.charAt(i)));
+            return i;
+        }
+        if (Character.isWhitespace(c)) {
+            do {
+                i++;
+            } while (i < to && Character.isWhitespace(text.charAt(i)));
+            return i;
+        }
+        return i + 1;
+    }
+    
+    /**
+     * Início da unidade que termina em end
+     */
+    private static int unitStart(CharSequence text, int from, int end) {
+        char c = text.charAt(end - 1);
+        int i = end - 1;
+        if (Character.isLetterOrDigit(c)) {
+            while (i > from && Character.isLetterOrDigit(text.charAt(i - 1))) {
+                i--;
+            }
+        } else if (Character.isWhitespace(c)) {
+            while (i > from && Character.isWhitespace(text.charAt(i - 1))) {
+                i--;
+            }
+        }
+        return i;
+    }
+    
+    private static int unitTokens(CharSequence text, int start, int end) {
+        char c = text.charAt(start);
+        if (Character.isLetterOrDigit(c)) {
+            return (end - start + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+        }
+        return Character.isWhitespace(c) ? 0 : 1;
+    }
+    
+    private static int trimEnd(CharSequence text, int from, int end) {
+        while (end > from && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+    
+    private static int trimStart(CharSequence text, int start, int to) {
+        while (start < to && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+}
@@ -1,14 +1,15 @@
 package com.health.multiagent.agent;
 
+import com.health.multiagent.llm.SemanticResultCache;
 import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.StateField;
 import com.health.multiagent.model.RiskAssessment;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.stereotype.Component;
 
-import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Triage Agent - Primeiro agente do fluxo
@@ -17,14 +18,31 @@ import java.util.Map;
  * - Determinar nível de risco (LOW, MEDIUM, HIGH, CRITICAL)
  * - Fornecer recomendações iniciais
  * - Identificar casos urgentes
+ * Sinais de alarme do léxico (RedFlagRules) classificam o paciente como
+ * CRITICAL sem chamar o LLM, exceto no reprocessamento com feedback do médico.
  */
 @Slf4j
 @Component
-public class TriageAgent {
+public class TriageAgent implements Agent {
     
-    private final ChatModel chatModel;
+    public static final String NAME = "TRIAGE";
     
-    private static final String TRIAGE_PROMPT_TEMPLATE = """
+    private final AgentChatInvoker chatInvoker;
+    private final SemanticResultCache semanticCache;
+    private final RedFlagRules redFlagRules;
+    
+    private static final Set<StateField> REQUIRED_INPUTS = Set.of(
+        StateField.PATIENT_ID, StateField.SYMPTOMS, StateField.MEDICAL_HISTORY, StateField.CURRENT_MEDICATIONS,
+        StateField.PHYSICIAN_FEEDBACK);
+    
+    private static final Set<StateField> OUTPUTS = Set.of(
+        StateField.RISK_LEVEL, StateField.URGENT, StateField.SYMPTOMS_SUMMARY, StateField.TRIAGE_RECOMMENDATIONS);
+    
+    // Valores usados para campos ausentes na resposta do LLM
+    private static final RiskAssessment DEFAULT_ASSESSMENT = new RiskAssessment(
+        "MEDIUM", "Assessment completed", "Proceed to next evaluation", false);
+    
+    public static final String TRIAGE_PROMPT_TEMPLATE = """
         You are a medical triage agent. Analyze the patient information and provide a risk assessment.
         
         Patient Information:
@@ -59,8 +77,85 @@ public class TriageAgent {
         All content give in portuguese.
         """;
     
-    public TriageAgent(ChatModel chatModel) {
-        this.chatModel = chatModel;
+    private static final PromptRenderer PROMPT_RENDERER = PromptRenderer.builder(TRIAGE_PROMPT_TEMPLATE)
+        .text("patientId", PatientAssessmentState::getPatientId, "UNKNOWN")
+        .text("symptoms", PatientAssessmentState::getSymptoms, "No symptoms provided")
+        .text("medicalHistory", MedicalHistorySummarizer::medicalHistory, "No history available")
+        .list("currentMedications", PatientAssessmentState::getCurrentMedications, ", ", "None reported")
+        .bind("physicianFeedbackSection", PromptRenderer.physicianFeedback(
+            "Please incorporate this feedback in your new assessment."))
+        .truncatable("symptoms", "medicalHistory")
+        .build();
+    
+    public TriageAgent(AgentChatInvoker chatInvoker, SemanticResultCache semanticCache, RedFlagRules redFlagRules) {
+        this.chatInvoker = chatInvoker;
+        this.semanticCache = semanticCache;
+        this.redFlagRules = redFlagRules;
+    }
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public Set<StateField> requiredInputs() {
+        return REQUIRED_INPUTS;
+    }
+    
+    @Override
+    public Set<StateField> outputs() {
+        return OUTPUTS;
+    }
+    
+    @Override
+    public RiskAssessment execute(PatientAssessmentState state) {
+        RiskAssessment assessment = redFlags(state)
+            .orElseGet(() -> semanticCache.computeIfAbsent(NAME, state, semanticInput(state), null,
+                RiskAssessment.class, () -> assessPatient(state), reused -> forPatient(reused, state)));
+        state.setRiskLevel(assessment.riskLevel());
+        state.setUrgent(assessment.urgent());
+        state.setSymptomsSummary(assessment.symptomsSummary());
+        state.setTriageRecommendations(assessment.recommendations());
+        return assessment;
+    }
+    
+    /**
+     * Triagem determinística por sinais de alarme; o feedback do médico sempre passa pelo LLM
+     */
+    private Optional<RiskAssessment> redFlags(PatientAssessmentState state) {
+        if (state.getPhysicianFeedback() != null && !state.getPhysicianFeedback().isBlank()) {
+            return Optional.empty();
+        }
+        return redFlagRules.assess(state);
+    }
+    
+    /**
+     * Triagem de outra sessão aplicada ao paciente atual: o resumo dos sintomas
+     * da sessão de origem descreve outro paciente e é substituído pelos sintomas relatados
+     */
+    private static RiskAssessment forPatient(RiskAssessment reused, PatientAssessmentState state) {
+        return new RiskAssessment(
+            reused.riskLevel(),
+            "Triagem reaproveitada de apresentação semelhante aprovada. Sintomas relatados: " + state.getSymptoms(),
+            reused.recommendations(),
+            reused.urgent());
+    }
+    
+    /**
+     * Apresentação do paciente usada na busca por triagens aprovadas semelhantes
+     */
+    private static String semanticInput(PatientAssessmentState state) {
+        return "symptoms: " + SemanticResultCache.normalize(state.getSymptoms())
+            + "\nmedical history: " + SemanticResultCache.normalize(state.getMedicalHistory())
+            + "\nmedications: " + SemanticResultCache.normalize(state.getCurrentMedications());
+    }
+    
+    /**
+     * Prompt do agente para o estado do paciente
+     */
+    public Prompt createPrompt(PatientAssessmentState state) {
+        return PROMPT_RENDERER.create(state);
     }
     
     /**
@@ -70,45 +165,9 @@ public class TriageAgent {
         log.info("Starting triage assessment for patient: {}", state.getPatientId());
         
         try {
-            PromptTemplate promptTemplate = new PromptTemplate(TRIAGE_PROMPT_TEMPLATE);
-            
-            // Adicionar seção de feedback do médico se houver reprocessamento
-            String feedbackSection = "";
-            if (state.getPhysicianFeedback() != null && !state.getPhysicianFeedback().isEmpty()) {
-                feedbackSection = String.format("""
-                    
-                    IMPORTANT - Physician Feedback from Previous Assessment:
-                    %s
-                    
-                    Please incorporate this feedback in your new assessment.
-                    Reprocessing iteration: %d of %d
-                    """, 
-                    state.getPhysicianFeedback(),
-                    state.getReprocessingCount(),
-                    state.getMaxReprocessingIterations()
-                );
-            }
-            
-            Map<String, Object> variables = Map.of(
-                "patientId", state.getPatientId() != null ? state.getPatientId() : "UNKNOWN",
-                "symptoms", state.getSymptoms() != null ? state.getSymptoms() : "No symptoms provided",
-                "medicalHistory", state.getMedicalHistory() != null ? state.getMedicalHistory() : "No history available",
-                "currentMedications", state.getCurrentMedications() != null && !state.getCurrentMedications().isEmpty() 
-                    ? String.join(", ", state.getCurrentMedications()) 
-                    : "None reported",
-                "physicianFeedbackSection", feedbackSection
-            );
-            
-            Prompt prompt = promptTemplate.create(variables);
-            String response = chatModel.call(prompt).getResult().getOutput().getText();
-            
-            log.debug("Triage agent response: {}", response);
-            
-            // Parse JSON response (simplified - in production use Jackson ObjectMapper)
-            if (response == null || response.isEmpty()) {
-                throw new RuntimeException("Empty response from exam agent");
-            }
-            RiskAssessment assessment = parseRiskAssessment(response);
+            Prompt prompt = chatInvoker.prompt(NAME, PROMPT_RENDERER, state);
+            RiskAssessment assessment = chatInvoker.call(
+                NAME, state, prompt, RiskAssessment.class, DEFAULT_ASSESSMENT);
             
             log.info("Triage completed - Risk Level: {}, Urgent: {}", 
                 assessment.riskLevel(), assessment.urgent());
@@ -117,6 +176,7 @@ public class TriageAgent {
             
         } catch (Exception e) {
             log.error("Error during triage assessment", e);
+            chatInvoker.recordFallback(NAME, e);
             // Return safe default assessment
             return new RiskAssessment(
                 "MEDIUM",
@@ -126,47 +186,4 @@ public class TriageAgent {
             );
         }
     }
-    
-    /**
-     * Parse JSON response to RiskAssessment object
-     * Simplified version - in production use Jackson ObjectMapper
-     */
-    private RiskAssessment parseRiskAssessment(String jsonResponse) {
-        // Remove markdown code blocks if present
-        String cleaned = jsonResponse.replaceAll("```json\\s*", "").replaceAll("```\\s*", "").trim();
-        
-        // Simple parsing (in production, use Jackson)
-        String riskLevel = extractJsonValue(cleaned, "riskLevel", "MEDIUM");
-        String summary = extractJsonValue(cleaned, "symptomsSummary", "Assessment completed");
-        String recommendations = extractJsonValue(cleaned, "recommendations", "Proceed to next evaluation");
-        boolean urgent = Boolean.parseBoolean(extractJsonValue(cleaned, "urgent", "false"));
-        
-        return new RiskAssessment(riskLevel, summary, recommendations, urgent);
-    }
-    
-    /**
-     * Extract value from JSON string (simplified)
-     */
-    private String extractJsonValue(String json, String key, String defaultValue) {
-        try {
-            String pattern = "\"" + key + "\"\\s*:\\s*\"([^\"]+)\"";
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-            java.util.regex.Matcher m = p.matcher(json);
-            if (m.find()) {
-                return m.group(1);
-            }
-            
-            // Try boolean/number pattern
-            pattern = "\"" + key + "\"\\s*:\\s*([^,}\\s]+)";
-            p = java.util.regex.Pattern.compile(pattern);
-            m = p.matcher(json);
-            if (m.find()) {
-                return m.group(1);
-            }
-        } catch (Exception e) {
-            log.warn("Error extracting {} from JSON, using default", key, e);
-        }
-        return defaultValue;
-    }
 }
-
@@ -0,0 +1,82 @@
+package com.health.multiagent.cluster;
+
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.service.HealthAssessmentService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Endpoints internos do cluster
+ * - GET/PUT /cluster/nodes - Consultar e substituir os membros (id -> URL base da API)
+ * - POST /cluster/sessions - Receber uma sessão transferida por outro nó
+ */
+@Slf4j
+@RestController
+@RequestMapping("/cluster")
+@Tag(name = "Cluster", description = "Internal endpoints for session sharding between nodes")
+@ConditionalOnProperty(name = "health.multiagent.cluster.enabled", havingValue = "true")
+public class ClusterController {
+    
+    static final String SESSIONS_PATH = "/cluster/sessions";
+    
+    private final ClusterMembership membership;
+    private final SessionRebalancer rebalancer;
+    private final HealthAssessmentService assessmentService;
+    
+    public ClusterController(ClusterMembership membership, SessionRebalancer rebalancer,
+                             HealthAssessmentService assessmentService) {
+        this.membership = membership;
+        this.rebalancer = rebalancer;
+        this.assessmentService = assessmentService;
+    }
+    
+    @GetMapping("/nodes")
+    @Operation(summary = "Get cluster members")
+    public Map<String, URI> getNodes() {
+        return membership.members();
+    }
+    
+    /**
+     * Substitui os membros e transfere as sessões que mudaram de dono
+     * Deve ser chamado em todos os nós com a mesma lista.
+     */
+    @PutMapping("/nodes")
+    @Operation(
+        summary = "Replace cluster members",
+        description = "Rebuilds the hash ring and transfers sessions now owned by other nodes"
+    )
+    public ResponseEntity<Map<String, Object>> updateNodes(@RequestBody Map<String, URI> nodes) {
+        try {
+            membership.update(nodes);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("nodes", membership.members().keySet());
+        result.put("transferredSessions", rebalancer.rebalance());
+        return ResponseEntity.ok(result);
+    }
+    
+    @PostMapping("/sessions")
+    @Operation(summary = "Adopt a session transferred by another node")
+    public ResponseEntity<Void> adoptSession(@RequestBody PatientAssessmentState state) {
+        log.info("Receiving session {} with status {}", state.getSessionId(), state.getStatus());
+        assessmentService.adoptSession(state);
+        return ResponseEntity.status(HttpStatus.CREATED).build();
+    }
+}
@@ -0,0 +1,146 @@
+package com.health.multiagent.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Nós da aplicação e distribuição das sessões entre eles
+ * O dono de uma sessão é definido pelo anel de hash consistente a partir do
+ * token gravado nos 8 primeiros dígitos hexadecimais do sessionId. Novas
+ * sessões recebem um token pertencente ao nó que as cria, de modo que o fluxo
+ * roda onde a requisição chegou; após mudanças de membros, o token passa a
+ * apontar para o novo dono e a sessão é transferida pelo SessionRebalancer.
+ * Com cluster.enabled=false, o nó local é dono de todas as sessões.
+ */
+@Slf4j
+@Component
+public class ClusterMembership {
+    
+    private final boolean enabled;
+    private final String nodeId;
+    private final int virtualNodes;
+    
+    private volatile View view;
+    
+    public ClusterMembership(
+            @Value("${health.multiagent.cluster.enabled:false}") boolean enabled,
+            @Value("${health.multiagent.cluster.node-id:local}") String nodeId,
+            @Value("${health.multiagent.cluster.nodes:}") List<String> nodes,
+            @Value("${health.multiagent.cluster.virtual-nodes:128}") int virtualNodes) {
+        this.enabled = enabled;
+        this.nodeId = nodeId;
+        this.virtualNodes = virtualNodes;
+        
+        Map<String, URI> members = parseNodes(nodes);
+        if (members.isEmpty()) {
+            members.put(nodeId, URI.create("http://localhost"));
+        }
+        update(members);
+    }
+    
+    /**
+     * Membros do cluster e anel correspondente, substituídos em conjunto
+     */
+    private record View(Map<String, URI> members, HashRing ring) {
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public String nodeId() {
+        return nodeId;
+    }
+    
+    public Map<String, URI> members() {
+        return view.members();
+    }
+    
+    /**
+     * Substitui os membros do cluster. O nó local pode ficar de fora (ex.: ao
+     * ser desligado), passando a encaminhar e transferir todas as sessões.
+     *
+     * @throws IllegalArgumentException se a lista estiver vazia
+     */
+    public synchronized void update(Map<String, URI> members) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("Cluster requires at least one node");
+        }
+        Map<String, URI> copy = Map.copyOf(members);
+        view = new View(copy, new HashRing(copy.keySet(), virtualNodes));
+        log.info("Cluster membership on node {}: {}", nodeId, copy.keySet());
+    }
+    
+    /**
+     * Novo sessionId (formato UUID) com token de um arco do nó local
+     */
+    public String newSessionId() {
+        String uuid = UUID.randomUUID().toString();
+        View current = view;
+        if (!enabled || !current.members().containsKey(nodeId)) {
+            return uuid;
+        }
+        int token = current.ring().randomToken(nodeId, ThreadLocalRandom.current());
+        return String.format("%08x", token) + uuid.substring(8);
+    }
+    
+    /**
+     * Nó dono da sessão
+     */
+    public String ownerOf(String sessionId) {
+        if (!enabled) {
+            return nodeId;
+        }
+        HashRing ring = view.ring();
+        Integer token = token(sessionId);
+        return token != null ? ring.owner(token) : ring.ownerOf(sessionId);
+    }
+    
+    public boolean isLocal(String sessionId) {
+        return nodeId.equals(ownerOf(sessionId));
+    }
+    
+    /**
+     * URL base do nó (ex.: http://10.0.0.2:8080), ou nulo se não for membro
+     */
+    public URI urlOf(String member) {
+        return view.members().get(member);
+    }
+    
+    private static Integer token(String sessionId) {
+        if (sessionId.length() < 9 || sessionId.charAt(8) != '-') {
+            return null;
+        }
+        try {
+            return Integer.parseUnsignedInt(sessionId, 0, 8, 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Nós no formato id=url, ex.: node-1=http://10.0.0.1:8080
+     */
+    static Map<String, URI> parseNodes(List<String> nodes) {
+        Map<String, URI> members = new LinkedHashMap<>();
+        for (String node : nodes) {
+            if (node.isBlank()) {
+                continue;
+            }
+            int separator = node.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid cluster node, expected id=url: " + node);
+            }
+            members.put(node.substring(0, separator).trim(), URI.create(node.substring(separator + 1).trim()));
+        }
+        return members;
+    }
+}
@@ -0,0 +1,86 @@
+package com.health.multiagent.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.random.RandomGenerator;
+
+/**
+ * Anel de hash consistente com nós virtuais
+ * Cada nó ocupa virtualNodes posições no anel de 32 bits; um token pertence
+ * ao primeiro nó virtual igual ou posterior a ele. Ao incluir ou remover um
+ * nó, apenas os tokens dos arcos afetados mudam de dono.
+ */
+public final class HashRing {
+    
+    private final NavigableMap<Integer, String> ring = new TreeMap<>();
+    
+    public HashRing(Collection<String> nodeIds, int virtualNodes) {
+        if (nodeIds.isEmpty()) {
+            throw new IllegalArgumentException("Hash ring requires at least one node");
+        }
+        for (String nodeId : nodeIds) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // Colisões entre nós virtuais são resolvidas pelo menor ID, independente da ordem
+                ring.merge(hash(nodeId + "#" + i), nodeId, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        }
+    }
+    
+    /**
+     * Nó dono do token
+     */
+    public String owner(int token) {
+        Map.Entry<Integer, String> entry = ring.ceilingEntry(token);
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+    
+    /**
+     * Nó dono da chave, pelo hash do seu conteúdo
+     */
+    public String ownerOf(String key) {
+        return owner(hash(key));
+    }
+    
+    /**
+     * Token aleatório pertencente ao nó, sorteado em um de seus arcos
+     *
+     * @throws IllegalArgumentException se o nó não fizer parte do anel
+     */
+    public int randomToken(String nodeId, RandomGenerator random) {
+        List<Integer> positions = ring.entrySet().stream()
+            .filter(entry -> entry.getValue().equals(nodeId))
+            .map(Map.Entry::getKey)
+            .toList();
+        if (positions.isEmpty()) {
+            throw new IllegalArgumentException("Node is not part of the ring: " + nodeId);
+        }
+        
+        int position = positions.get(random.nextInt(positions.size()));
+        Integer previous = ring.lowerKey(position);
+        long start = previous != null ? previous : (long) ring.lastKey() - (1L << 32);
+        // Arco (start, position], com volta pelo início do anel no primeiro nó virtual
+        long token = position - random.nextLong(position - start);
+        return (int) token;
+    }
+    
+    /**
+     * FNV-1a de 32 bits seguido da finalização do MurmurHash3 para espalhar os bits
+     */
+    static int hash(String key) {
+        int h = 0x811C9DC5;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
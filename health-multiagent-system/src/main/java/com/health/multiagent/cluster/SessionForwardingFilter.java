@@ -0,0 +1,114 @@
+package com.health.multiagent.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.health.multiagent.model.AssessmentResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Encaminha as requisições de uma sessão ao nó dono dela
+ * Aprovação, status e progresso de lotes (cujo batchId segue o formato do
+ * sessionId) são repassados ao dono e a resposta é devolvida ao
+ * cliente como recebida; o stream SSE é redirecionado (307) para o dono.
+ * Requisições já encaminhadas (cabeçalho X-Health-Forwarded-By) são sempre
+ * atendidas localmente, evitando ciclos durante mudanças de membros.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "health.multiagent.cluster.enabled", havingValue = "true")
+public class SessionForwardingFilter extends OncePerRequestFilter {
+    
+    static final String FORWARDED_HEADER = "X-Health-Forwarded-By";
+    
+    private static final Pattern SESSION_PATH = Pattern.compile(
+        "/health-assessment/(approve|status|stream|symptoms/batch)/([^/]+)");
+    
+    private final ClusterMembership membership;
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper;
+    
+    public SessionForwardingFilter(ClusterMembership membership, RestClient.Builder restClientBuilder,
+                                   ObjectMapper objectMapper) {
+        this.membership = membership;
+        this.restClient = restClientBuilder.build();
+        this.objectMapper = objectMapper;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Matcher matcher = SESSION_PATH.matcher(path);
+        if (!matcher.matches() || request.getHeader(FORWARDED_HEADER) != null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        String sessionId = matcher.group(2);
+        String owner = membership.ownerOf(sessionId);
+        URI ownerUrl = membership.urlOf(owner);
+        if (owner.equals(membership.nodeId()) || ownerUrl == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        
+        String query = request.getQueryString();
+        URI target = URI.create(ownerUrl + path + (query != null ? "?" + query : ""));
+        if ("stream".equals(matcher.group(1))) {
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader(HttpHeaders.LOCATION, target.toString());
+            return;
+        }
+        
+        log.debug("Forwarding {} {} to node {}", request.getMethod(), path, owner);
+        forward(request, response, target, owner);
+    }
+    
+    private void forward(HttpServletRequest request, HttpServletResponse response, URI target, String owner)
+            throws IOException {
+        try {
+            RestClient.RequestBodySpec spec = restClient.method(HttpMethod.valueOf(request.getMethod()))
+                .uri(target)
+                .header(FORWARDED_HEADER, membership.nodeId());
+            if (request.getContentType() != null) {
+                spec.contentType(MediaType.parseMediaType(request.getContentType()))
+                    .body(request.getInputStream().readAllBytes());
+            }
+            spec.exchange((clientRequest, ownerResponse) -> {
+                response.setStatus(ownerResponse.getStatusCode().value());
+                MediaType contentType = ownerResponse.getHeaders().getContentType();
+                if (contentType != null) {
+                    response.setContentType(contentType.toString());
+                }
+                ownerResponse.getBody().transferTo(response.getOutputStream());
+                return null;
+            });
+            
+        } catch (RestClientException e) {
+            log.warn("Unable to forward {} to node {}", target, owner, e);
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), AssessmentResponse.builder()
+                .status("ERROR")
+                .message("Session owner " + owner + " is unavailable")
+                .build());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.health.multiagent.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.service.HealthAssessmentService;
+import com.health.multiagent.service.SessionRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.net.URI;
+import java.util.Set;
+
+/**
+ * Transfere as sessões locais que passaram a pertencer a outro nó
+ * Executado a cada mudança de membros e periodicamente, para as sessões que
+ * estavam em processamento ou cujo novo dono estava indisponível. O estado é
+ * enviado ao novo dono, que retoma o fluxo, e então removido deste nó.
+ * O monitor da sessão é mantido apenas para copiar o estado e marcá-la como
+ * TRANSFERRING; o envio ocorre fora dele, e a marcação impede que uma
+ * aprovação altere a sessão enquanto a cópia está a caminho do novo dono.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "health.multiagent.cluster.enabled", havingValue = "true")
+public class SessionRebalancer {
+    
+    static final String TRANSFERRING = "TRANSFERRING";
+    
+    private static final Set<String> BUSY = Set.of("PROCESSING", "REPROCESSING", TRANSFERRING);
+    
+    private final ClusterMembership membership;
+    private final SessionRegistry sessionRegistry;
+    private final HealthAssessmentService assessmentService;
+    private final RestClient restClient;
+    private final ObjectMapper objectMapper;
+    
+    public SessionRebalancer(ClusterMembership membership, SessionRegistry sessionRegistry,
+                             HealthAssessmentService assessmentService, RestClient.Builder restClientBuilder,
+                             ObjectMapper objectMapper) {
+        this.membership = membership;
+        this.sessionRegistry = sessionRegistry;
+        this.assessmentService = assessmentService;
+        this.restClient = restClientBuilder.build();
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * @return quantidade de sessões transferidas
+     */
+    @Scheduled(fixedDelayString = "${health.multiagent.session.sweep-interval:PT1M}")
+    public synchronized int rebalance() {
+        int transferred = 0;
+        for (String sessionId : sessionRegistry.sessionIds()) {
+            String owner = membership.ownerOf(sessionId);
+            URI ownerUrl = membership.urlOf(owner);
+            if (owner.equals(membership.nodeId()) || ownerUrl == null) {
+                continue;
+            }
+            if (transfer(sessionId, owner, ownerUrl)) {
+                transferred++;
+            }
+        }
+        if (transferred > 0) {
+            log.info("Transferred {} sessions to their new owners", transferred);
+        }
+        return transferred;
+    }
+    
+    private boolean transfer(String sessionId, String owner, URI ownerUrl) {
+        PatientAssessmentState state = sessionRegistry.get(sessionId);
+        if (state == null) {
+            return false;
+        }
+        
+        byte[] snapshot;
+        String previousStatus;
+        synchronized (state) {
+            // Sessões em processamento são transferidas quando o fluxo pausar
+            if (BUSY.contains(state.getStatus())) {
+                return false;
+            }
+            try {
+                snapshot = objectMapper.writeValueAsBytes(state);
+            } catch (JsonProcessingException e) {
+                log.warn("Unable to serialize session {} for transfer: {}", sessionId, e.getMessage());
+                return false;
+            }
+            previousStatus = state.getStatus();
+            state.setStatus(TRANSFERRING);
+        }
+        
+        try {
+            restClient.post()
+                .uri(ownerUrl + ClusterController.SESSIONS_PATH)
+                .header(SessionForwardingFilter.FORWARDED_HEADER, membership.nodeId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot)
+                .retrieve()
+                .toBodilessEntity();
+        } catch (RestClientException e) {
+            log.warn("Unable to transfer session {} to node {}: {}", sessionId, owner, e.getMessage());
+            synchronized (state) {
+                state.setStatus(previousStatus);
+            }
+            return false;
+        }
+        assessmentService.removeSession(sessionId);
+        log.info("Session {} transferred to node {}", sessionId, owner);
+        return true;
+    }
+}
@@ -0,0 +1,29 @@
+package com.health.multiagent.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuração de execução assíncrona das avaliações
+ * Cada fluxo de agentes roda em uma virtual thread própria, liberando
+ * as threads do Tomcat enquanto aguarda as chamadas ao Ollama.
+ * O executor não limita tarefas, pois também executa os ramos paralelos
+ * do grafo e os itens dos lotes; as submissões assíncronas são limitadas
+ * na admissão (health.multiagent.async.max-in-flight) e as dos lotes por
+ * batch.max-concurrency.
+ * Tarefas periódicas (ex.: expiração de sessões) usam o agendador do Spring.
+ */
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService assessmentExecutor() {
+        return Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("assessment-", 0).factory());
+    }
+}
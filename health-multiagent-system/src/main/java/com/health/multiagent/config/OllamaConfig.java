@@ -1,5 +1,16 @@
 package com.health.multiagent.config;
 
+import com.health.multiagent.agent.EMRCommsAgent;
+import com.health.multiagent.agent.ExamAgent;
+import com.health.multiagent.agent.PharmacistAgent;
+import com.health.multiagent.agent.TriageAgent;
+import com.health.multiagent.llm.AdaptiveConcurrencyLimiter;
+import com.health.multiagent.llm.AgentObservationFilter;
+import com.health.multiagent.llm.CachingChatModel;
+import com.health.multiagent.llm.ConcurrencyLimitedChatModel;
+import com.health.multiagent.llm.ConcurrencyLimitedEmbeddingModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationFilter;
 import io.micrometer.observation.ObservationRegistry;
 import org.springframework.ai.chat.memory.ChatMemoryRepository;
 import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
@@ -12,10 +23,16 @@ import org.springframework.ai.ollama.api.OllamaApi;
 import org.springframework.ai.ollama.api.OllamaOptions;
 import org.springframework.ai.ollama.management.ModelManagementOptions;
 import org.springframework.context.annotation.Bean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.beans.factory.annotation.Value;
 
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
 @Configuration
 public class OllamaConfig {
 
@@ -37,6 +54,48 @@ public class OllamaConfig {
     @Value("${spring.ai.ollama.chat.options.presence-penalty}")
     private Double chatPresencePenalty;
 
+    @Value("${health.multiagent.llm-cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${health.multiagent.llm-cache.max-size:500}")
+    private long cacheMaxSize;
+
+    @Value("${health.multiagent.llm-cache.ttl-minutes:60}")
+    private long cacheTtlMinutes;
+
+    @Value("${health.multiagent.llm-limiter.initial-limit:4}")
+    private int limiterInitialLimit;
+
+    @Value("${health.multiagent.llm-limiter.min-limit:1}")
+    private int limiterMinLimit;
+
+    @Value("${health.multiagent.llm-limiter.max-limit:32}")
+    private int limiterMaxLimit;
+
+    @Value("${health.multiagent.llm-limiter.max-queue:200}")
+    private int limiterMaxQueue;
+
+    @Value("${health.multiagent.llm-limiter.max-wait:PT2M}")
+    private Duration limiterMaxWait;
+
+    @Value("${health.multiagent.llm-limiter.aging-interval:PT30S}")
+    private Duration limiterAgingInterval;
+
+    @Value("${health.multiagent.llm-limiter.latency-tolerance:2.0}")
+    private double limiterLatencyTolerance;
+
+    @Value("${health.multiagent.agents.triage.cache-enabled:true}")
+    private boolean triageCacheEnabled;
+
+    @Value("${health.multiagent.agents.pharmacist.cache-enabled:true}")
+    private boolean pharmacistCacheEnabled;
+
+    @Value("${health.multiagent.agents.exam.cache-enabled:true}")
+    private boolean examCacheEnabled;
+
+    @Value("${health.multiagent.agents.emr-comms.cache-enabled:true}")
+    private boolean emrCommsCacheEnabled;
+
 
 
     @Bean
@@ -45,13 +104,32 @@ public class OllamaConfig {
     }
 
 
+    /**
+     * Limitador compartilhado pelas chamadas de chat e de embeddings ao Ollama
+     */
+    @Bean
+    @ConditionalOnProperty(name = "health.multiagent.llm-limiter.enabled", havingValue = "true", matchIfMissing = true)
+    public AdaptiveConcurrencyLimiter llmConcurrencyLimiter(MeterRegistry meterRegistry) {
+        return new AdaptiveConcurrencyLimiter(
+                limiterInitialLimit,
+                limiterMinLimit,
+                limiterMaxLimit,
+                limiterMaxQueue,
+                limiterMaxWait,
+                limiterAgingInterval,
+                limiterLatencyTolerance,
+                meterRegistry);
+    }
+
     @Bean
     @Primary
     public ChatModel chatModel(
             ToolCallingManager toolCallingManager,
             ObservationRegistry observationRegistry,
             ModelManagementOptions modelManagementOptions,
-            OllamaApi ollamaApi) {
+            OllamaApi ollamaApi,
+            MeterRegistry meterRegistry,
+            ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiter) {
         OllamaOptions.Builder builder = OllamaOptions.builder()
                 .model(chatModelName)
                 .temperature(chatTemperature)
@@ -61,12 +139,48 @@ public class OllamaConfig {
                 .presencePenalty(chatPresencePenalty);
 
         OllamaOptions chatOptions = builder.build();
-        return new OllamaChatModel(
+        ChatModel chatModel = new OllamaChatModel(
                 ollamaApi,
                 chatOptions,
                 toolCallingManager,
                 observationRegistry,
                 modelManagementOptions);
+
+        // Limitador abaixo do cache: respostas cacheadas não ocupam vagas
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiter.getIfAvailable();
+        if (limiter != null) {
+            chatModel = new ConcurrencyLimitedChatModel(chatModel, limiter);
+        }
+
+        if (!cacheEnabled) {
+            return chatModel;
+        }
+        return new CachingChatModel(
+                chatModel,
+                cachedAgents(),
+                cacheMaxSize,
+                Duration.ofMinutes(cacheTtlMinutes),
+                meterRegistry);
+    }
+
+    /**
+     * Agentes com cache de respostas habilitado
+     */
+    private Set<String> cachedAgents() {
+        Set<String> agents = new HashSet<>();
+        if (triageCacheEnabled) {
+            agents.add(TriageAgent.NAME);
+        }
+        if (pharmacistCacheEnabled) {
+            agents.add(PharmacistAgent.NAME);
+        }
+        if (examCacheEnabled) {
+            agents.add(ExamAgent.NAME);
+        }
+        if (emrCommsCacheEnabled) {
+            agents.add(EMRCommsAgent.NAME);
+        }
+        return agents;
     }
 
     /**
@@ -75,19 +189,27 @@ public class OllamaConfig {
     @Bean
     public EmbeddingModel embeddingModel(OllamaApi ollamaApi,
                                          ObservationRegistry observationRegistry,
-                                         ModelManagementOptions modelManagementOptions) {
-        return new OllamaEmbeddingModel(
+                                         ModelManagementOptions modelManagementOptions,
+                                         ObjectProvider<AdaptiveConcurrencyLimiter> concurrencyLimiter) {
+        EmbeddingModel embeddingModel = new OllamaEmbeddingModel(
                 ollamaApi,
                 OllamaOptions.builder()
                         .model("nomic-embed-text")
                         .build(),
                 observationRegistry,
                 modelManagementOptions);
+
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiter.getIfAvailable();
+        return limiter != null ? new ConcurrencyLimitedEmbeddingModel(embeddingModel, limiter) : embeddingModel;
     }
 
+    /**
+     * Chave "agent" nas observações do Spring AI; o ObservationRegistry é o
+     * configurado pelo Actuator, com os handlers de métricas registrados
+     */
     @Bean
-    public ObservationRegistry observationRegistry() {
-        return ObservationRegistry.create();
+    public ObservationFilter agentObservationFilter() {
+        return new AgentObservationFilter();
     }
 
     @Bean
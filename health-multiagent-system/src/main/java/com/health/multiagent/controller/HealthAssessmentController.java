@@ -1,22 +1,33 @@
 package com.health.multiagent.controller;
 
+import com.health.multiagent.exception.AssessmentCapacityExceededException;
 import com.health.multiagent.model.*;
+import com.health.multiagent.service.BatchAssessmentService;
 import com.health.multiagent.service.HealthAssessmentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
 
 /**
  * REST Controller para o sistema multi-agente de saúde
  * Endpoints:
- * - POST /symptoms - Submeter sintomas e iniciar avaliação
+ * - POST /symptoms - Submeter sintomas e iniciar avaliação (síncrona ou assíncrona)
+ * - POST /symptoms/batch - Submeter um lote de avaliações processadas em background
+ * - GET /symptoms/batch/{batchId} - Acompanhar o progresso de um lote
  * - POST /approve/{sessionId} - Aprovar/rejeitar ações do agente
  * - GET /status/{sessionId} - Verificar status da avaliação
+ * - GET /stream/{sessionId} - Acompanhar progresso dos agentes via SSE
  */
 @Slf4j
 @RestController
@@ -26,9 +37,12 @@ import org.springframework.web.bind.annotation.*;
 public class HealthAssessmentController {
     
     private final HealthAssessmentService assessmentService;
+    private final BatchAssessmentService batchService;
     
-    public HealthAssessmentController(HealthAssessmentService assessmentService) {
+    public HealthAssessmentController(HealthAssessmentService assessmentService,
+                                      BatchAssessmentService batchService) {
         this.assessmentService = assessmentService;
+        this.batchService = batchService;
     }
     
     /**
@@ -37,12 +51,16 @@ public class HealthAssessmentController {
     @PostMapping("/symptoms")
     @Operation(
         summary = "Submit patient symptoms",
-        description = "Initiates a multi-agent assessment flow based on patient symptoms"
+        description = "Initiates a multi-agent assessment flow based on patient symptoms. "
+            + "With async=true returns 202 Accepted immediately and the flow runs in background. "
+            + "Returns 503 Service Unavailable when too many assessments are in progress"
     )
     public ResponseEntity<AssessmentResponse> submitSymptoms(
-            @Valid @RequestBody SymptomsRequest request) {
+            @Valid @RequestBody SymptomsRequest request,
+            @Parameter(description = "Process the assessment asynchronously")
+            @RequestParam(defaultValue = "false") boolean async) {
         
-        log.info("Received symptoms submission for patient: {}", request.getPatientId());
+        log.info("Received symptoms submission for patient: {} (async: {})", request.getPatientId(), async);
         
         try {
             // Converter request para estado inicial
@@ -53,6 +71,11 @@ public class HealthAssessmentController {
                 .currentMedications(request.getCurrentMedications())
                 .build();
             
+            if (async) {
+                PatientAssessmentState accepted = assessmentService.submitAssessment(initialState);
+                return buildAcceptedResponse(accepted);
+            }
+            
             // Iniciar avaliação
             PatientAssessmentState result = assessmentService.startAssessment(initialState);
             
@@ -61,6 +84,10 @@ public class HealthAssessmentController {
             
             return ResponseEntity.ok(response);
             
+        } catch (AssessmentCapacityExceededException e) {
+            log.warn("Symptoms submission rejected: {}", e.getMessage());
+            return capacityExceeded(e);
+            
         } catch (Exception e) {
             log.error("Error processing symptoms submission", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -71,6 +98,55 @@ public class HealthAssessmentController {
         }
     }
     
+    /**
+     * Endpoint para submissão de sintomas em lote
+     */
+    @PostMapping("/symptoms/batch")
+    @Operation(
+        summary = "Submit a batch of patient symptoms",
+        description = "Returns 202 Accepted with a batch ID immediately. Items run through the agent flow "
+            + "in background, limited by health.multiagent.batch.max-concurrency. "
+            + "An empty batch or one over health.multiagent.batch.max-items returns 400 with an error message"
+    )
+    public ResponseEntity<?> submitBatch(@Valid @RequestBody BatchSymptomsRequest request) {
+        
+        log.info("Received batch submission with {} items", request.getItems().size());
+        
+        try {
+            BatchStatusResponse accepted = batchService.submitBatch(request.getItems());
+            URI statusLocation = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/health-assessment/symptoms/batch/{batchId}")
+                .buildAndExpand(accepted.getBatchId())
+                .toUri();
+            
+            return ResponseEntity.accepted().location(statusLocation).body(accepted);
+            
+        } catch (IllegalArgumentException e) {
+            log.warn("Batch rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(AssessmentResponse.builder()
+                    .status("ERROR")
+                    .message(e.getMessage())
+                    .build());
+        }
+    }
+    
+    /**
+     * Endpoint para acompanhar o progresso de um lote
+     */
+    @GetMapping("/symptoms/batch/{batchId}")
+    @Operation(
+        summary = "Get batch progress",
+        description = "Per-item status and session IDs of a batch submission"
+    )
+    public ResponseEntity<BatchStatusResponse> getBatchStatus(
+            @Parameter(description = "Batch ID") @PathVariable String batchId) {
+        
+        return batchService.getBatchStatus(batchId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+    
     /**
      * Endpoint para aprovação/rejeição de ações
      */
@@ -90,7 +166,8 @@ public class HealthAssessmentController {
             PatientAssessmentState result = assessmentService.processApproval(
                 sessionId, 
                 approval.getDecision(), 
-                approval.getComments()
+                approval.getComments(),
+                approval.getTargetAgents()
             );
             
             AssessmentResponse response = buildResponse(result);
@@ -104,7 +181,12 @@ public class HealthAssessmentController {
                     .status("ERROR")
                     .message("Session not found: " + sessionId)
                     .build());
-                    
+            
+        } catch (AssessmentCapacityExceededException e) {
+            // Sessão gravada no store que não pôde ser restaurada com o registro cheio
+            log.warn("Approval rejected for session {}: {}", sessionId, e.getMessage());
+            return capacityExceeded(e);
+            
         } catch (IllegalStateException e) {
             log.error("Invalid state for approval", e);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -112,7 +194,7 @@ public class HealthAssessmentController {
                     .status("ERROR")
                     .message(e.getMessage())
                     .build());
-                    
+            
         } catch (Exception e) {
             log.error("Error processing approval", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -149,7 +231,7 @@ public class HealthAssessmentController {
                     .status("ERROR")
                     .message("Session not found: " + sessionId)
                     .build());
-                    
+            
         } catch (Exception e) {
             log.error("Error retrieving status", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -160,6 +242,59 @@ public class HealthAssessmentController {
         }
     }
     
+    /**
+     * Endpoint SSE para acompanhar o progresso da avaliação
+     */
+    @GetMapping(path = "/stream/{sessionId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(
+        summary = "Stream assessment progress",
+        description = "Server-Sent Events with agent start/finish, status changes and, when enabled, LLM tokens"
+    )
+    public ResponseEntity<SseEmitter> streamProgress(
+            @Parameter(description = "Session ID") @PathVariable String sessionId) {
+        
+        log.info("SSE subscription for session: {}", sessionId);
+        
+        try {
+            return ResponseEntity.ok(assessmentService.streamSession(sessionId));
+            
+        } catch (IllegalArgumentException e) {
+            log.error("Session not found: {}", sessionId, e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+    
+    /**
+     * Constrói resposta 202 Accepted para submissões assíncronas
+     */
+    private ResponseEntity<AssessmentResponse> buildAcceptedResponse(PatientAssessmentState state) {
+        URI statusLocation = ServletUriComponentsBuilder.fromCurrentContextPath()
+            .path("/health-assessment/status/{sessionId}")
+            .buildAndExpand(state.getSessionId())
+            .toUri();
+        
+        return ResponseEntity.accepted()
+            .location(statusLocation)
+            .body(AssessmentResponse.builder()
+                .sessionId(state.getSessionId())
+                .status(state.getStatus())
+                .currentAgent(state.getCurrentAgent())
+                .message("Assessment accepted. Track progress via GET /status/" + state.getSessionId())
+                .build());
+    }
+    
+    /**
+     * Constrói resposta 503 para avaliações recusadas por capacidade
+     */
+    private ResponseEntity<AssessmentResponse> capacityExceeded(AssessmentCapacityExceededException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "30")
+            .body(AssessmentResponse.builder()
+                .status("REJECTED")
+                .message(e.getMessage())
+                .build());
+    }
+    
     /**
      * Constrói resposta a partir do estado
      */
@@ -0,0 +1,14 @@
+package com.health.multiagent.exception;
+
+/**
+ * Avaliação recusada por excesso de avaliações em andamento
+ * Lançada quando as vagas assíncronas se esgotam ou quando o registro de
+ * sessões está cheio apenas de sessões em processamento. A sessão não chega
+ * a ser registrada; o cliente pode tentar novamente.
+ */
+public class AssessmentCapacityExceededException extends RuntimeException {
+    
+    public AssessmentCapacityExceededException(String message) {
+        super(message);
+    }
+}
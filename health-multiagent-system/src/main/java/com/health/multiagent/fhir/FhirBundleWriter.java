@@ -0,0 +1,246 @@
+package com.health.multiagent.fhir;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.health.multiagent.model.FhirDocument;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.pharmacy.MedicationNormalizer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Montagem determinística do Bundle FHIR (R4) da avaliação
+ * Os recursos são escritos diretamente a partir do PatientAssessmentState
+ * com o JsonGenerator do Jackson, sem árvore intermediária e sem LLM:
+ * - Patient: identificador do paciente
+ * - ClinicalImpression: sintomas, risco, interações, contraindicações e recomendações
+ * - MedicationStatement: uma por medicação, com o id canônico e a dose
+ * - ServiceRequest: um por exame recomendado, com a prioridade do Exam Agent
+ * Os fullUrl (urn:uuid) são derivados do sessionId, de modo que o mesmo
+ * estado gera sempre o mesmo documento. O JSON é gerado direto em UTF-8 e
+ * guardado como FhirDocument, sem passar por String.
+ */
+public final class FhirBundleWriter {
+    
+    static final String PATIENT_ID_SYSTEM = "urn:health-multiagent:patient-id";
+    static final String DRUG_SYSTEM = "urn:health-multiagent:drug";
+    
+    private static final String SNOMED = "http://snomed.info/sct";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private FhirBundleWriter() {
+    }
+    
+    /**
+     * Bundle do tipo collection com os recursos da avaliação
+     *
+     * @param timestamp instante de geração, registrado em Bundle.timestamp e ClinicalImpression.date
+     */
+    public static FhirDocument write(PatientAssessmentState state, Instant timestamp) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            String time = DateTimeFormatter.ISO_INSTANT.format(timestamp.truncatedTo(ChronoUnit.SECONDS));
+            String patientUrl = fullUrl(state, "Patient", 0);
+            
+            json.writeStartObject();
+            json.writeStringField("resourceType", "Bundle");
+            writeIfPresent(json, "id", state.getSessionId());
+            json.writeStringField("type", "collection");
+            json.writeStringField("timestamp", time);
+            json.writeArrayFieldStart("entry");
+            
+            writePatient(json, state, patientUrl);
+            writeClinicalImpression(json, state, patientUrl, time);
+            List<String> medications = state.getCurrentMedications();
+            for (int i = 0; medications != null && i < medications.size(); i++) {
+                writeMedicationStatement(json, state, patientUrl, i);
+            }
+            int exam = 0;
+            for (String labExam : nonNull(state.getRecommendedLabExams())) {
+                writeServiceRequest(json, state, patientUrl, exam++, labExam, "108252007", "Laboratory procedure");
+            }
+            for (String imagingExam : nonNull(state.getRecommendedImagingExams())) {
+                writeServiceRequest(json, state, patientUrl, exam++, imagingExam, "363679005", "Imaging");
+            }
+            
+            json.writeEndArray();
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write FHIR bundle", e);
+        }
+        return FhirDocument.ofUtf8(out.toByteArray());
+    }
+    
+    private static void writePatient(JsonGenerator json, PatientAssessmentState state, String patientUrl)
+            throws IOException {
+        startEntry(json, patientUrl, "Patient");
+        if (state.getPatientId() != null) {
+            json.writeArrayFieldStart("identifier");
+            json.writeStartObject();
+            json.writeStringField("system", PATIENT_ID_SYSTEM);
+            json.writeStringField("value", state.getPatientId());
+            json.writeEndObject();
+            json.writeEndArray();
+        }
+        endEntry(json);
+    }
+    
+    private static void writeClinicalImpression(JsonGenerator json, PatientAssessmentState state, String patientUrl,
+                                                String time) throws IOException {
+        startEntry(json, fullUrl(state, "ClinicalImpression", 0), "ClinicalImpression");
+        json.writeStringField("status", "completed");
+        writeReference(json, "subject", patientUrl);
+        json.writeStringField("date", time);
+        writeIfPresent(json, "description", state.getSymptoms());
+        writeIfPresent(json, "summary", state.getSymptomsSummary());
+        
+        json.writeArrayFieldStart("finding");
+        writeFinding(json, "Nível de risco: " + (state.getRiskLevel() != null ? state.getRiskLevel() : "UNKNOWN")
+            + (Boolean.TRUE.equals(state.getUrgent()) ? " (urgente)" : ""), "Triage");
+        for (String interaction : nonNull(state.getDrugInteractions())) {
+            writeFinding(json, "Interação medicamentosa: " + interaction, "Pharmacist");
+        }
+        for (String contraindication : nonNull(state.getContraindications())) {
+            writeFinding(json, "Contraindicação: " + contraindication, "Pharmacist");
+        }
+        json.writeEndArray();
+        
+        json.writeArrayFieldStart("note");
+        writeNote(json, "Histórico médico", state.getMedicalHistory());
+        writeNote(json, "Recomendações da triagem", state.getTriageRecommendations());
+        writeNote(json, "Recomendações farmacêuticas", state.getPharmacistRecommendations());
+        writeNote(json, "Justificativa dos exames", state.getExamRecommendations());
+        json.writeEndArray();
+        endEntry(json);
+    }
+    
+    private static void writeMedicationStatement(JsonGenerator json, PatientAssessmentState state, String patientUrl,
+                                                 int index) throws IOException {
+        String medication = state.getCurrentMedications().get(index);
+        List<String> ids = state.getMedicationIds();
+        String canonicalId = ids != null && ids.size() > index ? ids.get(index) : null;
+        
+        startEntry(json, fullUrl(state, "MedicationStatement", index), "MedicationStatement");
+        json.writeStringField("status", "active");
+        json.writeObjectFieldStart("medicationCodeableConcept");
+        String drugId = MedicationNormalizer.drugId(canonicalId);
+        if (drugId != null) {
+            json.writeArrayFieldStart("coding");
+            json.writeStartObject();
+            json.writeStringField("system", DRUG_SYSTEM);
+            json.writeStringField("code", drugId);
+            json.writeEndObject();
+            json.writeEndArray();
+        }
+        json.writeStringField("text", medication);
+        json.writeEndObject();
+        writeReference(json, "subject", patientUrl);
+        String dose = MedicationNormalizer.dose(canonicalId);
+        if (dose != null) {
+            json.writeArrayFieldStart("dosage");
+            json.writeStartObject();
+            json.writeStringField("text", dose);
+            json.writeEndObject();
+            json.writeEndArray();
+        }
+        endEntry(json);
+    }
+    
+    private static void writeServiceRequest(JsonGenerator json, PatientAssessmentState state, String patientUrl,
+                                            int index, String exam, String categoryCode, String categoryDisplay)
+            throws IOException {
+        startEntry(json, fullUrl(state, "ServiceRequest", index), "ServiceRequest");
+        json.writeStringField("status", "draft");
+        json.writeStringField("intent", "proposal");
+        json.writeArrayFieldStart("category");
+        json.writeStartObject();
+        json.writeArrayFieldStart("coding");
+        json.writeStartObject();
+        json.writeStringField("system", SNOMED);
+        json.writeStringField("code", categoryCode);
+        json.writeStringField("display", categoryDisplay);
+        json.writeEndObject();
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeEndArray();
+        json.writeStringField("priority", priority(state.getExamPriority()));
+        json.writeObjectFieldStart("code");
+        json.writeStringField("text", exam);
+        json.writeEndObject();
+        writeReference(json, "subject", patientUrl);
+        endEntry(json);
+    }
+    
+    private static void startEntry(JsonGenerator json, String fullUrl, String resourceType) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("fullUrl", fullUrl);
+        json.writeObjectFieldStart("resource");
+        json.writeStringField("resourceType", resourceType);
+    }
+    
+    private static void endEntry(JsonGenerator json) throws IOException {
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+    
+    private static void writeReference(JsonGenerator json, String field, String url) throws IOException {
+        json.writeObjectFieldStart(field);
+        json.writeStringField("reference", url);
+        json.writeEndObject();
+    }
+    
+    private static void writeFinding(JsonGenerator json, String text, String basis) throws IOException {
+        json.writeStartObject();
+        json.writeObjectFieldStart("itemCodeableConcept");
+        json.writeStringField("text", text);
+        json.writeEndObject();
+        json.writeStringField("basis", basis);
+        json.writeEndObject();
+    }
+    
+    private static void writeNote(JsonGenerator json, String title, String text) throws IOException {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        json.writeStartObject();
+        json.writeStringField("text", title + ": " + text);
+        json.writeEndObject();
+    }
+    
+    private static void writeIfPresent(JsonGenerator json, String field, String value) throws IOException {
+        if (value != null) {
+            json.writeStringField(field, value);
+        }
+    }
+    
+    /**
+     * Prioridade do Exam Agent (ROUTINE, URGENT, EMERGENCY) no valor FHIR de request-priority
+     */
+    static String priority(String examPriority) {
+        if ("EMERGENCY".equalsIgnoreCase(examPriority)) {
+            return "stat";
+        }
+        return "URGENT".equalsIgnoreCase(examPriority) ? "urgent" : "routine";
+    }
+    
+    /**
+     * urn:uuid estável para o recurso da sessão
+     */
+    private static String fullUrl(PatientAssessmentState state, String resourceType, int index) {
+        String name = state.getSessionId() + "/" + resourceType + "/" + index;
+        return "urn:uuid:" + UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static List<String> nonNull(List<String> values) {
+        return values != null ? values : List.of();
+    }
+}
@@ -0,0 +1,348 @@
+package com.health.multiagent.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Limite de chamadas simultâneas ajustado pela latência observada (AIMD)
+ * A latência de referência é uma média móvel exponencial das chamadas de
+ * cada agente: o tamanho das respostas varia muito entre agentes, e uma
+ * referência única faria as chamadas longas parecerem congestionamento. Uma
+ * chamada que falha ou demora mais que latency-tolerance vezes a referência
+ * indica fila no servidor e reduz o limite multiplicativamente; chamadas
+ * dentro da tolerância com o limite em uso aumentam o limite em 1/limite
+ * (cerca de +1 a cada limite chamadas). Chamadas acima do limite aguardam
+ * até max-wait; com a fila em max-queue, são recusadas na hora.
+ * A fila é atendida por prioridade do paciente (CallPriority) e, na mesma
+ * prioridade, por ordem de chegada. Cada aging-interval de espera promove a
+ * chamada em um nível, evitando que pacientes de baixo risco esperem
+ * indefinidamente sob carga contínua de casos graves.
+ */
+@Slf4j
+public class AdaptiveConcurrencyLimiter {
+    
+    static final String LIMIT_METRIC = "health.llm.concurrency.limit";
+    static final String IN_FLIGHT_METRIC = "health.llm.concurrency.in_flight";
+    static final String QUEUE_METRIC = "health.llm.concurrency.queue";
+    static final String REJECTIONS_METRIC = "health.llm.concurrency.rejections";
+    static final String WAIT_METRIC = "health.llm.concurrency.wait";
+    static final String CALL_DURATION_METRIC = "health.llm.call.duration";
+    
+    // Referência das chamadas sem agente (ex.: fora do fluxo de avaliação)
+    static final String DEFAULT_AGENT = "default";
+    
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double BASELINE_SMOOTHING = 0.1;
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final long agingNanos;
+    private final double latencyTolerance;
+    private final LongSupplier nanoClock;
+    private final MeterRegistry meterRegistry;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private final Map<String, Double> baselineNanos = new HashMap<>();
+    
+    private double limit;
+    private int inFlight;
+    private long sequence;
+    
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueue, Duration maxWait,
+                                      Duration agingInterval, double latencyTolerance, MeterRegistry meterRegistry) {
+        this(initialLimit, minLimit, maxLimit, maxQueue, maxWait, agingInterval, latencyTolerance, meterRegistry,
+            System::nanoTime);
+    }
+    
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int maxQueue, Duration maxWait,
+                               Duration agingInterval, double latencyTolerance, MeterRegistry meterRegistry,
+                               LongSupplier nanoClock) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Expected 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.agingNanos = Math.max(1, agingInterval.toNanos());
+        this.latencyTolerance = latencyTolerance;
+        this.meterRegistry = meterRegistry;
+        this.nanoClock = nanoClock;
+        
+        Gauge.builder(LIMIT_METRIC, this, AdaptiveConcurrencyLimiter::limit)
+            .description("Current adaptive limit of concurrent LLM calls")
+            .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_METRIC, this, AdaptiveConcurrencyLimiter::inFlight)
+            .description("LLM calls in progress")
+            .register(meterRegistry);
+        Gauge.builder(QUEUE_METRIC, this, AdaptiveConcurrencyLimiter::queued)
+            .description("LLM calls waiting for the concurrency limit")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Chamada autorizada pelo limitador; deve ser liberada uma única vez
+     */
+    public final class Permit {
+        
+        private final String agent;
+        private final CallPriority priority;
+        private final long requestedNanos;
+        private final long startNanos = nanoClock.getAsLong();
+        
+        private Permit(String agent, CallPriority priority, long requestedNanos) {
+            this.agent = agent;
+            this.priority = priority;
+            this.requestedNanos = requestedNanos;
+        }
+        
+        /**
+         * Chamada concluída: a latência é usada para ajustar o limite
+         */
+        public void release() {
+            long now = nanoClock.getAsLong();
+            recordDuration(now);
+            onRelease(agent, now - startNanos, Outcome.SUCCESS);
+        }
+        
+        /**
+         * Chamada com erro: reduz o limite
+         */
+        public void drop() {
+            long now = nanoClock.getAsLong();
+            recordDuration(now);
+            onRelease(agent, now - startNanos, Outcome.DROPPED);
+        }
+        
+        /**
+         * Chamada cancelada pelo cliente: libera a vaga sem ajustar o limite
+         */
+        public void cancel() {
+            onRelease(agent, 0, Outcome.CANCELLED);
+        }
+        
+        /**
+         * Duração da chamada incluindo a espera na fila
+         */
+        private void recordDuration(long now) {
+            timer(CALL_DURATION_METRIC, "LLM call duration including queueing, by patient priority", priority)
+                .record(now - requestedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    /**
+     * Chamada aguardando vaga
+     */
+    private static final class Waiter {
+        
+        private final CallPriority priority;
+        private final long enqueuedNanos;
+        private final long sequence;
+        private final Condition granted;
+        private boolean admitted;
+        
+        private Waiter(CallPriority priority, long enqueuedNanos, long sequence, Condition granted) {
+            this.priority = priority;
+            this.enqueuedNanos = enqueuedNanos;
+            this.sequence = sequence;
+            this.granted = granted;
+        }
+    }
+    
+    /**
+     * Aguarda uma vaga para uma chamada sem agente associado
+     *
+     * @throws ConcurrencyLimitExceededException se a fila estiver cheia ou a espera exceder max-wait
+     */
+    public Permit acquire(CallPriority priority) {
+        return acquire(DEFAULT_AGENT, priority);
+    }
+    
+    /**
+     * Aguarda uma vaga dentro do limite; a latência da chamada é comparada à referência do agente
+     *
+     * @throws ConcurrencyLimitExceededException se a fila estiver cheia ou a espera exceder max-wait
+     */
+    public Permit acquire(String agent, CallPriority priority) {
+        String baselineKey = agent != null ? agent : DEFAULT_AGENT;
+        long requestedNanos = nanoClock.getAsLong();
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                return admitted(baselineKey, priority, requestedNanos);
+            }
+            if (waiters.size() >= maxQueue) {
+                throw rejected("queue_full", "LLM concurrency limit reached: " + inFlight
+                    + " calls in progress and " + waiters.size() + " waiting");
+            }
+            
+            Waiter waiter = new Waiter(priority, requestedNanos, sequence++, lock.newCondition());
+            waiters.add(waiter);
+            try {
+                long remaining = maxWaitNanos;
+                while (!waiter.admitted) {
+                    if (remaining <= 0) {
+                        waiters.remove(waiter);
+                        throw rejected("timeout", "Timed out after " + Duration.ofNanos(maxWaitNanos)
+                            + " waiting for the LLM concurrency limit (" + (int) limit + ")");
+                    }
+                    remaining = waiter.granted.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (waiter.admitted) {
+                    inFlight--;
+                    admitWaiters();
+                } else {
+                    waiters.remove(waiter);
+                }
+                throw new ConcurrencyLimitExceededException("Interrupted while waiting for the LLM concurrency limit");
+            }
+            return admitted(baselineKey, priority, requestedNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int queued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private Permit admitted(String agent, CallPriority priority, long requestedNanos) {
+        Permit permit = new Permit(agent, priority, requestedNanos);
+        timer(WAIT_METRIC, "Time LLM calls waited for the concurrency limit, by patient priority", priority)
+            .record(permit.startNanos - requestedNanos, TimeUnit.NANOSECONDS);
+        return permit;
+    }
+    
+    /**
+     * Libera vagas para as chamadas em espera de maior prioridade efetiva
+     */
+    private void admitWaiters() {
+        while (inFlight < (int) limit && !waiters.isEmpty()) {
+            Waiter next = nextWaiter();
+            waiters.remove(next);
+            next.admitted = true;
+            inFlight++;
+            next.granted.signal();
+        }
+    }
+    
+    /**
+     * Maior prioridade após o envelhecimento; empate resolvido pela ordem de chegada
+     */
+    private Waiter nextWaiter() {
+        long now = nanoClock.getAsLong();
+        Waiter next = null;
+        long nextRank = Long.MAX_VALUE;
+        for (Waiter waiter : waiters) {
+            long rank = waiter.priority.ordinal() - (now - waiter.enqueuedNanos) / agingNanos;
+            if (rank < nextRank || rank == nextRank && waiter.sequence < next.sequence) {
+                next = waiter;
+                nextRank = rank;
+            }
+        }
+        return next;
+    }
+    
+    private enum Outcome {
+        SUCCESS,
+        DROPPED,
+        CANCELLED
+    }
+    
+    private void onRelease(String agent, long latencyNanos, Outcome outcome) {
+        lock.lock();
+        try {
+            int previousLimit = (int) limit;
+            // Utilização medida antes de liberar a vaga desta chamada
+            boolean saturated = inFlight * 2 >= limit;
+            inFlight--;
+            if (outcome != Outcome.CANCELLED) {
+                adjustLimit(agent, latencyNanos, outcome == Outcome.DROPPED, saturated);
+            }
+            if ((int) limit != previousLimit) {
+                log.debug("LLM concurrency limit {} -> {} ({} latency {} ms, baseline {} ms)", previousLimit,
+                    (int) limit, agent, TimeUnit.NANOSECONDS.toMillis(latencyNanos),
+                    TimeUnit.NANOSECONDS.toMillis(baselineNanos.getOrDefault(agent, 0.0).longValue()));
+            }
+            admitWaiters();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void adjustLimit(String agent, long latencyNanos, boolean dropped, boolean saturated) {
+        double baseline = baselineNanos.getOrDefault(agent, 0.0);
+        if (baseline == 0 && !dropped) {
+            baseline = latencyNanos;
+        }
+        if (dropped || latencyNanos > baseline * latencyTolerance) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+        } else if (saturated) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        if (!dropped) {
+            baselineNanos.put(agent, baseline + (latencyNanos - baseline) * BASELINE_SMOOTHING);
+        }
+    }
+    
+    private Timer timer(String name, String description, CallPriority priority) {
+        return Timer.builder(name)
+            .description(description)
+            .tag("priority", priority.tag())
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+    }
+    
+    private ConcurrencyLimitExceededException rejected(String reason, String message) {
+        Counter.builder(REJECTIONS_METRIC)
+            .description("LLM calls rejected by the concurrency limiter")
+            .tag("reason", reason)
+            .register(meterRegistry)
+            .increment();
+        log.warn(message);
+        return new ConcurrencyLimitExceededException(message);
+    }
+}
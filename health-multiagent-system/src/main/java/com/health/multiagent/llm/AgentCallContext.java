@@ -0,0 +1,59 @@
+package com.health.multiagent.llm;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Agente responsável pela chamada ao LLM em andamento na thread atual
+ * Definido pelo AgentChatInvoker e consultado pelos decoradores do ChatModel
+ * para aplicar configurações, prioridade e métricas por agente.
+ */
+public final class AgentCallContext {
+    
+    private static final ThreadLocal<Context> CURRENT = new ThreadLocal<>();
+    
+    private AgentCallContext() {
+    }
+    
+    private record Context(String agent, CallPriority priority) {
+    }
+    
+    /**
+     * Executa a chamada associada ao agente informado
+     */
+    public static <T> T call(String agent, Supplier<T> call) {
+        return call(agent, CallPriority.MEDIUM, call);
+    }
+    
+    /**
+     * Executa a chamada associada ao agente e à prioridade do paciente
+     */
+    public static <T> T call(String agent, CallPriority priority, Supplier<T> call) {
+        Context previous = CURRENT.get();
+        CURRENT.set(new Context(agent, priority));
+        try {
+            return call.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+    
+    /**
+     * Agente da chamada atual, se houver
+     */
+    public static Optional<String> currentAgent() {
+        return Optional.ofNullable(CURRENT.get()).map(Context::agent);
+    }
+    
+    /**
+     * Prioridade da chamada atual; MEDIUM fora de uma chamada de agente
+     */
+    public static CallPriority currentPriority() {
+        Context context = CURRENT.get();
+        return context != null ? context.priority() : CallPriority.MEDIUM;
+    }
+}
@@ -0,0 +1,28 @@
+package com.health.multiagent.llm;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationFilter;
+import org.springframework.ai.model.observation.ModelObservationContext;
+
+/**
+ * Acrescenta o agente da chamada atual às observações do Spring AI
+ * Com a chave "agent", a latência das chamadas ao modelo (gen_ai.client.operation)
+ * e os tokens de prompt e de resposta informados pelo Ollama
+ * (gen_ai.client.token.usage) ficam disponíveis por agente.
+ */
+public class AgentObservationFilter implements ObservationFilter {
+    
+    public static final String AGENT_KEY = "agent";
+    
+    private static final String NO_AGENT = "none";
+    
+    @Override
+    public Observation.Context map(Observation.Context context) {
+        if (context instanceof ModelObservationContext<?, ?>) {
+            context.addLowCardinalityKeyValue(
+                KeyValue.of(AGENT_KEY, AgentCallContext.currentAgent().orElse(NO_AGENT)));
+        }
+        return context;
+    }
+}
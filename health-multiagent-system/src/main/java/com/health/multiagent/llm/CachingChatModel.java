@@ -0,0 +1,172 @@
+package com.health.multiagent.llm;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.MessageAggregator;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.ModelOptionsUtils;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Cache de respostas do LLM por correspondência exata
+ * Decorador do ChatModel cuja chave é o hash SHA-256 das mensagens do prompt
+ * e das opções do modelo. Apenas chamadas de agentes habilitados são
+ * cacheadas; as entradas expiram por tempo e por tamanho máximo.
+ * Chamadas simultâneas com o mesmo prompt aguardam uma única execução: a
+ * primeira registra uma resposta pendente e chama o LLM fora do cache, sem
+ * reter locks do Caffeine durante a espera no limitador e a geração.
+ */
+@Slf4j
+public class CachingChatModel implements ChatModel {
+    
+    static final String REQUESTS_METRIC = "health.llm.cache.requests";
+    
+    private final ChatModel delegate;
+    private final Set<String> enabledAgents;
+    private final AsyncCache<String, ChatResponse> cache;
+    private final MeterRegistry meterRegistry;
+    private final String defaultOptionsJson;
+    
+    public CachingChatModel(ChatModel delegate, Set<String> enabledAgents,
+                            long maxSize, Duration ttl, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.enabledAgents = Set.copyOf(enabledAgents);
+        this.meterRegistry = meterRegistry;
+        this.defaultOptionsJson = optionsJson(delegate.getDefaultOptions());
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), "llm-response");
+    }
+    
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        String agent = AgentCallContext.currentAgent().orElse(null);
+        if (!isCacheable(agent)) {
+            return delegate.call(prompt);
+        }
+        
+        CompletableFuture<ChatResponse> pending = new CompletableFuture<>();
+        CompletableFuture<ChatResponse> future = cache.get(cacheKey(prompt), (key, executor) -> pending);
+        if (future != pending) {
+            // Falha ou resposta vazia da chamada em andamento: executa a própria chamada
+            ChatResponse cached = future.exceptionally(e -> null).join();
+            record(agent, cached != null);
+            return cached != null ? cached : delegate.call(prompt);
+        }
+        
+        record(agent, false);
+        try {
+            ChatResponse result = delegate.call(prompt);
+            // Resultado nulo remove a entrada do cache
+            pending.complete(hasText(result) ? result : null);
+            return result;
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+    
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        String agent = AgentCallContext.currentAgent().orElse(null);
+        if (!isCacheable(agent)) {
+            return delegate.stream(prompt);
+        }
+        
+        String key = cacheKey(prompt);
+        // Sem aguardar uma chamada em andamento: o streaming começa imediatamente
+        CompletableFuture<ChatResponse> future = cache.getIfPresent(key);
+        ChatResponse cached = future != null && future.isDone() ? future.exceptionally(e -> null).join() : null;
+        record(agent, cached != null);
+        if (cached != null) {
+            // Resposta completa emitida como um único fragmento
+            return Flux.just(cached);
+        }
+        
+        return new MessageAggregator().aggregate(delegate.stream(prompt), response -> {
+            if (hasText(response)) {
+                cache.put(key, CompletableFuture.completedFuture(response));
+            }
+        });
+    }
+    
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+    
+    private boolean isCacheable(String agent) {
+        return agent != null && enabledAgents.contains(agent);
+    }
+    
+    private void record(String agent, boolean hit) {
+        log.debug("LLM cache {} for agent {}", hit ? "hit" : "miss", agent);
+        Counter.builder(REQUESTS_METRIC)
+            .description("LLM calls looked up in the exact-match response cache")
+            .tag("agent", agent)
+            .tag("result", hit ? "hit" : "miss")
+            .register(meterRegistry)
+            .increment();
+    }
+    
+    /**
+     * Hash das mensagens (tipo e texto) e das opções padrão e da requisição
+     */
+    private String cacheKey(Prompt prompt) {
+        MessageDigest digest = sha256();
+        for (Message message : prompt.getInstructions()) {
+            update(digest, message.getMessageType().name());
+            update(digest, message.getText());
+        }
+        update(digest, defaultOptionsJson);
+        update(digest, optionsJson(prompt.getOptions()));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separador para que ("ab", "c") e ("a", "bc") gerem chaves distintas
+        digest.update((byte) 0);
+    }
+    
+    private static String optionsJson(ChatOptions options) {
+        return options != null ? ModelOptionsUtils.toJsonString(options) : null;
+    }
+    
+    private static boolean hasText(ChatResponse response) {
+        return response != null
+            && response.getResult() != null
+            && response.getResult().getOutput() != null
+            && response.getResult().getOutput().getText() != null
+            && !response.getResult().getOutput().getText().isBlank();
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.health.multiagent.llm;
+
+import java.util.Locale;
+
+/**
+ * Prioridade de uma chamada ao LLM, derivada do risco do paciente
+ * Em ordem decrescente de prioridade. Sessões ainda sem triagem (a própria
+ * chamada do Triage) entram como MEDIUM: à frente dos agentes de pacientes
+ * LOW e atrás dos pacientes já classificados como HIGH ou CRITICAL.
+ */
+public enum CallPriority {
+    CRITICAL,
+    HIGH,
+    MEDIUM,
+    LOW;
+    
+    /**
+     * Prioridade do paciente; casos urgentes são tratados como CRITICAL
+     */
+    public static CallPriority of(String riskLevel, Boolean urgent) {
+        if (Boolean.TRUE.equals(urgent)) {
+            return CRITICAL;
+        }
+        if (riskLevel == null) {
+            return MEDIUM;
+        }
+        return switch (riskLevel.trim().toUpperCase(Locale.ROOT)) {
+            case "CRITICAL" -> CRITICAL;
+            case "HIGH" -> HIGH;
+            case "LOW" -> LOW;
+            default -> MEDIUM;
+        };
+    }
+    
+    /**
+     * Valor da tag de métricas
+     */
+    public String tag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
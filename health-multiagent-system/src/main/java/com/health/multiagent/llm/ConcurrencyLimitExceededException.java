@@ -0,0 +1,11 @@
+package com.health.multiagent.llm;
+
+/**
+ * Chamada ao LLM recusada pelo limitador de concorrência (fila cheia ou espera esgotada)
+ */
+public class ConcurrencyLimitExceededException extends RuntimeException {
+    
+    public ConcurrencyLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,64 @@
+package com.health.multiagent.llm;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Decorador do ChatModel que limita as chamadas simultâneas ao Ollama
+ * Aplicado abaixo do cache de respostas, de modo que acertos do cache não
+ * ocupam vagas. A fila de espera respeita a prioridade do paciente da
+ * chamada (AgentCallContext), e a latência é comparada à referência do
+ * agente. No streaming, a vaga é ocupada na inscrição e liberada ao
+ * término do fluxo.
+ */
+public class ConcurrencyLimitedChatModel implements ChatModel {
+    
+    private final ChatModel delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+    
+    public ConcurrencyLimitedChatModel(ChatModel delegate, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+    
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(
+            AgentCallContext.currentAgent().orElse(null), AgentCallContext.currentPriority());
+        try {
+            ChatResponse response = delegate.call(prompt);
+            permit.release();
+            return response;
+        } catch (RuntimeException e) {
+            permit.drop();
+            throw e;
+        }
+    }
+    
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        String agent = AgentCallContext.currentAgent().orElse(null);
+        CallPriority priority = AgentCallContext.currentPriority();
+        return Flux.defer(() -> {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(agent, priority);
+            return delegate.stream(prompt).doFinally(signal -> {
+                if (signal == SignalType.ON_COMPLETE) {
+                    permit.release();
+                } else if (signal == SignalType.ON_ERROR) {
+                    permit.drop();
+                } else {
+                    permit.cancel();
+                }
+            });
+        });
+    }
+    
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+}
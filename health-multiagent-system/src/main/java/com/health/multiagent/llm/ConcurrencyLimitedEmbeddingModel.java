@@ -0,0 +1,56 @@
+package com.health.multiagent.llm;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.function.Supplier;
+
+/**
+ * Decorador do EmbeddingModel que ocupa vagas do mesmo limitador das chamadas de chat
+ * O Ollama atende embeddings e gerações na mesma fila; sem o limitador, as
+ * buscas do cache semântico competiriam com as gerações fora do controle de
+ * concorrência e da prioridade do paciente (AgentCallContext). A latência é
+ * comparada a uma referência própria dos embeddings, bem mais curtos que as
+ * gerações.
+ */
+public class ConcurrencyLimitedEmbeddingModel implements EmbeddingModel {
+    
+    static final String BASELINE_KEY = "EMBEDDING";
+    
+    private final EmbeddingModel delegate;
+    private final AdaptiveConcurrencyLimiter limiter;
+    
+    public ConcurrencyLimitedEmbeddingModel(EmbeddingModel delegate, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.limiter = limiter;
+    }
+    
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return limited(() -> delegate.call(request));
+    }
+    
+    @Override
+    public float[] embed(Document document) {
+        return limited(() -> delegate.embed(document));
+    }
+    
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+    
+    private <T> T limited(Supplier<T> call) {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(BASELINE_KEY, AgentCallContext.currentPriority());
+        try {
+            T result = call.get();
+            permit.release();
+            return result;
+        } catch (RuntimeException e) {
+            permit.drop();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.health.multiagent.llm;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de vizinhos mais próximos aproximado (HNSW) por similaridade de cosseno
+ * Os vetores são normalizados na inserção, de modo que a similaridade é o
+ * produto interno. Inserções são serializadas; buscas executam em paralelo.
+ *
+ * @param <T> valor associado a cada vetor
+ */
+public class HnswIndex<T> {
+    
+    private final int maxConnections;
+    private final int maxConnectionsLayer0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final Random random;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private int size;
+    private int dimensions = -1;
+    private Node<T> entryPoint;
+    
+    public HnswIndex(int maxConnections, int efConstruction, int efSearch) {
+        this(maxConnections, efConstruction, efSearch, new Random());
+    }
+    
+    HnswIndex(int maxConnections, int efConstruction, int efSearch, Random random) {
+        this.maxConnections = maxConnections;
+        this.maxConnectionsLayer0 = maxConnections * 2;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(maxConnections);
+        this.random = random;
+    }
+    
+    /**
+     * Resultado de uma busca
+     */
+    public record Match<T>(T value, double similarity) {
+    }
+    
+    /**
+     * Insere um vetor no índice
+     */
+    public void add(float[] vector, T value) {
+        lock.writeLock().lock();
+        try {
+            if (dimensions < 0) {
+                dimensions = vector.length;
+            } else if (vector.length != dimensions) {
+                throw new IllegalArgumentException(
+                    "Expected vector with " + dimensions + " dimensions, got " + vector.length);
+            }
+            
+            Node<T> node = new Node<>(normalize(vector), value, randomLevel());
+            size++;
+            if (entryPoint == null) {
+                entryPoint = node;
+                return;
+            }
+            
+            Node<T> current = entryPoint;
+            for (int level = entryPoint.level(); level > node.level(); level--) {
+                current = greedyClosest(node.vector, current, level);
+            }
+            
+            for (int level = Math.min(node.level(), entryPoint.level()); level >= 0; level--) {
+                List<Scored<T>> candidates = searchLayer(node.vector, current, efConstruction, level);
+                int limit = level == 0 ? maxConnectionsLayer0 : maxConnections;
+                for (Scored<T> candidate : candidates.subList(0, Math.min(maxConnections, candidates.size()))) {
+                    node.neighbors.get(level).add(candidate.node());
+                    connect(candidate.node(), node, level, limit);
+                }
+                current = candidates.get(0).node();
+            }
+            
+            if (node.level() > entryPoint.level()) {
+                entryPoint = node;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Busca os k vetores mais similares, em ordem decrescente de similaridade
+     */
+    public List<Match<T>> search(float[] query, int k) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint == null) {
+                return List.of();
+            }
+            
+            if (query.length != dimensions) {
+                throw new IllegalArgumentException(
+                    "Expected vector with " + dimensions + " dimensions, got " + query.length);
+            }
+            
+            float[] normalized = normalize(query);
+            Node<T> current = entryPoint;
+            for (int level = entryPoint.level(); level > 0; level--) {
+                current = greedyClosest(normalized, current, level);
+            }
+            
+            return searchLayer(normalized, current, Math.max(efSearch, k), 0).stream()
+                .limit(k)
+                .map(scored -> new Match<>(scored.node().value, scored.similarity()))
+                .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private Node<T> greedyClosest(float[] query, Node<T> start, int level) {
+        Node<T> current = start;
+        double best = similarity(query, current.vector);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (Node<T> neighbor : current.neighbors.get(level)) {
+                double similarity = similarity(query, neighbor.vector);
+                if (similarity > best) {
+                    best = similarity;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Busca em largura limitada a ef candidatos em uma camada
+     */
+    private List<Scored<T>> searchLayer(float[] query, Node<T> entry, int ef, int level) {
+        Set<Node<T>> visited = new HashSet<>();
+        PriorityQueue<Scored<T>> candidates = new PriorityQueue<>(Comparator.comparingDouble(Scored<T>::similarity).reversed());
+        PriorityQueue<Scored<T>> results = new PriorityQueue<>(Comparator.comparingDouble(Scored<T>::similarity));
+        
+        Scored<T> first = new Scored<>(entry, similarity(query, entry.vector));
+        visited.add(entry);
+        candidates.add(first);
+        results.add(first);
+        
+        while (!candidates.isEmpty()) {
+            Scored<T> candidate = candidates.poll();
+            if (results.size() >= ef && candidate.similarity() < results.peek().similarity()) {
+                break;
+            }
+            for (Node<T> neighbor : candidate.node().neighbors.get(level)) {
+                if (!visited.add(neighbor)) {
+                    continue;
+                }
+                double similarity = similarity(query, neighbor.vector);
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    Scored<T> scored = new Scored<>(neighbor, similarity);
+                    candidates.add(scored);
+                    results.add(scored);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        
+        List<Scored<T>> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(Scored<T>::similarity).reversed());
+        return sorted;
+    }
+    
+    /**
+     * Adiciona a aresta e, se o nó exceder o limite, mantém apenas os vizinhos mais próximos
+     */
+    private void connect(Node<T> from, Node<T> to, int level, int limit) {
+        List<Node<T>> neighbors = from.neighbors.get(level);
+        neighbors.add(to);
+        if (neighbors.size() > limit) {
+            neighbors.sort(Comparator.comparingDouble((Node<T> neighbor) -> similarity(from.vector, neighbor.vector)).reversed());
+            neighbors.subList(limit, neighbors.size()).clear();
+        }
+    }
+    
+    private int randomLevel() {
+        return (int) Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+    
+    private static double similarity(float[] a, float[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+    
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = norm == 0 ? 0 : (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+    
+    private static final class Node<T> {
+        
+        private final float[] vector;
+        private final T value;
+        private final List<List<Node<T>>> neighbors;
+        
+        private Node(float[] vector, T value, int level) {
+            this.vector = vector;
+            this.value = value;
+            this.neighbors = new ArrayList<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                neighbors.add(new ArrayList<>());
+            }
+        }
+        
+        private int level() {
+            return neighbors.size() - 1;
+        }
+    }
+    
+    private record Scored<T>(Node<T> node, double similarity) {
+    }
+}
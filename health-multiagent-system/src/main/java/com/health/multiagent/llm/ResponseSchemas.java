@@ -0,0 +1,44 @@
+package com.health.multiagent.llm;
+
+import org.springframework.ai.converter.BeanOutputConverter;
+
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JSON Schema das respostas estruturadas dos agentes
+ * Gerado a partir dos records de resultado (BeanOutputConverter, que usa as
+ * anotações @JsonPropertyDescription) e enviado ao Ollama no parâmetro
+ * format, de modo que a geração fique restrita a um objeto válido.
+ * Todos os componentes do record são marcados como obrigatórios.
+ */
+public final class ResponseSchemas {
+    
+    private static final ClassValue<Map<String, Object>> SCHEMAS = new ClassValue<>() {
+        @Override
+        protected Map<String, Object> computeValue(Class<?> type) {
+            return create(type);
+        }
+    };
+    
+    private ResponseSchemas() {
+    }
+    
+    /**
+     * Schema do record informado, calculado uma vez por tipo
+     */
+    public static Map<String, Object> of(Class<? extends Record> type) {
+        return SCHEMAS.get(type);
+    }
+    
+    private static Map<String, Object> create(Class<?> type) {
+        Map<String, Object> schema = new LinkedHashMap<>(new BeanOutputConverter<>(type).getJsonSchemaMap());
+        schema.put("required", Arrays.stream(type.getRecordComponents())
+            .map(RecordComponent::getName)
+            .toList());
+        return Collections.unmodifiableMap(schema);
+    }
+}
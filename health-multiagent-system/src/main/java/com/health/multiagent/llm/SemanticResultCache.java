@@ -0,0 +1,254 @@
+package com.health.multiagent.llm;
+
+import com.health.multiagent.model.PatientAssessmentState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Cache semântico de resultados de agentes
+ * A entrada do agente (sintomas, histórico, medicações) é normalizada e
+ * convertida em embedding (nomic-embed-text). Resultados de avaliações
+ * aprovadas pelo médico são indexados em um HNSW em memória, um por agente;
+ * uma nova apresentação com similaridade acima do limiar reaproveita o
+ * resultado sem chamar o LLM.
+ * Além da similaridade, a chave de guarda (ex.: medicações) precisa ser
+ * idêntica, e o resultado reaproveitado pode ser adaptado ao paciente atual
+ * (ex.: resumo dos sintomas). Cada reaproveitamento é registrado no log de
+ * auditoria.
+ * Com o índice cheio, os resultados mais antigos (10% de max-entries) são
+ * removidos e o índice é reconstruído com os demais. O embedding passa pelo
+ * limitador de concorrência do Ollama com a prioridade do paciente.
+ */
+@Slf4j
+@Component
+public class SemanticResultCache {
+    
+    static final String REQUESTS_METRIC = "health.llm.semantic-cache.requests";
+    static final String EVICTIONS_METRIC = "health.llm.semantic-cache.evictions";
+    
+    private static final Logger AUDIT = LoggerFactory.getLogger("com.health.multiagent.audit.SemanticCache");
+    private static final int CANDIDATES = 5;
+    private static final double EVICTION_RATIO = 0.1;
+    
+    private final EmbeddingModel embeddingModel;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Set<String> enabledAgents;
+    private final double similarityThreshold;
+    private final int maxEntries;
+    
+    private final Map<String, AgentIndex> indexes = new ConcurrentHashMap<>();
+    
+    // Resultados calculados por sessão, indexados apenas após a aprovação
+    private final Map<String, Map<String, Entry>> pendingBySession = new ConcurrentHashMap<>();
+    
+    public SemanticResultCache(
+            EmbeddingModel embeddingModel,
+            MeterRegistry meterRegistry,
+            @Value("${health.multiagent.semantic-cache.enabled:false}") boolean enabled,
+            @Value("${health.multiagent.semantic-cache.agents:TRIAGE,PHARMACIST}") Set<String> enabledAgents,
+            @Value("${health.multiagent.semantic-cache.similarity-threshold:0.95}") double similarityThreshold,
+            @Value("${health.multiagent.semantic-cache.max-entries:1000}") int maxEntries) {
+        this.embeddingModel = embeddingModel;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.enabledAgents = Set.copyOf(enabledAgents);
+        this.similarityThreshold = similarityThreshold;
+        this.maxEntries = maxEntries;
+    }
+    
+    /**
+     * Resultado indexado, com a sessão aprovada de origem
+     */
+    private record Entry(String sessionId, String guard, float[] embedding, Object result) {
+    }
+    
+    /**
+     * Índice de um agente, com os resultados na ordem de indexação para a remoção dos mais antigos
+     * Buscas usam o índice atual enquanto um novo é reconstruído.
+     */
+    private final class AgentIndex {
+        
+        private final String agent;
+        private final Deque<Entry> entries = new ArrayDeque<>();
+        private volatile HnswIndex<Entry> index = new HnswIndex<>(16, 100, 50);
+        
+        private AgentIndex(String agent) {
+            this.agent = agent;
+        }
+        
+        synchronized void add(Entry entry) {
+            if (entries.size() >= maxEntries) {
+                int evicted = Math.max(1, (int) (maxEntries * EVICTION_RATIO));
+                for (int i = 0; i < evicted; i++) {
+                    entries.removeFirst();
+                }
+                HnswIndex<Entry> rebuilt = new HnswIndex<>(16, 100, 50);
+                entries.forEach(indexed -> rebuilt.add(indexed.embedding(), indexed));
+                index = rebuilt;
+                Counter.builder(EVICTIONS_METRIC)
+                    .description("Oldest approved results removed from the semantic result cache")
+                    .tag("agent", agent)
+                    .register(meterRegistry)
+                    .increment(evicted);
+                log.debug("Semantic cache for {} is full, evicted the {} oldest entries", agent, evicted);
+            }
+            entries.addLast(entry);
+            index.add(entry.embedding(), entry);
+        }
+        
+        List<HnswIndex.Match<Entry>> search(float[] embedding) {
+            return index.search(embedding, CANDIDATES);
+        }
+    }
+    
+    /**
+     * Retorna o resultado de uma avaliação aprovada semelhante ou executa o agente.
+     * Reprocessamentos com feedback do médico sempre executam o agente.
+     *
+     * @param input texto que descreve a apresentação do paciente para o agente
+     * @param guard valor que precisa coincidir exatamente para o reaproveitamento (pode ser nulo)
+     */
+    public <T> T computeIfAbsent(String agent, PatientAssessmentState state, String input, String guard,
+                                 Class<T> type, Supplier<T> compute) {
+        return computeIfAbsent(agent, state, input, guard, type, compute, UnaryOperator.identity());
+    }
+    
+    /**
+     * Como computeIfAbsent, adaptando o resultado reaproveitado ao paciente atual
+     *
+     * @param reuse aplicado apenas ao resultado de outra sessão; o resultado indexado não é alterado
+     */
+    public <T> T computeIfAbsent(String agent, PatientAssessmentState state, String input, String guard,
+                                 Class<T> type, Supplier<T> compute, UnaryOperator<T> reuse) {
+        if (!enabled || !enabledAgents.contains(agent)) {
+            return compute.get();
+        }
+        
+        float[] embedding;
+        try {
+            CallPriority priority = CallPriority.of(state.getRiskLevel(), state.getUrgent());
+            embedding = AgentCallContext.call(agent, priority, () -> embeddingModel.embed(normalize(input)));
+        } catch (RuntimeException e) {
+            log.warn("Semantic cache unavailable for {}: {}", agent, e.getMessage());
+            return compute.get();
+        }
+        
+        boolean reprocessing = state.getPhysicianFeedback() != null && !state.getPhysicianFeedback().isBlank();
+        if (!reprocessing) {
+            Optional<HnswIndex.Match<Entry>> match = findMatch(agent, embedding, guard, type);
+            record(agent, match.isPresent());
+            if (match.isPresent()) {
+                Entry entry = match.get().value();
+                AUDIT.info("Semantic cache hit: session={} agent={} sourceSession={} similarity={} at={}",
+                    state.getSessionId(), agent, entry.sessionId(),
+                    String.format(Locale.ROOT, "%.4f", match.get().similarity()), LocalDateTime.now());
+                return reuse.apply(type.cast(entry.result()));
+            }
+        }
+        
+        T result = compute.get();
+        pendingBySession.computeIfAbsent(state.getSessionId(), id -> new ConcurrentHashMap<>())
+            .put(agent, new Entry(state.getSessionId(), guard, embedding, result));
+        return result;
+    }
+    
+    /**
+     * Indexa os resultados da sessão aprovada pelo médico
+     */
+    public void promote(String sessionId) {
+        Map<String, Entry> pending = pendingBySession.remove(sessionId);
+        if (pending == null) {
+            return;
+        }
+        
+        if (maxEntries < 1) {
+            return;
+        }
+        pending.forEach((agent, entry) -> {
+            indexes.computeIfAbsent(agent, AgentIndex::new).add(entry);
+            log.debug("Indexed approved {} result from session {}", agent, sessionId);
+        });
+    }
+    
+    /**
+     * Descarta resultados não aprovados da sessão
+     */
+    public void discard(String sessionId) {
+        pendingBySession.remove(sessionId);
+    }
+    
+    /**
+     * Normaliza texto livre: minúsculas, sem acentos e espaços colapsados
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "")
+            .toLowerCase(Locale.ROOT)
+            .replaceAll("\\s+", " ")
+            .trim();
+    }
+    
+    /**
+     * Lista normalizada, sem duplicatas e em ordem alfabética
+     */
+    public static String normalize(Collection<String> values) {
+        if (values == null) {
+            return "";
+        }
+        return values.stream()
+            .map(SemanticResultCache::normalize)
+            .filter(value -> !value.isEmpty())
+            .distinct()
+            .sorted()
+            .collect(Collectors.joining(", "));
+    }
+    
+    private Optional<HnswIndex.Match<Entry>> findMatch(String agent, float[] embedding, String guard, Class<?> type) {
+        AgentIndex index = indexes.get(agent);
+        if (index == null) {
+            return Optional.empty();
+        }
+        
+        List<HnswIndex.Match<Entry>> matches = index.search(embedding);
+        return matches.stream()
+            .filter(match -> match.similarity() >= similarityThreshold)
+            .filter(match -> Objects.equals(guard, match.value().guard()))
+            .filter(match -> type.isInstance(match.value().result()))
+            .findFirst();
+    }
+    
+    private void record(String agent, boolean hit) {
+        Counter.builder(REQUESTS_METRIC)
+            .description("Agent executions looked up in the semantic result cache")
+            .tag("agent", agent)
+            .tag("result", hit ? "hit" : "miss")
+            .register(meterRegistry)
+            .increment();
+    }
+}
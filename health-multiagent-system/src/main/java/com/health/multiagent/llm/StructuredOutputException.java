@@ -0,0 +1,15 @@
+package com.health.multiagent.llm;
+
+/**
+ * Resposta do LLM que não pôde ser convertida no formato estruturado esperado
+ */
+public class StructuredOutputException extends RuntimeException {
+    
+    public StructuredOutputException(String message) {
+        super(message);
+    }
+    
+    public StructuredOutputException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,231 @@
+package com.health.multiagent.llm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parser das respostas estruturadas dos agentes
+ * Lê a resposta do LLM em uma única passada com o JsonParser do Jackson,
+ * a partir do primeiro '{' (ignorando cercas de markdown e texto antes ou
+ * depois do objeto), e associa os campos diretamente aos componentes do
+ * record. Campos ausentes ou vazios assumem os valores do record padrão.
+ * Objetos aninhados em componentes String são mantidos como JSON bruto.
+ */
+public final class StructuredOutputParser {
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private static final ClassValue<RecordBinding> BINDINGS = new ClassValue<>() {
+        @Override
+        protected RecordBinding computeValue(Class<?> type) {
+            return new RecordBinding(type);
+        }
+    };
+    
+    private StructuredOutputParser() {
+    }
+    
+    /**
+     * Resultado da conversão, com os componentes que assumiram o valor padrão
+     */
+    public record Result<T>(T value, List<String> defaultedFields) {
+        
+        public boolean complete() {
+            return defaultedFields.isEmpty();
+        }
+    }
+    
+    /**
+     * Converte a resposta do LLM no record informado
+     *
+     * @param defaults valores usados para campos ausentes
+     * @throws StructuredOutputException se a resposta não contém um objeto JSON
+     */
+    public static <T extends Record> T parse(String response, Class<T> type, T defaults) {
+        return read(response, type, defaults).value();
+    }
+    
+    /**
+     * Converte a resposta do LLM informando os campos ausentes ou vazios
+     *
+     * @throws StructuredOutputException se a resposta não contém um objeto JSON
+     */
+    public static <T extends Record> Result<T> read(String response, Class<T> type, T defaults) {
+        RecordBinding binding = BINDINGS.get(type);
+        int start = response != null ? response.indexOf('{') : -1;
+        if (start < 0) {
+            throw new StructuredOutputException("No JSON object in " + type.getSimpleName() + " response");
+        }
+        
+        Object[] values = binding.valuesOf(defaults);
+        boolean[] present = new boolean[values.length];
+        char[] content = response.toCharArray();
+        try (JsonParser parser = JSON_FACTORY.createParser(content, start, content.length - start)) {
+            parser.nextToken();
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                int index = binding.indexOf(parser.currentName());
+                parser.nextToken();
+                if (index < 0) {
+                    parser.skipChildren();
+                    continue;
+                }
+                Object value = readValue(parser, binding.types[index], content, start);
+                if (value != null) {
+                    values[index] = value;
+                    present[index] = true;
+                }
+            }
+            if (token != JsonToken.END_OBJECT) {
+                throw new StructuredOutputException("Unexpected token " + token + " in " + type.getSimpleName() + " response");
+            }
+        } catch (JsonProcessingException e) {
+            // Resposta truncada ou malformada após o início do objeto: mantém os campos já lidos
+            if (!binding.anyChanged(values, defaults)) {
+                throw new StructuredOutputException("Malformed " + type.getSimpleName() + " response: "
+                    + e.getOriginalMessage(), e);
+            }
+        } catch (IOException e) {
+            throw new StructuredOutputException("Unable to read " + type.getSimpleName() + " response", e);
+        }
+        
+        List<String> defaulted = new ArrayList<>();
+        for (int i = 0; i < present.length; i++) {
+            if (!present[i]) {
+                defaulted.add(binding.names[i]);
+            }
+        }
+        return new Result<>(type.cast(binding.create(values)), List.copyOf(defaulted));
+    }
+    
+    private static Object readValue(JsonParser parser, Class<?> type, char[] content, int offset) throws IOException {
+        if (type == List.class) {
+            return readList(parser, content, offset);
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return switch (parser.currentToken()) {
+                case VALUE_TRUE -> Boolean.TRUE;
+                case VALUE_FALSE -> Boolean.FALSE;
+                case VALUE_STRING -> Boolean.valueOf(parser.getText().trim());
+                default -> {
+                    parser.skipChildren();
+                    yield null;
+                }
+            };
+        }
+        return readText(parser, content, offset);
+    }
+    
+    private static List<String> readList(JsonParser parser, char[] content, int offset) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            String single = readText(parser, content, offset);
+            return single != null ? new ArrayList<>(List.of(single)) : null;
+        }
+        
+        List<String> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String value = readText(parser, content, offset);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+    
+    /**
+     * Texto de um valor escalar ou JSON bruto de um objeto/array
+     */
+    private static String readText(JsonParser parser, char[] content, int offset) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            int begin = (int) parser.currentTokenLocation().getCharOffset();
+            parser.skipChildren();
+            int end = (int) parser.currentLocation().getCharOffset();
+            return new String(content, offset + begin, end - begin);
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        String text = parser.getText();
+        return text == null || text.isBlank() ? null : text;
+    }
+    
+    /**
+     * Componentes do record e construtor canônico, calculados uma vez por tipo
+     */
+    private static final class RecordBinding {
+        
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final String[] names;
+        private final Class<?>[] types;
+        private final MethodHandle[] accessors;
+        private final MethodHandle constructor;
+        
+        private RecordBinding(Class<?> type) {
+            if (!type.isRecord()) {
+                throw new IllegalArgumentException(type + " is not a record");
+            }
+            RecordComponent[] components = type.getRecordComponents();
+            this.names = new String[components.length];
+            this.types = new Class<?>[components.length];
+            this.accessors = new MethodHandle[components.length];
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                for (int i = 0; i < components.length; i++) {
+                    names[i] = components[i].getName();
+                    indexes.put(names[i], i);
+                    types[i] = components[i].getType();
+                    accessors[i] = lookup.unreflect(components[i].getAccessor());
+                }
+                this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class, types))
+                    .asSpreader(Object[].class, components.length);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Unable to bind record " + type, e);
+            }
+        }
+        
+        private int indexOf(String name) {
+            Integer index = indexes.get(name);
+            return index != null ? index : -1;
+        }
+        
+        private Object[] valuesOf(Object record) {
+            Object[] values = new Object[accessors.length];
+            for (int i = 0; i < accessors.length; i++) {
+                try {
+                    Object value = accessors[i].invoke(record);
+                    // Listas padrão são copiadas para que o resultado seja mutável e independente
+                    values[i] = value instanceof List<?> list ? new ArrayList<>(list) : value;
+                } catch (Throwable e) {
+                    throw new IllegalStateException("Unable to read record component", e);
+                }
+            }
+            return values;
+        }
+        
+        private boolean anyChanged(Object[] values, Object defaults) {
+            return !Arrays.equals(values, valuesOf(defaults));
+        }
+        
+        private Object create(Object[] values) {
+            try {
+                return constructor.invoke(values);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Unable to create record", e);
+            }
+        }
+    }
+}
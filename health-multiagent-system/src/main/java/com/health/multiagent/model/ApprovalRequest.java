@@ -7,6 +7,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * DTO para requisição de aprovação humana
  */
@@ -21,5 +23,13 @@ public class ApprovalRequest {
     private String decision;
     
     private String comments;
+    
+    /**
+     * Agentes a reexecutar na rejeição (opcional)
+     * Os agentes que dependem deles também são reexecutados. Se omitido,
+     * os agentes são identificados a partir dos comentários.
+     */
+    private List<@Pattern(regexp = "TRIAGE|PHARMACIST|EXAM|EMR_COMMS",
+        message = "Target agent must be TRIAGE, PHARMACIST, EXAM or EMR_COMMS") String> targetAgents;
 }
 
@@ -0,0 +1,27 @@
+package com.health.multiagent.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de progresso da avaliação enviado via Server-Sent Events
+ */
+public record AssessmentEvent(
+    String sessionId,
+    String agent,
+    String status,
+    String message,
+    Object data,
+    LocalDateTime timestamp
+) {
+    
+    public static AssessmentEvent of(PatientAssessmentState state, String message, Object data) {
+        return new AssessmentEvent(
+            state.getSessionId(),
+            state.getCurrentAgent(),
+            state.getStatus(),
+            message,
+            data,
+            LocalDateTime.now()
+        );
+    }
+}
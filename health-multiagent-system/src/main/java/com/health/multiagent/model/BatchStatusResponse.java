@@ -0,0 +1,47 @@
+package com.health.multiagent.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO para progresso de um lote de avaliações
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchStatusResponse {
+    
+    private String batchId;
+    
+    private String status; // PROCESSING, COMPLETED
+    
+    private int total;
+    
+    private int queued;
+    
+    private int processing;
+    
+    private int finished;
+    
+    private List<ItemStatus> items;
+    
+    /**
+     * Situação de um item do lote; sessionId é nulo enquanto o item aguarda na fila
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemStatus {
+        private int index;
+        private String patientId;
+        private String sessionId;
+        private String status; // QUEUED, PROCESSING, AWAITING_APPROVAL, ERROR
+        private String message;
+    }
+}
@@ -0,0 +1,25 @@
+package com.health.multiagent.model;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO para submissão de sintomas em lote
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchSymptomsRequest {
+    
+    @NotEmpty(message = "At least one item is required")
+    @Builder.Default
+    private List<@Valid SymptomsRequest> items = new ArrayList<>();
+}
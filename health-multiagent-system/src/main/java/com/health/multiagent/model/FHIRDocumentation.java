@@ -4,10 +4,11 @@ import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 
 /**
  * Resultado da geração de documentação FHIR do EMR/Comms Agent
+ * O Bundle segue como FhirDocument, escrito como objeto JSON no evento
+ * agent-completed sem ser decodificado para String.
  */
 public record FHIRDocumentation(
-    @JsonPropertyDescription("FHIR formatted document in JSON")
-    String fhirDocument,
+    FhirDocument fhirDocument,
     
     @JsonPropertyDescription("Communication text for healthcare providers")
     String communicationText,
@@ -15,4 +16,3 @@ public record FHIRDocumentation(
     @JsonPropertyDescription("Document type: ASSESSMENT, REFERRAL, PRESCRIPTION")
     String documentType
 ) {}
-
@@ -0,0 +1,186 @@
+package com.health.multiagent.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Documento FHIR mantido como JSON em UTF-8
+ * Na serialização das respostas, os bytes são copiados como valor JSON bruto
+ * para o gerador do Jackson, sem conversão para String nem escape: o Bundle
+ * aparece como objeto na resposta, e não como texto dentro de aspas.
+ * O conteúdo deve ser um JSON válido (gerado pelo FhirBundleWriter).
+ */
+public final class FhirDocument implements JsonSerializable, Serializable {
+    
+    @Serial
+    private static final long serialVersionUID = 1L;
+    
+    private final byte[] json;
+    
+    private FhirDocument(byte[] json) {
+        this.json = json;
+    }
+    
+    /**
+     * Documento a partir de JSON em UTF-8; o array passa a pertencer ao documento
+     */
+    public static FhirDocument ofUtf8(byte[] json) {
+        return json != null ? new FhirDocument(json) : null;
+    }
+    
+    public static FhirDocument of(String json) {
+        return json != null ? new FhirDocument(json.getBytes(StandardCharsets.UTF_8)) : null;
+    }
+    
+    /**
+     * Leitura de estados recebidos de outro nó: aceita o Bundle como objeto
+     * ou, em estados antigos, como texto
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    static FhirDocument fromJson(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        return node.isTextual() ? of(node.textValue()) : of(node.toString());
+    }
+    
+    /**
+     * Tamanho do documento em bytes
+     */
+    public int size() {
+        return json.length;
+    }
+    
+    /**
+     * Cópia do conteúdo em UTF-8
+     */
+    public byte[] toUtf8() {
+        return json.clone();
+    }
+    
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeRawValue(new RawJson(json));
+    }
+    
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+        serialize(gen, serializers);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof FhirDocument other && Arrays.equals(json, other.json);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(json);
+    }
+    
+    @Override
+    public String toString() {
+        return new String(json, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * JSON já codificado, escrito sem aspas e sem escape. O UTF8JsonGenerator
+     * usa appendUnquotedUTF8 para copiar os bytes direto no buffer de saída;
+     * as variantes em char só são usadas por geradores sobre Writer.
+     */
+    private record RawJson(byte[] utf8) implements SerializableString {
+        
+        @Override
+        public String getValue() {
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+        
+        @Override
+        public int charLength() {
+            return getValue().length();
+        }
+        
+        @Override
+        public char[] asQuotedChars() {
+            throw new UnsupportedOperationException("Raw JSON cannot be quoted");
+        }
+        
+        @Override
+        public byte[] asUnquotedUTF8() {
+            return utf8;
+        }
+        
+        @Override
+        public byte[] asQuotedUTF8() {
+            throw new UnsupportedOperationException("Raw JSON cannot be quoted");
+        }
+        
+        @Override
+        public int appendQuotedUTF8(byte[] buffer, int offset) {
+            throw new UnsupportedOperationException("Raw JSON cannot be quoted");
+        }
+        
+        @Override
+        public int appendQuoted(char[] buffer, int offset) {
+            throw new UnsupportedOperationException("Raw JSON cannot be quoted");
+        }
+        
+        @Override
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            if (offset + utf8.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(utf8, 0, buffer, offset, utf8.length);
+            return utf8.length;
+        }
+        
+        @Override
+        public int appendUnquoted(char[] buffer, int offset) {
+            String value = getValue();
+            if (offset + value.length() > buffer.length) {
+                return -1;
+            }
+            value.getChars(0, value.length(), buffer, offset);
+            return value.length();
+        }
+        
+        @Override
+        public int writeQuotedUTF8(OutputStream out) {
+            throw new UnsupportedOperationException("Raw JSON cannot be quoted");
+        }
+        
+        @Override
+        public int writeUnquotedUTF8(OutputStream out) throws IOException {
+            out.write(utf8);
+            return utf8.length;
+        }
+        
+        @Override
+        public int putQuotedUTF8(ByteBuffer buffer) {
+            throw new UnsupportedOperationException("Raw JSON cannot be quoted");
+        }
+        
+        @Override
+        public int putUnquotedUTF8(ByteBuffer buffer) {
+            if (utf8.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(utf8);
+            return utf8.length;
+        }
+    }
+}
@@ -37,14 +37,23 @@ public class PatientAssessmentState {
     @JsonPropertyDescription("Patient medical history")
     private String medicalHistory;
     
+    @JsonPropertyDescription("Compact summary of a long medical history, used in agent prompts")
+    private String medicalHistorySummary;
+    
     @JsonPropertyDescription("List of current medications")
     @Builder.Default
     private List<String> currentMedications = new ArrayList<>();
     
+    @JsonPropertyDescription("Canonical medication ids (drug id and dose), in the order of currentMedications")
+    private List<String> medicationIds;
+    
     // Resultados do Triage Agent
     @JsonPropertyDescription("Risk level: LOW, MEDIUM, HIGH, CRITICAL")
     private String riskLevel;
     
+    @JsonPropertyDescription("Urgency indicator from triage")
+    private Boolean urgent;
+    
     @JsonPropertyDescription("Symptoms summary from triage")
     private String symptomsSummary;
     
@@ -80,7 +89,7 @@ public class PatientAssessmentState {
     
     // Resultados do EMR/Comms Agent
     @JsonPropertyDescription("Generated FHIR document")
-    private String fhirDocument;
+    private FhirDocument fhirDocument;
     
     @JsonPropertyDescription("Communication text for healthcare providers")
     private String communicationText;
@@ -108,11 +117,12 @@ public class PatientAssessmentState {
     private List<String> assessmentHistory = new ArrayList<>();
     
     // Controle de fluxo
+    // Campos voláteis: atualizados pela thread do fluxo e lidos pelas consultas de status
     @JsonPropertyDescription("Current agent processing")
-    private String currentAgent;
+    private volatile String currentAgent;
     
     @JsonPropertyDescription("Overall status: PROCESSING, AWAITING_APPROVAL, COMPLETED, ERROR")
-    private String status;
+    private volatile String status;
     
     @JsonPropertyDescription("Error message if any")
     private String errorMessage;
@@ -0,0 +1,14 @@
+package com.health.multiagent.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+/**
+ * Resposta do LLM ao EMR/Comms Agent; o documento FHIR é montado sem o LLM
+ */
+public record ProviderCommunication(
+    @JsonPropertyDescription("Communication text for healthcare providers")
+    String communicationText,
+    
+    @JsonPropertyDescription("Document type: ASSESSMENT, REFERRAL, PRESCRIPTION")
+    String documentType
+) {}
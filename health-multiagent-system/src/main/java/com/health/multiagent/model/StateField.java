@@ -0,0 +1,120 @@
+package com.health.multiagent.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Campos do PatientAssessmentState lidos e produzidos pelos agentes
+ * Usados para declarar as entradas e saídas de cada agente, derivar
+ * as dependências entre eles e mapear o estado do grafo de execução.
+ */
+public enum StateField {
+    
+    // Dados iniciais do paciente
+    PATIENT_ID("patientId", PatientAssessmentState::getPatientId,
+        (state, value) -> state.setPatientId((String) value)),
+    SYMPTOMS("symptoms", PatientAssessmentState::getSymptoms,
+        (state, value) -> state.setSymptoms((String) value)),
+    MEDICAL_HISTORY("medicalHistory", PatientAssessmentState::getMedicalHistory,
+        (state, value) -> state.setMedicalHistory((String) value)),
+    MEDICAL_HISTORY_SUMMARY("medicalHistorySummary", PatientAssessmentState::getMedicalHistorySummary,
+        (state, value) -> state.setMedicalHistorySummary((String) value)),
+    CURRENT_MEDICATIONS("currentMedications", PatientAssessmentState::getCurrentMedications,
+        (state, value) -> state.setCurrentMedications(list(value)), true),
+    MEDICATION_IDS("medicationIds", PatientAssessmentState::getMedicationIds,
+        (state, value) -> state.setMedicationIds(list(value)), true),
+    
+    // Reprocessamento
+    PHYSICIAN_FEEDBACK("physicianFeedback", PatientAssessmentState::getPhysicianFeedback,
+        (state, value) -> state.setPhysicianFeedback((String) value)),
+    ASSESSMENT_HISTORY("assessmentHistory", PatientAssessmentState::getAssessmentHistory,
+        (state, value) -> state.setAssessmentHistory(list(value)), true),
+    
+    // Resultados do Triage Agent
+    RISK_LEVEL("riskLevel", PatientAssessmentState::getRiskLevel,
+        (state, value) -> state.setRiskLevel((String) value)),
+    URGENT("urgent", PatientAssessmentState::getUrgent,
+        (state, value) -> state.setUrgent((Boolean) value)),
+    SYMPTOMS_SUMMARY("symptomsSummary", PatientAssessmentState::getSymptomsSummary,
+        (state, value) -> state.setSymptomsSummary((String) value)),
+    TRIAGE_RECOMMENDATIONS("triageRecommendations", PatientAssessmentState::getTriageRecommendations,
+        (state, value) -> state.setTriageRecommendations((String) value)),
+    
+    // Resultados do Pharmacist Agent
+    DRUG_INTERACTIONS("drugInteractions", PatientAssessmentState::getDrugInteractions,
+        (state, value) -> state.setDrugInteractions(list(value)), true),
+    CONTRAINDICATIONS("contraindications", PatientAssessmentState::getContraindications,
+        (state, value) -> state.setContraindications(list(value)), true),
+    PHARMACIST_RECOMMENDATIONS("pharmacistRecommendations", PatientAssessmentState::getPharmacistRecommendations,
+        (state, value) -> state.setPharmacistRecommendations((String) value)),
+    
+    // Resultados do Exam Agent
+    RECOMMENDED_LAB_EXAMS("recommendedLabExams", PatientAssessmentState::getRecommendedLabExams,
+        (state, value) -> state.setRecommendedLabExams(list(value)), true),
+    RECOMMENDED_IMAGING_EXAMS("recommendedImagingExams", PatientAssessmentState::getRecommendedImagingExams,
+        (state, value) -> state.setRecommendedImagingExams(list(value)), true),
+    EXAM_PRIORITY("examPriority", PatientAssessmentState::getExamPriority,
+        (state, value) -> state.setExamPriority((String) value)),
+    EXAM_RECOMMENDATIONS("examRecommendations", PatientAssessmentState::getExamRecommendations,
+        (state, value) -> state.setExamRecommendations((String) value)),
+    
+    // Resultados do EMR/Comms Agent
+    FHIR_DOCUMENT("fhirDocument", PatientAssessmentState::getFhirDocument,
+        (state, value) -> state.setFhirDocument((FhirDocument) value)),
+    COMMUNICATION_TEXT("communicationText", PatientAssessmentState::getCommunicationText,
+        (state, value) -> state.setCommunicationText((String) value));
+    
+    private final String key;
+    private final Function<PatientAssessmentState, Object> getter;
+    private final BiConsumer<PatientAssessmentState, Object> setter;
+    private final boolean listValued;
+    
+    StateField(String key,
+               Function<PatientAssessmentState, Object> getter,
+               BiConsumer<PatientAssessmentState, Object> setter) {
+        this(key, getter, setter, false);
+    }
+    
+    StateField(String key,
+               Function<PatientAssessmentState, Object> getter,
+               BiConsumer<PatientAssessmentState, Object> setter,
+               boolean listValued) {
+        this.key = key;
+        this.getter = getter;
+        this.setter = setter;
+        this.listValued = listValued;
+    }
+    
+    /**
+     * Nome da propriedade no PatientAssessmentState
+     */
+    public String key() {
+        return key;
+    }
+    
+    public boolean isList() {
+        return listValued;
+    }
+    
+    public Object get(PatientAssessmentState state) {
+        return getter.apply(state);
+    }
+    
+    public void set(PatientAssessmentState state, Object value) {
+        setter.accept(state, value);
+    }
+    
+    /**
+     * Valor inicial do campo, usado ao descartar resultados de um agente
+     */
+    public Object emptyValue() {
+        return isList() ? new ArrayList<String>() : null;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static List<String> list(Object value) {
+        return value != null ? new ArrayList<>((List<String>) value) : new ArrayList<>();
+    }
+}
@@ -0,0 +1,30 @@
+package com.health.multiagent.pharmacy;
+
+/**
+ * Interação conhecida entre dois medicamentos da base local
+ */
+public record DrugInteraction(String drugA, String drugB, Severity severity, String description) {
+    
+    public enum Severity {
+        MAJOR("grave"),
+        MODERATE("moderada"),
+        MINOR("leve");
+        
+        private final String label;
+        
+        Severity(String label) {
+            this.label = label;
+        }
+        
+        public String label() {
+            return label;
+        }
+    }
+    
+    /**
+     * Texto usado em drugInteractions, ex.: "Varfarina + Ibuprofeno (grave): ..."
+     */
+    public String describe() {
+        return drugA + " + " + drugB + " (" + severity.label() + "): " + description;
+    }
+}
@@ -0,0 +1,149 @@
+package com.health.multiagent.pharmacy;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base local de interações medicamentosas
+ * Carregada na inicialização a partir de um arquivo JSON com os pares de
+ * medicamentos do dicionário (MedicationNormalizer) que interagem. Cada
+ * medicamento com interações recebe um id inteiro; os pares ficam em um
+ * vetor ordenado de chaves long (menor id nos 32 bits altos), consultado
+ * por busca binária. Verificar uma lista de medicações custa alguns
+ * microssegundos, sem chamar o LLM.
+ */
+@Slf4j
+@Component
+public class DrugInteractionKnowledgeBase {
+    
+    private final boolean enabled;
+    private final Map<String, Integer> idsByDrug = new HashMap<>();
+    private final long[] pairKeys;
+    private final DrugInteraction[] pairInteractions;
+    
+    /**
+     * Conteúdo do arquivo da base; os medicamentos são lidos pelo MedicationNormalizer
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Catalog(List<Interaction> interactions) {
+    }
+    
+    record Interaction(List<String> drugs, DrugInteraction.Severity severity, String description) {
+    }
+    
+    @Autowired
+    public DrugInteractionKnowledgeBase(
+            ObjectMapper objectMapper,
+            MedicationNormalizer normalizer,
+            @Value("${health.multiagent.drug-interactions.enabled:true}") boolean enabled,
+            @Value("${health.multiagent.drug-interactions.source:classpath:drug-interactions.json}") Resource source)
+            throws IOException {
+        this(enabled, enabled ? read(objectMapper, source) : new Catalog(List.of()), normalizer);
+        if (enabled) {
+            log.info("Drug interaction knowledge base {} loaded: {} interactions",
+                source.getDescription(), pairKeys.length);
+        }
+    }
+    
+    DrugInteractionKnowledgeBase(boolean enabled, Catalog catalog, MedicationNormalizer normalizer) {
+        this.enabled = enabled;
+        Map<Long, DrugInteraction> pairs = new HashMap<>();
+        for (Interaction interaction : catalog.interactions()) {
+            if (interaction.drugs().size() != 2) {
+                throw new IllegalArgumentException("Interaction must reference two drugs: " + interaction.drugs());
+            }
+            String drugA = interaction.drugs().get(0);
+            String drugB = interaction.drugs().get(1);
+            int a = register(drugA, normalizer);
+            int b = register(drugB, normalizer);
+            pairs.put(pairKey(a, b), new DrugInteraction(
+                normalizer.name(drugA), normalizer.name(drugB), interaction.severity(), interaction.description()));
+        }
+        this.pairKeys = pairs.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        this.pairInteractions = Arrays.stream(pairKeys).mapToObj(pairs::get).toArray(DrugInteraction[]::new);
+    }
+    
+    public boolean enabled() {
+        return enabled;
+    }
+    
+    /**
+     * Interações conhecidas entre as medicações, a partir dos ids canônicos do MedicationNormalizer
+     * Medicações fora do dicionário são retornadas em unresolved; com a base
+     * desativada, todas são.
+     */
+    public InteractionFindings check(List<String> medicationIds) {
+        if (medicationIds == null || medicationIds.isEmpty()) {
+            return new InteractionFindings(List.of(), List.of());
+        }
+        if (!enabled) {
+            return new InteractionFindings(List.of(), List.copyOf(medicationIds));
+        }
+        
+        int[] ids = new int[medicationIds.size()];
+        int count = 0;
+        List<String> unresolved = new ArrayList<>();
+        for (String medicationId : medicationIds) {
+            String drugId = MedicationNormalizer.drugId(medicationId);
+            if (drugId == null) {
+                unresolved.add(medicationId);
+                continue;
+            }
+            // Medicamentos do dicionário sem interações cadastradas não têm id
+            Integer id = idsByDrug.get(drugId);
+            if (id != null && !contains(ids, count, id)) {
+                ids[count++] = id;
+            }
+        }
+        
+        List<DrugInteraction> interactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                int index = Arrays.binarySearch(pairKeys, pairKey(ids[i], ids[j]));
+                if (index >= 0) {
+                    interactions.add(pairInteractions[index]);
+                }
+            }
+        }
+        return new InteractionFindings(interactions, unresolved);
+    }
+    
+    private int register(String drugId, MedicationNormalizer normalizer) {
+        if (normalizer.name(drugId) == null) {
+            throw new IllegalArgumentException("Interaction references unknown drug: " + drugId);
+        }
+        return idsByDrug.computeIfAbsent(drugId, id -> idsByDrug.size());
+    }
+    
+    private static long pairKey(int a, int b) {
+        return (long) Math.min(a, b) << 32 | Math.max(a, b);
+    }
+    
+    private static boolean contains(int[] ids, int count, int id) {
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static Catalog read(ObjectMapper objectMapper, Resource source) throws IOException {
+        try (InputStream in = source.getInputStream()) {
+            return objectMapper.readValue(in, Catalog.class);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.health.multiagent.pharmacy;
+
+import java.util.List;
+
+/**
+ * Interações encontradas na base local para as medicações do paciente
+ *
+ * @param interactions interações entre medicações reconhecidas
+ * @param unresolved   medicações que não constam da base
+ */
+public record InteractionFindings(List<DrugInteraction> interactions, List<String> unresolved) {
+    
+    /**
+     * Todas as medicações foram reconhecidas pela base (o que não garante
+     * que todos os pares entre elas estejam cadastrados)
+     */
+    public boolean complete() {
+        return unresolved.isEmpty();
+    }
+    
+    public boolean hasMajor() {
+        return interactions.stream().anyMatch(interaction -> interaction.severity() == DrugInteraction.Severity.MAJOR);
+    }
+    
+    public List<String> descriptions() {
+        return interactions.stream().map(DrugInteraction::describe).toList();
+    }
+}
@@ -0,0 +1,267 @@
+package com.health.multiagent.pharmacy;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Normalização de medicações informadas em texto livre
+ * Os nomes e sinônimos do dicionário local de medicamentos (seção drugs do
+ * arquivo da base de interações) formam uma trie. O nome da medicação, sem
+ * acentos e sem a dose, é reconhecido pelo maior prefixo presente na trie;
+ * sem correspondência exata, a trie é percorrida com distância de edição
+ * (Levenshtein) limitada pelo tamanho do nome, tolerando erros de digitação.
+ * A primeira letra precisa coincidir, evitando confundir nomes próximos de
+ * medicamentos diferentes (ex.: esomeprazol e omeprazol).
+ * A dose é extraída com a unidade padronizada ("50 MG" -> "50mg").
+ * O id canônico é o id do medicamento seguido da dose (ex.: losartana@50mg);
+ * medicações fora do dicionário usam o nome normalizado precedido de "?".
+ */
+@Slf4j
+@Component
+public class MedicationNormalizer {
+    
+    static final String UNRESOLVED_PREFIX = "?";
+    
+    private static final Pattern DOSE = Pattern.compile(
+        "(\\d+(?:[.,]\\d+)?)\\s*(mcg|µg|ug|mg|g|ml|ui|iu|meq|%)(?![a-z])");
+    
+    private static final Map<String, String> UNITS = Map.of("µg", "mcg", "ug", "mcg", "iu", "ui");
+    
+    private final Node root = new Node();
+    private final Map<String, String> namesById = new HashMap<>();
+    
+    /**
+     * Resultado da normalização
+     *
+     * @param drugId id do medicamento no dicionário, ou null se não reconhecido
+     * @param name   nome canônico do medicamento, ou o nome normalizado se não reconhecido
+     * @param dose   dose com unidade padronizada, ou null se ausente
+     */
+    public record NormalizedMedication(String drugId, String name, String dose) {
+        
+        public String canonicalId() {
+            String drug = drugId != null ? drugId : UNRESOLVED_PREFIX + name;
+            return dose != null ? drug + "@" + dose : drug;
+        }
+    }
+    
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Dictionary(List<Drug> drugs) {
+    }
+    
+    record Drug(String id, String name, List<String> aliases) {
+    }
+    
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private String drugId;
+    }
+    
+    @Autowired
+    public MedicationNormalizer(
+            ObjectMapper objectMapper,
+            @Value("${health.multiagent.drug-interactions.source:classpath:drug-interactions.json}") Resource source)
+            throws IOException {
+        this(read(objectMapper, source).drugs());
+        log.info("Medication dictionary {} loaded: {} drugs", source.getDescription(), namesById.size());
+    }
+    
+    MedicationNormalizer(List<Drug> drugs) {
+        for (Drug drug : drugs) {
+            namesById.put(drug.id(), drug.name());
+            insert(drug.name(), drug.id());
+            for (String alias : drug.aliases() != null ? drug.aliases() : List.<String>of()) {
+                insert(alias, drug.id());
+            }
+        }
+    }
+    
+    /**
+     * Ids canônicos das medicações, na ordem informada
+     */
+    public List<String> canonicalIds(List<String> medications) {
+        if (medications == null) {
+            return new ArrayList<>();
+        }
+        List<String> ids = new ArrayList<>(medications.size());
+        for (String medication : medications) {
+            ids.add(normalize(medication).canonicalId());
+        }
+        return ids;
+    }
+    
+    public NormalizedMedication normalize(String medication) {
+        String text = stripAccents(medication == null ? "" : medication);
+        String dose = parseDose(text);
+        String name = namePart(text);
+        String drugId = exactMatch(name);
+        if (drugId == null) {
+            drugId = fuzzyMatch(name);
+        }
+        return new NormalizedMedication(drugId, drugId != null ? namesById.get(drugId) : name, dose);
+    }
+    
+    /**
+     * Nome canônico do medicamento, ou null se o id não consta do dicionário
+     */
+    public String name(String drugId) {
+        return namesById.get(drugId);
+    }
+    
+    /**
+     * Id do medicamento a partir do id canônico, ou null para medicações fora do dicionário
+     */
+    public static String drugId(String canonicalId) {
+        if (canonicalId == null || canonicalId.startsWith(UNRESOLVED_PREFIX)) {
+            return null;
+        }
+        int dose = canonicalId.indexOf('@');
+        return dose < 0 ? canonicalId : canonicalId.substring(0, dose);
+    }
+    
+    /**
+     * Dose a partir do id canônico, ou null se ausente
+     */
+    public static String dose(String canonicalId) {
+        int dose = canonicalId == null ? -1 : canonicalId.indexOf('@');
+        return dose < 0 ? null : canonicalId.substring(dose + 1);
+    }
+    
+    private void insert(String name, String drugId) {
+        Node node = root;
+        for (char c : namePart(stripAccents(name)).toCharArray()) {
+            node = node.children.computeIfAbsent(c, key -> new Node());
+        }
+        if (node.drugId != null && !node.drugId.equals(drugId)) {
+            throw new IllegalArgumentException("Drug name used by two drugs: " + name);
+        }
+        node.drugId = drugId;
+    }
+    
+    /**
+     * Maior prefixo do nome, em palavras inteiras, que termina em um medicamento da trie
+     */
+    private String exactMatch(String name) {
+        Node node = root;
+        String drugId = null;
+        for (int i = 0; i < name.length() && node != null; i++) {
+            node = node.children.get(name.charAt(i));
+            if (node != null && node.drugId != null && (i + 1 == name.length() || name.charAt(i + 1) == ' ')) {
+                drugId = node.drugId;
+            }
+        }
+        return drugId;
+    }
+    
+    /**
+     * Medicamento mais próximo por distância de edição, tentando primeiro os prefixos mais longos do nome
+     */
+    private String fuzzyMatch(String name) {
+        String prefix = name;
+        while (!prefix.isEmpty()) {
+            int maxDistance = prefix.length() <= 4 ? 0 : prefix.length() <= 8 ? 1 : 2;
+            Node first = root.children.get(prefix.charAt(0));
+            if (maxDistance > 0 && first != null) {
+                int[] row = new int[prefix.length() + 1];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = i;
+                }
+                Match best = new Match();
+                best.distance = maxDistance + 1;
+                search(first, prefix.charAt(0), prefix, row, best);
+                if (best.drugId != null) {
+                    return best.drugId;
+                }
+            }
+            int lastSpace = prefix.lastIndexOf(' ');
+            prefix = lastSpace < 0 ? "" : prefix.substring(0, lastSpace);
+        }
+        return null;
+    }
+    
+    private static final class Match {
+        private String drugId;
+        private int distance;
+    }
+    
+    /**
+     * Uma linha da matriz de Levenshtein por nó; ramos cujo mínimo excede a melhor distância são descartados
+     */
+    private static void search(Node node, char c, String word, int[] previous, Match best) {
+        int[] row = new int[previous.length];
+        row[0] = previous[0] + 1;
+        int min = row[0];
+        for (int i = 1; i < row.length; i++) {
+            int substitution = previous[i - 1] + (word.charAt(i - 1) == c ? 0 : 1);
+            row[i] = Math.min(substitution, Math.min(row[i - 1] + 1, previous[i] + 1));
+            min = Math.min(min, row[i]);
+        }
+        
+        int distance = row[row.length - 1];
+        if (node.drugId != null && distance < best.distance) {
+            best.drugId = node.drugId;
+            best.distance = distance;
+        }
+        if (min < best.distance) {
+            for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+                search(child.getValue(), child.getKey(), word, row, best);
+            }
+        }
+    }
+    
+    private static String parseDose(String text) {
+        Matcher matcher = DOSE.matcher(text);
+        if (!matcher.find()) {
+            return null;
+        }
+        String amount = new BigDecimal(matcher.group(1).replace(',', '.')).stripTrailingZeros().toPlainString();
+        String unit = matcher.group(2);
+        return amount + UNITS.getOrDefault(unit, unit);
+    }
+    
+    /**
+     * Palavras antes da dose, sem pontuação
+     */
+    private static String namePart(String text) {
+        StringBuilder name = new StringBuilder();
+        for (String word : text.replaceAll("[^a-z0-9µ]+", " ").strip().split(" ")) {
+            if (word.isEmpty() || Character.isDigit(word.charAt(0))) {
+                break;
+            }
+            if (!name.isEmpty()) {
+                name.append(' ');
+            }
+            name.append(word);
+        }
+        return name.toString();
+    }
+    
+    private static String stripAccents(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "")
+            .toLowerCase(Locale.ROOT);
+    }
+    
+    private static Dictionary read(ObjectMapper objectMapper, Resource source) throws IOException {
+        try (InputStream in = source.getInputStream()) {
+            return objectMapper.readValue(in, Dictionary.class);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.agent.Agent;
+import com.health.multiagent.model.StateField;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Grafo de dependências entre agentes
+ * Um agente depende de outro quando lê algum campo que o outro produz.
+ * No modo PARALLEL as entradas opcionais são ignoradas, permitindo que
+ * agentes independentes executem em paralelo.
+ */
+public class AgentDependencyGraph {
+    
+    private final Map<String, Agent> agents = new LinkedHashMap<>();
+    private final Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+    private final Map<String, Set<String>> directDependencies = new LinkedHashMap<>();
+    private final List<Agent> executionOrder;
+    
+    public AgentDependencyGraph(List<? extends Agent> agents, FlowMode mode) {
+        Map<StateField, String> producers = new EnumMap<>(StateField.class);
+        for (Agent agent : agents) {
+            this.agents.put(agent.name(), agent);
+            for (StateField output : agent.outputs()) {
+                String previous = producers.put(output, agent.name());
+                if (previous != null) {
+                    throw new IllegalStateException(
+                        "Field " + output + " is produced by both " + previous + " and " + agent.name());
+                }
+            }
+        }
+        
+        for (Agent agent : agents) {
+            Set<StateField> inputs = EnumSet.noneOf(StateField.class);
+            inputs.addAll(agent.requiredInputs());
+            if (mode == FlowMode.SEQUENTIAL) {
+                inputs.addAll(agent.optionalInputs());
+            }
+            
+            Set<String> agentDependencies = new LinkedHashSet<>();
+            for (StateField input : inputs) {
+                String producer = producers.get(input);
+                if (producer != null && !producer.equals(agent.name())) {
+                    agentDependencies.add(producer);
+                }
+            }
+            dependencies.put(agent.name(), Collections.unmodifiableSet(agentDependencies));
+        }
+        
+        this.executionOrder = topologicalSort();
+        computeDirectDependencies();
+    }
+    
+    /**
+     * Agentes em uma ordem compatível com as dependências
+     */
+    public List<Agent> executionOrder() {
+        return executionOrder;
+    }
+    
+    /**
+     * Agente pelo nome
+     */
+    public Agent agent(String agentName) {
+        dependenciesOf(agentName);
+        return agents.get(agentName);
+    }
+    
+    /**
+     * Dependências diretas de um agente
+     */
+    public Set<String> dependenciesOf(String agentName) {
+        Set<String> agentDependencies = dependencies.get(agentName);
+        if (agentDependencies == null) {
+            throw new IllegalArgumentException("Unknown agent: " + agentName);
+        }
+        return agentDependencies;
+    }
+    
+    /**
+     * Dependências diretas, sem as que já são implícitas por outra dependência
+     * (redução transitiva). Correspondem às arestas do grafo de execução.
+     */
+    public Set<String> directDependenciesOf(String agentName) {
+        dependenciesOf(agentName);
+        return directDependencies.get(agentName);
+    }
+    
+    /**
+     * Agentes sem dependências, que iniciam o fluxo
+     */
+    public List<Agent> entryAgents() {
+        return executionOrder.stream()
+            .filter(agent -> dependencies.get(agent.name()).isEmpty())
+            .toList();
+    }
+    
+    /**
+     * Agentes que dependem diretamente do agente informado
+     */
+    public List<Agent> directDependentsOf(String agentName) {
+        return executionOrder.stream()
+            .filter(agent -> directDependenciesOf(agent.name()).contains(agentName))
+            .toList();
+    }
+    
+    /**
+     * Agentes informados e todos os que dependem deles, direta ou
+     * indiretamente, na ordem de execução. São os agentes cujos resultados
+     * deixam de ser válidos quando os informados são reexecutados.
+     */
+    public List<String> affectedBy(Collection<String> agentNames) {
+        Set<String> affected = new HashSet<>();
+        for (String agentName : agentNames) {
+            dependenciesOf(agentName);
+            affected.add(agentName);
+        }
+        
+        List<String> result = new ArrayList<>();
+        for (Agent agent : executionOrder) {
+            String name = agent.name();
+            if (affected.contains(name) || dependencies.get(name).stream().anyMatch(affected::contains)) {
+                affected.add(name);
+                result.add(name);
+            }
+        }
+        return result;
+    }
+    
+    private void computeDirectDependencies() {
+        Map<String, Set<String>> ancestors = new LinkedHashMap<>();
+        for (Agent agent : executionOrder) {
+            Set<String> agentAncestors = new LinkedHashSet<>();
+            for (String dependency : dependencies.get(agent.name())) {
+                agentAncestors.add(dependency);
+                agentAncestors.addAll(ancestors.get(dependency));
+            }
+            ancestors.put(agent.name(), agentAncestors);
+        }
+        
+        for (Agent agent : executionOrder) {
+            Set<String> agentDependencies = dependencies.get(agent.name());
+            Set<String> direct = new LinkedHashSet<>(agentDependencies);
+            for (String dependency : agentDependencies) {
+                direct.removeAll(ancestors.get(dependency));
+            }
+            directDependencies.put(agent.name(), Collections.unmodifiableSet(direct));
+        }
+    }
+    
+    /**
+     * Ordenação topológica (Kahn), preservando a ordem de declaração entre agentes independentes
+     */
+    private List<Agent> topologicalSort() {
+        Map<String, Integer> pending = new LinkedHashMap<>();
+        dependencies.forEach((name, deps) -> pending.put(name, deps.size()));
+        
+        Deque<String> ready = new ArrayDeque<>();
+        pending.forEach((name, count) -> {
+            if (count == 0) {
+                ready.add(name);
+            }
+        });
+        
+        List<Agent> order = new ArrayList<>(agents.size());
+        while (!ready.isEmpty()) {
+            String name = ready.poll();
+            order.add(agents.get(name));
+            dependencies.forEach((dependent, deps) -> {
+                if (deps.contains(name) && pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            });
+        }
+        
+        if (order.size() != agents.size()) {
+            throw new IllegalStateException("Cyclic dependency between agents: " + dependencies);
+        }
+        return Collections.unmodifiableList(order);
+    }
+}
@@ -0,0 +1,135 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.model.AssessmentEvent;
+import com.health.multiagent.model.PatientAssessmentState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Publica eventos de progresso das avaliações para clientes SSE
+ * Eventos enviados:
+ * - status: estado atual da sessão (enviado na inscrição e a cada mudança de status)
+ * - agent-started / agent-completed: início e fim de cada agente
+ * - token: fragmentos de texto gerados pelo LLM (quando o streaming de tokens está habilitado)
+ */
+@Slf4j
+@Component
+public class AssessmentEventPublisher {
+    
+    public static final String EVENT_STATUS = "status";
+    public static final String EVENT_AGENT_STARTED = "agent-started";
+    public static final String EVENT_AGENT_COMPLETED = "agent-completed";
+    public static final String EVENT_TOKEN = "token";
+    
+    // Status após os quais a sessão não gera novos eventos
+    private static final Set<String> TERMINAL_STATUSES = Set.of("COMPLETED", "REJECTED", "ERROR");
+    
+    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    private final long emitterTimeoutMillis;
+    
+    public AssessmentEventPublisher(
+            @Value("${health.multiagent.streaming.emitter-timeout-minutes:10}") long emitterTimeoutMinutes) {
+        this.emitterTimeoutMillis = Duration.ofMinutes(emitterTimeoutMinutes).toMillis();
+    }
+    
+    /**
+     * Registra um novo cliente e envia o estado atual da sessão
+     */
+    public SseEmitter subscribe(PatientAssessmentState state) {
+        String sessionId = state.getSessionId();
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        
+        emitters.computeIfAbsent(sessionId, id -> new CopyOnWriteArrayList<>()).add(emitter);
+        emitter.onCompletion(() -> remove(sessionId, emitter));
+        emitter.onTimeout(() -> remove(sessionId, emitter));
+        emitter.onError(e -> remove(sessionId, emitter));
+        
+        log.debug("SSE subscriber registered for session: {}", sessionId);
+        
+        if (send(sessionId, emitter, EVENT_STATUS, AssessmentEvent.of(state, "Subscribed to assessment events", null))
+                && TERMINAL_STATUSES.contains(state.getStatus())) {
+            emitter.complete();
+        }
+        return emitter;
+    }
+    
+    public boolean hasSubscribers(String sessionId) {
+        List<SseEmitter> sessionEmitters = emitters.get(sessionId);
+        return sessionEmitters != null && !sessionEmitters.isEmpty();
+    }
+    
+    public void agentStarted(PatientAssessmentState state, String agent) {
+        publish(state.getSessionId(), EVENT_AGENT_STARTED,
+            new AssessmentEvent(state.getSessionId(), agent, state.getStatus(),
+                agent + " started", null, LocalDateTime.now()));
+    }
+    
+    public void agentCompleted(PatientAssessmentState state, String agent, Object result) {
+        publish(state.getSessionId(), EVENT_AGENT_COMPLETED,
+            new AssessmentEvent(state.getSessionId(), agent, state.getStatus(),
+                agent + " completed", result, LocalDateTime.now()));
+    }
+    
+    public void token(String sessionId, String agent, String text) {
+        publish(sessionId, EVENT_TOKEN,
+            new AssessmentEvent(sessionId, agent, null, null, text, LocalDateTime.now()));
+    }
+    
+    /**
+     * Publica o status atual e encerra os streams quando a sessão termina
+     */
+    public void statusChanged(PatientAssessmentState state) {
+        String sessionId = state.getSessionId();
+        publish(sessionId, EVENT_STATUS, AssessmentEvent.of(state, "Status changed to " + state.getStatus(), null));
+        
+        if (TERMINAL_STATUSES.contains(state.getStatus())) {
+            List<SseEmitter> sessionEmitters = emitters.remove(sessionId);
+            if (sessionEmitters != null) {
+                sessionEmitters.forEach(SseEmitter::complete);
+            }
+        }
+    }
+    
+    private void publish(String sessionId, String eventName, AssessmentEvent event) {
+        List<SseEmitter> sessionEmitters = emitters.get(sessionId);
+        if (sessionEmitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : sessionEmitters) {
+            send(sessionId, emitter, eventName, event);
+        }
+    }
+    
+    /**
+     * Envia o evento; um cliente que falha é removido na hora, sem aguardar o callback do container
+     */
+    private boolean send(String sessionId, SseEmitter emitter, String eventName, AssessmentEvent event) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(event));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping SSE subscriber for session {}: {}", sessionId, e.getMessage());
+            remove(sessionId, emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+    
+    private void remove(String sessionId, SseEmitter emitter) {
+        emitters.computeIfPresent(sessionId, (id, list) -> {
+            list.remove(emitter);
+            return list.isEmpty() ? null : list;
+        });
+    }
+}
@@ -0,0 +1,422 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.agent.Agent;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.StateField;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.CompileConfig;
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.GraphInput;
+import org.bsc.langgraph4j.GraphStateException;
+import org.bsc.langgraph4j.NodeOutput;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.StateGraph;
+import org.bsc.langgraph4j.action.AsyncNodeAction;
+import org.bsc.langgraph4j.checkpoint.BaseCheckpointSaver;
+import org.bsc.langgraph4j.checkpoint.FileSystemSaver;
+import org.bsc.langgraph4j.serializer.std.ObjectStreamStateSerializer;
+import org.bsc.langgraph4j.state.RemoveByHash;
+import org.bsc.langgraph4j.state.StateSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import static org.bsc.langgraph4j.action.AsyncEdgeAction.edge_async;
+import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
+
+/**
+ * Fluxo de agentes modelado como StateGraph do LangGraph4j
+ * - Um nó por agente, com arestas derivadas do AgentDependencyGraph
+ *   (agentes independentes executam como ramos paralelos)
+ * - Nó de aprovação humana com interrupção nativa (interruptBefore)
+ * - Checkpoint a cada nó concluído; nós de agentes já concluídos são
+ *   reaproveitados, de modo que uma retomada não repete chamadas ao LLM
+ * - Observação por execução de agente (health.agent.execution), filha da
+ *   observação da avaliação mesmo nos ramos paralelos, e contagem das
+ *   etapas por agente e status (concluída, reaproveitada, falha)
+ */
+@Slf4j
+@Component
+public class AssessmentGraph {
+    
+    public static final String APPROVAL_NODE = "emr_comms_approval";
+    
+    static final String STAGES_METRIC = "health.assessment.stages";
+    
+    private static final String ROUTE_REPROCESS = "reprocess";
+    private static final String ROUTE_END = "end";
+    
+    private final AgentDependencyGraph dependencyGraph;
+    private final ExecutorService assessmentExecutor;
+    private final AssessmentEventPublisher eventPublisher;
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+    private final SessionCheckpointSaver checkpointSaver;
+    private final CompiledGraph<AssessmentGraphState> graph;
+    
+    // Execuções em andamento, para refletir o progresso na sessão enquanto os nós executam
+    private final Map<String, LiveRun> liveRuns = new ConcurrentHashMap<>();
+    
+    public AssessmentGraph(
+            List<Agent> agents,
+            ExecutorService assessmentExecutor,
+            AssessmentEventPublisher eventPublisher,
+            ObservationRegistry observationRegistry,
+            MeterRegistry meterRegistry,
+            @Value("${health.multiagent.flow.mode:SEQUENTIAL}") FlowMode mode,
+            @Value("${health.multiagent.graph.checkpoint-dir:}") String checkpointDir) throws GraphStateException {
+        this.dependencyGraph = new AgentDependencyGraph(agents, mode);
+        this.assessmentExecutor = assessmentExecutor;
+        this.eventPublisher = eventPublisher;
+        this.observationRegistry = observationRegistry;
+        this.meterRegistry = meterRegistry;
+        
+        ObjectStreamStateSerializer<AssessmentGraphState> serializer =
+            new ObjectStreamStateSerializer<>(AssessmentGraphState::new);
+        this.checkpointSaver = SessionCheckpointSaver.create(checkpointDir, serializer);
+        this.graph = buildGraph(serializer).compile(CompileConfig.builder()
+            .checkpointSaver(checkpointSaver)
+            .interruptBefore(APPROVAL_NODE)
+            .build());
+        
+        log.info("Assessment graph compiled in {} mode with {} checkpoints", mode,
+            checkpointSaver instanceof FileSystemSaver ? "file system" : "in-memory");
+    }
+    
+    /**
+     * Executa o fluxo desde o início até a interrupção para aprovação
+     */
+    public void start(PatientAssessmentState session) {
+        run(session, GraphInput.args(AssessmentGraphState.from(session, List.of())), configFor(session.getSessionId()));
+    }
+    
+    /**
+     * Registra a decisão do médico e retoma o grafo a partir do nó de aprovação
+     *
+     * @param reprocessAgents agentes a reexecutar em caso de rejeição; vazio reexecuta todos
+     */
+    public void resume(PatientAssessmentState session, String decision, String comments,
+                       Collection<String> reprocessAgents) throws Exception {
+        RunnableConfig config = configFor(session.getSessionId());
+        
+        Map<String, Object> approval = new HashMap<>();
+        approval.put(AssessmentGraphState.APPROVAL_STATUS, decision);
+        approval.put(AssessmentGraphState.APPROVAL_COMMENTS, comments);
+        approval.put(AssessmentGraphState.REPROCESS_AGENTS, new ArrayList<>(reprocessAgents));
+        graph.updateState(config, approval);
+        
+        run(session, GraphInput.resume(), config);
+    }
+    
+    /**
+     * Nomes dos agentes do fluxo, na ordem de execução
+     */
+    public List<String> agentNames() {
+        return dependencyGraph.executionOrder().stream().map(Agent::name).toList();
+    }
+    
+    /**
+     * Recupera o estado de uma sessão a partir do último checkpoint
+     */
+    public Optional<PatientAssessmentState> restore(String sessionId) {
+        return stateOf(configFor(sessionId))
+            .map(snapshot -> snapshot.state().toAssessment());
+    }
+    
+    /**
+     * Reexecuta o grafo a partir do estado do último checkpoint.
+     * Agentes já concluídos são reaproveitados e apenas os pendentes chamam o LLM;
+     * o fluxo termina novamente na interrupção de aprovação.
+     * Sem checkpoint (ex.: sessão carregada do SessionStore após reinício com
+     * checkpoints em memória), sessões aguardando aprovação não reexecutam agentes.
+     */
+    public void recover(PatientAssessmentState session) {
+        RunnableConfig config = configFor(session.getSessionId());
+        List<String> completedAgents = stateOf(config)
+            .map(snapshot -> snapshot.state().completedAgents())
+            .orElseGet(() -> "AWAITING_APPROVAL".equals(session.getStatus()) ? agentNames() : List.of());
+        
+        log.info("Recovering session {} from checkpoint, completed agents: {}", session.getSessionId(), completedAgents);
+        run(session, GraphInput.args(AssessmentGraphState.from(session, completedAgents)), config);
+    }
+    
+    /**
+     * Libera os checkpoints da sessão, em memória e em arquivo
+     */
+    public void discard(String sessionId) {
+        checkpointSaver.discard(configFor(sessionId));
+    }
+    
+    /**
+     * Libera os checkpoints da sessão do heap, mantendo-a recuperável pelo arquivo
+     */
+    public void offload(String sessionId) {
+        checkpointSaver.offload(configFor(sessionId));
+    }
+    
+    /**
+     * Último checkpoint da sessão; sessões sem checkpoint não deixam entrada no saver
+     */
+    private Optional<StateSnapshot<AssessmentGraphState>> stateOf(RunnableConfig config) {
+        if (!checkpointSaver.hasCheckpoints(config)) {
+            return Optional.empty();
+        }
+        return graph.stateOf(config);
+    }
+    
+    BaseCheckpointSaver checkpointSaver() {
+        return checkpointSaver;
+    }
+    
+    private void run(PatientAssessmentState session, GraphInput input, RunnableConfig config) {
+        String sessionId = session.getSessionId();
+        liveRuns.put(sessionId, new LiveRun(session, new TreeSet<>(), observationRegistry.getCurrentObservation()));
+        
+        try {
+            for (NodeOutput<AssessmentGraphState> output : graph.stream(input, config)) {
+                String previousStatus = session.getStatus();
+                output.state().applyTo(session);
+                if (!Objects.equals(previousStatus, session.getStatus())) {
+                    eventPublisher.statusChanged(session);
+                }
+            }
+        } finally {
+            liveRuns.remove(sessionId);
+        }
+        
+        StateSnapshot<AssessmentGraphState> snapshot = graph.getState(config);
+        if (APPROVAL_NODE.equals(snapshot.next())) {
+            awaitApproval(session, config);
+        }
+    }
+    
+    /**
+     * Registra no checkpoint e na sessão que o fluxo aguarda aprovação humana
+     */
+    private void awaitApproval(PatientAssessmentState session, RunnableConfig config) {
+        try {
+            graph.updateState(config, Map.of(
+                AssessmentGraphState.STATUS, "AWAITING_APPROVAL",
+                AssessmentGraphState.APPROVAL_STATUS, "PENDING"));
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to checkpoint approval interruption", e);
+        }
+        
+        session.setApprovalStatus("PENDING");
+        session.setStatus("AWAITING_APPROVAL");
+        eventPublisher.statusChanged(session);
+        
+        log.info("Assessment graph interrupted before {} for session: {}", APPROVAL_NODE, session.getSessionId());
+    }
+    
+    private StateGraph<AssessmentGraphState> buildGraph(
+            ObjectStreamStateSerializer<AssessmentGraphState> serializer) throws GraphStateException {
+        StateGraph<AssessmentGraphState> stateGraph = new StateGraph<>(AssessmentGraphState.SCHEMA, serializer);
+        
+        List<Agent> entryAgents = dependencyGraph.entryAgents();
+        if (entryAgents.size() != 1) {
+            throw new IllegalStateException("Assessment graph requires a single entry agent, found: "
+                + entryAgents.stream().map(Agent::name).toList());
+        }
+        String entryNode = entryAgents.get(0).name();
+        
+        for (Agent agent : dependencyGraph.executionOrder()) {
+            stateGraph.addNode(agent.name(), agentNode(agent));
+        }
+        stateGraph.addEdge(StateGraph.START, entryNode);
+        
+        List<String> exitNodes = new ArrayList<>();
+        for (Agent agent : dependencyGraph.executionOrder()) {
+            for (String dependency : dependencyGraph.directDependenciesOf(agent.name())) {
+                stateGraph.addEdge(dependency, agent.name());
+            }
+            if (dependencyGraph.directDependentsOf(agent.name()).isEmpty()) {
+                exitNodes.add(agent.name());
+            }
+        }
+        
+        stateGraph.addNode(APPROVAL_NODE, node_async(this::approve));
+        for (String exitNode : exitNodes) {
+            stateGraph.addEdge(exitNode, APPROVAL_NODE);
+        }
+        stateGraph.addConditionalEdges(APPROVAL_NODE,
+            edge_async(state -> "REPROCESSING".equals(state.status()) ? ROUTE_REPROCESS : ROUTE_END),
+            Map.of(ROUTE_REPROCESS, entryNode, ROUTE_END, StateGraph.END));
+        
+        return stateGraph;
+    }
+    
+    /**
+     * Nó de um agente: executa sobre uma visão do estado do grafo e retorna
+     * apenas os campos produzidos. Agentes já concluídos não são reexecutados.
+     */
+    private AsyncNodeAction<AssessmentGraphState> agentNode(Agent agent) {
+        return node_async(graphState -> {
+            if (graphState.completedAgents().contains(agent.name())) {
+                log.debug("Reusing {} results for session: {}", agent.name(), graphState.sessionId());
+                recordStage(agent.name(), "reused");
+                return Map.of();
+            }
+            
+            PatientAssessmentState view = graphState.toAssessment();
+            LiveRun liveRun = liveRuns.get(view.getSessionId());
+            PatientAssessmentState session = liveRun != null ? liveRun.session() : view;
+            
+            if (liveRun != null) {
+                liveRun.started(agent.name());
+            }
+            eventPublisher.agentStarted(session, agent.name());
+            
+            Object result = observeExecution(agent, view, liveRun);
+            
+            if (liveRun != null) {
+                for (StateField output : agent.outputs()) {
+                    output.set(session, output.get(view));
+                }
+                liveRun.finished(agent.name());
+            }
+            eventPublisher.agentCompleted(session, agent.name(), result);
+            
+            return AssessmentGraphState.outputsOf(agent, view);
+        });
+    }
+    
+    /**
+     * Executa o agente dentro da observação health.agent.execution. Ramos
+     * paralelos executam em outras threads, por isso o pai é a observação
+     * ativa quando o grafo foi iniciado.
+     */
+    private Object observeExecution(Agent agent, PatientAssessmentState view, LiveRun liveRun) {
+        Observation observation = AssessmentObservations.withSession(
+            Observation.createNotStarted(AssessmentObservations.AGENT_EXECUTION, observationRegistry)
+                .contextualName(agent.name())
+                .lowCardinalityKeyValue(AssessmentObservations.AGENT_KEY, agent.name()), view);
+        if (liveRun != null && liveRun.parent() != null) {
+            observation.parentObservation(liveRun.parent());
+        }
+        
+        observation.start();
+        try (Observation.Scope scope = observation.openScope()) {
+            Object result = agent.execute(view);
+            recordStage(agent.name(), "completed");
+            return result;
+        } catch (RuntimeException e) {
+            observation.error(e);
+            recordStage(agent.name(), "failed");
+            throw e;
+        } finally {
+            AssessmentObservations.withOutcome(observation, view);
+            observation.stop();
+        }
+    }
+    
+    private void recordStage(String agent, String status) {
+        Counter.builder(STAGES_METRIC)
+            .description("Agent stages of the assessment flow, by agent and status")
+            .tag("agent", agent)
+            .tag("status", status)
+            .register(meterRegistry)
+            .increment();
+    }
+    
+    /**
+     * Nó de aprovação humana, executado ao retomar o grafo com a decisão do médico.
+     * Na rejeição, registra o histórico, descarta os resultados dos agentes
+     * afetados pelo feedback e encaminha o fluxo para reprocessamento.
+     */
+    private Map<String, Object> approve(AssessmentGraphState state) {
+        Map<String, Object> updates = new HashMap<>();
+        
+        if ("APPROVED".equals(state.approvalStatus())) {
+            updates.put(AssessmentGraphState.STATUS, "COMPLETED");
+            return updates;
+        }
+        
+        int reprocessingCount = state.reprocessingCount();
+        int maxIterations = state.<Integer>value(AssessmentGraphState.MAX_REPROCESSING_ITERATIONS).orElse(3);
+        if (reprocessingCount >= maxIterations) {
+            log.warn("Maximum reprocessing iterations reached for session: {}", state.sessionId());
+            updates.put(AssessmentGraphState.STATUS, "REJECTED");
+            return updates;
+        }
+        
+        log.info("Assessment rejected, initiating reprocessing. Iteration: {}", reprocessingCount + 1);
+        
+        String feedback = state.<String>value(AssessmentGraphState.APPROVAL_COMMENTS).orElse(null);
+        List<String> history = new ArrayList<>(
+            state.<List<String>>value(StateField.ASSESSMENT_HISTORY.key()).orElse(List.of()));
+        history.add(String.format(
+            "Iteration %d - Risk: %s, Exams: %s, Physician Feedback: %s",
+            reprocessingCount,
+            state.<String>value(StateField.RISK_LEVEL.key()).orElse(null),
+            state.<List<String>>value(StateField.RECOMMENDED_LAB_EXAMS.key()).map(List::size).orElse(0),
+            feedback
+        ));
+        
+        // Descarta apenas os resultados dos agentes alvo e dos que dependem deles;
+        // os demais permanecem em completedAgents e são reaproveitados
+        List<String> targets = state.<List<String>>value(AssessmentGraphState.REPROCESS_AGENTS).orElse(List.of());
+        List<String> invalidated = targets.isEmpty()
+            ? agentNames()
+            : dependencyGraph.affectedBy(targets);
+        log.info("Reprocessing agents {} for session: {}", invalidated, state.sessionId());
+        
+        for (String agentName : invalidated) {
+            for (StateField output : dependencyGraph.agent(agentName).outputs()) {
+                updates.put(output.key(), output.emptyValue());
+            }
+        }
+        updates.put(AssessmentGraphState.COMPLETED_AGENTS, invalidated.stream().map(RemoveByHash::of).toList());
+        updates.put(StateField.PHYSICIAN_FEEDBACK.key(), feedback);
+        updates.put(StateField.ASSESSMENT_HISTORY.key(), history);
+        updates.put(AssessmentGraphState.REPROCESSING_COUNT, reprocessingCount + 1);
+        updates.put(AssessmentGraphState.APPROVAL_STATUS, "PENDING");
+        updates.put(AssessmentGraphState.STATUS, "REPROCESSING");
+        return updates;
+    }
+    
+    private RunnableConfig configFor(String sessionId) {
+        RunnableConfig.Builder builder = RunnableConfig.builder().threadId(sessionId);
+        for (Agent agent : dependencyGraph.executionOrder()) {
+            // Ramos paralelos executam no executor de virtual threads
+            if (dependencyGraph.directDependentsOf(agent.name()).size() > 1) {
+                builder.addParallelNodeExecutor(agent.name(), assessmentExecutor);
+            }
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Sessão em execução e agentes ativos, para atualizar currentAgent;
+     * parent é a observação ativa ao iniciar a execução do grafo
+     */
+    private record LiveRun(PatientAssessmentState session, Set<String> runningAgents, Observation parent) {
+        
+        synchronized void started(String agent) {
+            runningAgents.add(agent);
+            session.setCurrentAgent(String.join(",", runningAgents));
+        }
+        
+        synchronized void finished(String agent) {
+            runningAgents.remove(agent);
+            if (!runningAgents.isEmpty()) {
+                session.setCurrentAgent(String.join(",", runningAgents));
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.agent.Agent;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.StateField;
+import org.bsc.langgraph4j.state.AgentState;
+import org.bsc.langgraph4j.state.Channel;
+import org.bsc.langgraph4j.state.Channels;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estado do grafo LangGraph4j derivado do PatientAssessmentState
+ * Cada StateField é mantido em uma chave própria, permitindo que os nós
+ * retornem apenas os campos que produzem e que o checkpoint registre o
+ * progresso do fluxo (completedAgents) a cada nó concluído.
+ */
+public class AssessmentGraphState extends AgentState {
+    
+    public static final String SESSION_ID = "sessionId";
+    public static final String START_TIME = "startTime";
+    public static final String STATUS = "status";
+    public static final String REPROCESSING_COUNT = "reprocessingCount";
+    public static final String MAX_REPROCESSING_ITERATIONS = "maxReprocessingIterations";
+    public static final String APPROVAL_STATUS = "approvalStatus";
+    public static final String APPROVAL_COMMENTS = "approvalComments";
+    public static final String COMPLETED_AGENTS = "completedAgents";
+    public static final String REPROCESS_AGENTS = "reprocessAgents";
+    
+    // Agentes paralelos registram sua conclusão no mesmo canal
+    public static final Map<String, Channel<?>> SCHEMA = Map.of(
+        COMPLETED_AGENTS, Channels.appender(ArrayList::new)
+    );
+    
+    public AssessmentGraphState(Map<String, Object> initData) {
+        super(initData);
+    }
+    
+    /**
+     * Converte o estado da sessão em entrada do grafo
+     */
+    public static Map<String, Object> from(PatientAssessmentState state, List<String> completedAgents) {
+        Map<String, Object> data = new HashMap<>();
+        put(data, SESSION_ID, state.getSessionId());
+        put(data, START_TIME, state.getStartTime());
+        put(data, STATUS, state.getStatus());
+        put(data, APPROVAL_STATUS, state.getApprovalStatus());
+        put(data, APPROVAL_COMMENTS, state.getApprovalComments());
+        data.put(REPROCESSING_COUNT, state.getReprocessingCount());
+        data.put(MAX_REPROCESSING_ITERATIONS, state.getMaxReprocessingIterations());
+        data.put(COMPLETED_AGENTS, new ArrayList<>(completedAgents));
+        
+        for (StateField field : StateField.values()) {
+            Object value = field.get(state);
+            put(data, field.key(), field.isList() && value != null ? new ArrayList<>((List<?>) value) : value);
+        }
+        return data;
+    }
+    
+    /**
+     * Campos produzidos pelo agente, no formato de atualização do grafo
+     */
+    public static Map<String, Object> outputsOf(Agent agent, PatientAssessmentState state) {
+        Map<String, Object> outputs = new HashMap<>();
+        for (StateField field : agent.outputs()) {
+            Object value = field.get(state);
+            outputs.put(field.key(), field.isList() && value != null ? new ArrayList<>((List<?>) value) : value);
+        }
+        outputs.put(COMPLETED_AGENTS, List.of(agent.name()));
+        return outputs;
+    }
+    
+    public String sessionId() {
+        return this.<String>value(SESSION_ID).orElse(null);
+    }
+    
+    public String status() {
+        return this.<String>value(STATUS).orElse(null);
+    }
+    
+    public String approvalStatus() {
+        return this.<String>value(APPROVAL_STATUS).orElse(null);
+    }
+    
+    public int reprocessingCount() {
+        return this.<Integer>value(REPROCESSING_COUNT).orElse(0);
+    }
+    
+    public List<String> completedAgents() {
+        return this.<List<String>>value(COMPLETED_AGENTS).orElse(List.of());
+    }
+    
+    /**
+     * Reconstrói um PatientAssessmentState a partir do estado do grafo
+     */
+    public PatientAssessmentState toAssessment() {
+        PatientAssessmentState state = new PatientAssessmentState();
+        state.setSessionId(sessionId());
+        state.setStartTime(this.<LocalDateTime>value(START_TIME).orElse(null));
+        applyTo(state);
+        return state;
+    }
+    
+    /**
+     * Copia os dados do grafo para o estado da sessão
+     */
+    public void applyTo(PatientAssessmentState state) {
+        for (StateField field : StateField.values()) {
+            field.set(state, value(field.key()).orElse(null));
+        }
+        state.setReprocessingCount(reprocessingCount());
+        state.setMaxReprocessingIterations(
+            this.<Integer>value(MAX_REPROCESSING_ITERATIONS).orElse(state.getMaxReprocessingIterations()));
+        state.setApprovalStatus(approvalStatus());
+        state.setApprovalComments(this.<String>value(APPROVAL_COMMENTS).orElse(null));
+        
+        // Status por último: publica as escritas anteriores para leitores de outras threads
+        if (status() != null) {
+            state.setStatus(status());
+        }
+    }
+    
+    private static void put(Map<String, Object> data, String key, Object value) {
+        if (value != null) {
+            data.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.model.PatientAssessmentState;
+import io.micrometer.observation.Observation;
+
+/**
+ * Nomes e chaves das observações do fluxo de avaliação
+ * Com o tracing habilitado cada observação vira um span: startAssessment e
+ * processApproval são a raiz do trace da avaliação e cada agente executado
+ * é um span filho, com as chamadas ao LLM, a geração do prompt e a
+ * conversão da resposta abaixo dele.
+ */
+final class AssessmentObservations {
+    
+    static final String ASSESSMENT = "health.assessment.flow";
+    static final String AGENT_EXECUTION = "health.agent.execution";
+    
+    static final String OPERATION_KEY = "operation";
+    static final String AGENT_KEY = "agent";
+    static final String SESSION_ID_KEY = "session.id";
+    static final String RISK_LEVEL_KEY = "risk.level";
+    static final String ITERATION_KEY = "iteration";
+    static final String STATUS_KEY = "status";
+    
+    private AssessmentObservations() {
+    }
+    
+    /**
+     * Sessão e iteração de reprocessamento, conhecidas no início da observação
+     */
+    static Observation withSession(Observation observation, PatientAssessmentState state) {
+        return observation
+            .highCardinalityKeyValue(SESSION_ID_KEY, String.valueOf(state.getSessionId()))
+            .highCardinalityKeyValue(ITERATION_KEY, Integer.toString(state.getReprocessingCount()));
+    }
+    
+    /**
+     * Risco, iteração e status ao final da observação (o risco é definido
+     * pelo Triage e a rejeição incrementa a iteração)
+     */
+    static void withOutcome(Observation observation, PatientAssessmentState state) {
+        observation
+            .highCardinalityKeyValue(RISK_LEVEL_KEY, state.getRiskLevel() != null ? state.getRiskLevel() : "UNKNOWN")
+            .highCardinalityKeyValue(ITERATION_KEY, Integer.toString(state.getReprocessingCount()))
+            .highCardinalityKeyValue(STATUS_KEY, String.valueOf(state.getStatus()));
+    }
+}
@@ -0,0 +1,191 @@
+package com.health.multiagent.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.health.multiagent.cluster.ClusterMembership;
+import com.health.multiagent.model.BatchStatusResponse;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.SymptomsRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Processamento de avaliações em lote
+ * Cada lote é percorrido em uma virtual thread que inicia os itens em ordem,
+ * limitados por batch.max-concurrency avaliações simultâneas somando todos os
+ * lotes (fila justa entre lotes). O progresso de cada item fica disponível
+ * pelo batchId até batch.retention-minutes após a última consulta.
+ */
+@Slf4j
+@Service
+public class BatchAssessmentService {
+    
+    private final HealthAssessmentService assessmentService;
+    private final ExecutorService assessmentExecutor;
+    private final ClusterMembership clusterMembership;
+    private final Semaphore permits;
+    private final int maxItems;
+    private final Cache<String, Batch> batches;
+    
+    public BatchAssessmentService(
+            HealthAssessmentService assessmentService,
+            ExecutorService assessmentExecutor,
+            ClusterMembership clusterMembership,
+            @Value("${health.multiagent.batch.max-concurrency:4}") int maxConcurrency,
+            @Value("${health.multiagent.batch.max-items:500}") int maxItems,
+            @Value("${health.multiagent.batch.retention-minutes:1440}") long retentionMinutes) {
+        this.assessmentService = assessmentService;
+        this.assessmentExecutor = assessmentExecutor;
+        this.clusterMembership = clusterMembership;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.maxItems = maxItems;
+        this.batches = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofMinutes(retentionMinutes))
+            .build();
+    }
+    
+    /**
+     * Registra o lote e inicia o processamento em background
+     *
+     * @throws IllegalArgumentException se o lote exceder batch.max-items
+     */
+    public BatchStatusResponse submitBatch(List<SymptomsRequest> requests) {
+        if (requests.size() > maxItems) {
+            throw new IllegalArgumentException("Batch exceeds the limit of " + maxItems + " items");
+        }
+        
+        // Mesmo formato do sessionId: o lote pertence a este nó no cluster
+        Batch batch = new Batch(clusterMembership.newSessionId(), requests);
+        batches.put(batch.id, batch);
+        log.info("Batch {} accepted with {} items", batch.id, requests.size());
+        
+        assessmentExecutor.execute(() -> runBatch(batch));
+        return batch.toResponse();
+    }
+    
+    public Optional<BatchStatusResponse> getBatchStatus(String batchId) {
+        return Optional.ofNullable(batches.getIfPresent(batchId)).map(Batch::toResponse);
+    }
+    
+    private void runBatch(Batch batch) {
+        for (Item item : batch.items) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.items.stream()
+                    .filter(pending -> "QUEUED".equals(pending.status()))
+                    .forEach(pending -> pending.finish(null, "ERROR", "Batch interrupted"));
+                return;
+            }
+            assessmentExecutor.execute(() -> {
+                try {
+                    runItem(item);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+    }
+    
+    private void runItem(Item item) {
+        SymptomsRequest request = item.request;
+        PatientAssessmentState state = PatientAssessmentState.builder()
+            .patientId(request.getPatientId())
+            .symptoms(request.getSymptoms())
+            .medicalHistory(request.getMedicalHistory())
+            .currentMedications(request.getCurrentMedications())
+            .build();
+        item.running = state;
+        
+        try {
+            PatientAssessmentState result = assessmentService.startAssessment(state);
+            item.finish(result.getSessionId(), result.getStatus(), result.getErrorMessage());
+        } catch (RuntimeException e) {
+            log.error("Error processing batch item for patient {}", request.getPatientId(), e);
+            item.finish(state.getSessionId(), "ERROR", e.getMessage());
+        }
+    }
+    
+    private static final class Batch {
+        
+        private final String id;
+        private final List<Item> items;
+        
+        private Batch(String id, List<SymptomsRequest> requests) {
+            this.id = id;
+            this.items = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                items.add(new Item(i, requests.get(i)));
+            }
+        }
+        
+        private BatchStatusResponse toResponse() {
+            List<BatchStatusResponse.ItemStatus> statuses = items.stream().map(Item::toStatus).toList();
+            int queued = (int) statuses.stream().filter(item -> "QUEUED".equals(item.getStatus())).count();
+            int processing = (int) statuses.stream().filter(item -> "PROCESSING".equals(item.getStatus())).count();
+            int finished = statuses.size() - queued - processing;
+            
+            return BatchStatusResponse.builder()
+                .batchId(id)
+                .status(finished == statuses.size() ? "COMPLETED" : "PROCESSING")
+                .total(statuses.size())
+                .queued(queued)
+                .processing(processing)
+                .finished(finished)
+                .items(statuses)
+                .build();
+        }
+    }
+    
+    /**
+     * Item do lote; durante a execução o status é lido do estado da sessão,
+     * que deixa de ser referenciado ao término
+     */
+    private static final class Item {
+        
+        private final int index;
+        private final SymptomsRequest request;
+        
+        private volatile PatientAssessmentState running;
+        private volatile String sessionId;
+        private volatile String status = "QUEUED";
+        private volatile String message;
+        
+        private Item(int index, SymptomsRequest request) {
+            this.index = index;
+            this.request = request;
+        }
+        
+        private String status() {
+            PatientAssessmentState state = running;
+            return state != null ? "PROCESSING" : status;
+        }
+        
+        private void finish(String sessionId, String status, String message) {
+            this.sessionId = sessionId;
+            this.status = status;
+            this.message = message;
+            this.running = null;
+        }
+        
+        private BatchStatusResponse.ItemStatus toStatus() {
+            PatientAssessmentState state = running;
+            return BatchStatusResponse.ItemStatus.builder()
+                .index(index)
+                .patientId(request.getPatientId())
+                .sessionId(state != null ? state.getSessionId() : sessionId)
+                .status(state != null ? "PROCESSING" : status)
+                .message(state != null ? state.getCurrentAgent() : message)
+                .build();
+        }
+    }
+}
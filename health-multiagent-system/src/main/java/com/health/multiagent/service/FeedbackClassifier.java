@@ -0,0 +1,70 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.agent.EMRCommsAgent;
+import com.health.multiagent.agent.ExamAgent;
+import com.health.multiagent.agent.PharmacistAgent;
+import com.health.multiagent.agent.TriageAgent;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Classifica o feedback do médico nos agentes a que ele se refere
+ * Usado no reprocessamento quando a requisição de aprovação não informa
+ * os agentes alvo. Termos em português e inglês, comparados sem acentos
+ * com o início das palavras.
+ * Feedback sem termos reconhecidos não é classificado (reprocessa tudo).
+ */
+@Component
+public class FeedbackClassifier {
+    
+    private static final Map<String, List<String>> KEYWORDS = new LinkedHashMap<>();
+    
+    static {
+        KEYWORDS.put(TriageAgent.NAME, List.of(
+            "triagem", "triage", "risco", "risk", "gravidade", "severity",
+            "sintoma", "symptom", "urgencia", "urgency"));
+        KEYWORDS.put(PharmacistAgent.NAME, List.of(
+            "medicamento", "medicacao", "medication", "medicine", "farmaco", "drug",
+            "interacao", "interaction", "contraindica", "dose", "posologia", "dosage",
+            "prescricao", "prescription"));
+        KEYWORDS.put(ExamAgent.NAME, List.of(
+            "exame", "exam", "laboratori", "lab", "imagem", "imaging", "raio x", "x ray",
+            "tomografia", "ressonancia", "ultrassom", "ultrasound", "hemograma", "ecg"));
+        KEYWORDS.put(EMRCommsAgent.NAME, List.of(
+            "fhir", "prontuario", "documentacao", "documentation", "comunicacao",
+            "communication", "mensagem", "message", "texto", "wording", "relatorio", "report"));
+    }
+    
+    /**
+     * Agentes citados no feedback, ou conjunto vazio quando nenhum é reconhecido
+     */
+    public Set<String> classify(String feedback) {
+        Set<String> agents = new LinkedHashSet<>();
+        if (feedback == null || feedback.isBlank()) {
+            return agents;
+        }
+        
+        String text = normalize(feedback);
+        KEYWORDS.forEach((agent, keywords) -> {
+            if (keywords.stream().anyMatch(keyword -> text.contains(" " + keyword))) {
+                agents.add(agent);
+            }
+        });
+        return agents;
+    }
+    
+    private static String normalize(String text) {
+        // Espaço inicial para que cada termo seja comparado com o início de uma palavra
+        return " " + Normalizer.normalize(text, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}", "")
+            .toLowerCase(Locale.ROOT)
+            .replaceAll("[^a-z0-9]+", " ");
+    }
+}
@@ -0,0 +1,11 @@
+package com.health.multiagent.service;
+
+/**
+ * Modo de execução do fluxo de agentes
+ * - SEQUENTIAL: respeita também as entradas opcionais (Triage → resumo do histórico → Pharmacist → Exam → EMR/Comms)
+ * - PARALLEL: considera apenas entradas obrigatórias; Pharmacist e Exam iniciam juntos após o resumo do histórico
+ */
+public enum FlowMode {
+    SEQUENTIAL,
+    PARALLEL
+}
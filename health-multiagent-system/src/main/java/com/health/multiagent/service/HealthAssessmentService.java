@@ -1,48 +1,80 @@
 package com.health.multiagent.service;
 
-import com.health.multiagent.agent.EMRCommsAgent;
-import com.health.multiagent.agent.ExamAgent;
-import com.health.multiagent.agent.PharmacistAgent;
-import com.health.multiagent.agent.TriageAgent;
-import com.health.multiagent.model.*;
+import com.health.multiagent.cluster.ClusterMembership;
+import com.health.multiagent.exception.AssessmentCapacityExceededException;
+import com.health.multiagent.llm.SemanticResultCache;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.pharmacy.MedicationNormalizer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
 
 /**
  * Serviço orquestrador do fluxo multi-agente
- * Coordena a execução sequencial dos agentes:
+ * Coordena a execução dos agentes via AssessmentGraph (LangGraph4j):
  * 1. Triage Agent
- * 2. Pharmacist Agent
- * 3. Exam Agent
- * 4. EMR/Comms Agent (com aprovação humana)
+ * 2. Resumo do histórico médico (MedicalHistorySummarizer)
+ * 3. Pharmacist Agent e Exam Agent (em paralelo no modo PARALLEL)
+ * 4. EMR/Comms Agent
+ * 5. Interrupção para aprovação humana, com retomada a partir do checkpoint
+ * Cada execução (startAssessment/submitAssessment e processApproval) é uma
+ * observação health.assessment.flow, raiz do trace com os spans dos agentes.
+ * As avaliações assíncronas em andamento são limitadas a async.max-in-flight;
+ * acima do limite, a submissão é recusada antes de registrar a sessão.
  */
 @Slf4j
 @Service
 public class HealthAssessmentService {
     
-    private final TriageAgent triageAgent;
-    private final PharmacistAgent pharmacistAgent;
-    private final ExamAgent examAgent;
-    private final EMRCommsAgent emrCommsAgent;
+    private final AssessmentGraph assessmentGraph;
+    private final ExecutorService assessmentExecutor;
+    private final AssessmentEventPublisher eventPublisher;
+    private final ObservationRegistry observationRegistry;
+    private final FeedbackClassifier feedbackClassifier;
+    private final SemanticResultCache semanticCache;
+    private final MedicationNormalizer medicationNormalizer;
     
-    // Armazena sessões ativas (em produção, usar banco de dados)
-    private final Map<String, PatientAssessmentState> activeSessions = new ConcurrentHashMap<>();
+    // Sessões ativas, com expiração por inatividade e limite de quantidade
+    private final SessionRegistry sessionRegistry;
+    private final ClusterMembership clusterMembership;
+    
+    // Vagas de avaliações assíncronas em andamento
+    private final int maxAsyncInFlight;
+    private final Semaphore asyncPermits;
     
     public HealthAssessmentService(
-            TriageAgent triageAgent,
-            PharmacistAgent pharmacistAgent,
-            ExamAgent examAgent,
-            EMRCommsAgent emrCommsAgent) {
-        this.triageAgent = triageAgent;
-        this.pharmacistAgent = pharmacistAgent;
-        this.examAgent = examAgent;
-        this.emrCommsAgent = emrCommsAgent;
+            AssessmentGraph assessmentGraph,
+            ExecutorService assessmentExecutor,
+            AssessmentEventPublisher eventPublisher,
+            ObservationRegistry observationRegistry,
+            FeedbackClassifier feedbackClassifier,
+            SemanticResultCache semanticCache,
+            MedicationNormalizer medicationNormalizer,
+            SessionRegistry sessionRegistry,
+            ClusterMembership clusterMembership,
+            @Value("${health.multiagent.async.max-in-flight:200}") int maxAsyncInFlight) {
+        this.assessmentGraph = assessmentGraph;
+        this.assessmentExecutor = assessmentExecutor;
+        this.eventPublisher = eventPublisher;
+        this.observationRegistry = observationRegistry;
+        this.feedbackClassifier = feedbackClassifier;
+        this.semanticCache = semanticCache;
+        this.medicationNormalizer = medicationNormalizer;
+        this.sessionRegistry = sessionRegistry;
+        this.clusterMembership = clusterMembership;
+        this.maxAsyncInFlight = maxAsyncInFlight;
+        this.asyncPermits = new Semaphore(maxAsyncInFlight);
+        sessionRegistry.setEvictionListener(this::sessionEvicted);
     }
     
     /**
@@ -51,206 +83,267 @@ public class HealthAssessmentService {
     public PatientAssessmentState startAssessment(PatientAssessmentState initialState) {
         log.info("Starting new patient assessment");
         
-        // Gerar ID de sessão
-        String sessionId = UUID.randomUUID().toString();
+        registerSession(initialState);
+        runAssessment(initialState);
+        
+        return initialState;
+    }
+    
+    /**
+     * Inicia uma nova avaliação sem bloquear o chamador.
+     * O fluxo de agentes é executado em uma virtual thread e o progresso
+     * pode ser acompanhado via getSessionState.
+     *
+     * @throws AssessmentCapacityExceededException com max-in-flight avaliações assíncronas em andamento
+     */
+    public PatientAssessmentState submitAssessment(PatientAssessmentState initialState) {
+        log.info("Submitting new patient assessment for asynchronous processing");
+        
+        if (!asyncPermits.tryAcquire()) {
+            log.warn("Rejecting asynchronous assessment: {} assessments in progress", maxAsyncInFlight);
+            throw new AssessmentCapacityExceededException(
+                "Too many assessments in progress (" + maxAsyncInFlight + "), retry later");
+        }
+        try {
+            registerSession(initialState);
+            assessmentExecutor.execute(() -> {
+                try {
+                    runAssessment(initialState);
+                } finally {
+                    asyncPermits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            // Executor encerrado (ex.: desligamento) ou falha no registro: a vaga não foi usada
+            asyncPermits.release();
+            throw e;
+        }
+        
+        return initialState;
+    }
+    
+    /**
+     * Gera o ID de sessão (pertencente a este nó no cluster), normaliza as medicações e registra o estado inicial
+     */
+    private void registerSession(PatientAssessmentState initialState) {
+        String sessionId = clusterMembership.newSessionId();
         initialState.setSessionId(sessionId);
+        initialState.setMedicationIds(medicationNormalizer.canonicalIds(initialState.getCurrentMedications()));
         initialState.setStartTime(LocalDateTime.now());
         initialState.setStatus("PROCESSING");
         
-        // Salvar sessão
-        activeSessions.put(sessionId, initialState);
-        
-        try {
-            // Executar fluxo de agentes
-            executeAgentFlow(initialState);
-            
-            return initialState;
+        sessionRegistry.put(initialState);
+    }
+    
+    /**
+     * Executa o fluxo de agentes, registrando falhas no próprio estado
+     */
+    private void runAssessment(PatientAssessmentState state) {
+        Observation observation = observation("start-assessment", state).start();
+        try (Observation.Scope scope = observation.openScope()) {
+            executeAgentFlow(state);
             
         } catch (Exception e) {
             log.error("Error during assessment", e);
-            initialState.setStatus("ERROR");
-            initialState.setErrorMessage(e.getMessage());
-            return initialState;
+            observation.error(e);
+            state.setErrorMessage(e.getMessage());
+            state.setStatus("ERROR");
+            eventPublisher.statusChanged(state);
+        } finally {
+            AssessmentObservations.withOutcome(observation, state);
+            observation.stop();
         }
+        sessionRegistry.save(state);
     }
     
     /**
-     * Executa o fluxo sequencial de agentes
+     * Executa o grafo de agentes até a interrupção para aprovação humana
      */
     private void executeAgentFlow(PatientAssessmentState state) {
         log.info("Executing agent flow for session: {}", state.getSessionId());
         
-        // 1. Triage Agent
-        state.setCurrentAgent("TRIAGE");
-        RiskAssessment riskAssessment = triageAgent.assessPatient(state);
-        state.setRiskLevel(riskAssessment.riskLevel());
-        state.setSymptomsSummary(riskAssessment.symptomsSummary());
-        state.setTriageRecommendations(riskAssessment.recommendations());
-        
-        log.info("Triage completed - Risk: {}", riskAssessment.riskLevel());
-        
-        // 2. Pharmacist Agent
-        state.setCurrentAgent("PHARMACIST");
-        PharmacyAnalysis pharmacyAnalysis = pharmacistAgent.analyzeMedications(state);
-        state.setDrugInteractions(pharmacyAnalysis.drugInteractions());
-        state.setContraindications(pharmacyAnalysis.contraindications());
-        state.setPharmacistRecommendations(pharmacyAnalysis.recommendations());
-        
-        log.info("Pharmacy analysis completed - Interactions: {}", 
-            pharmacyAnalysis.drugInteractions().size());
-        
-        // 3. Exam Agent
-        state.setCurrentAgent("EXAM");
-        ExamRecommendations examRecommendations = examAgent.recommendExams(state);
-        state.setRecommendedLabExams(examRecommendations.laboratoryExams());
-        state.setRecommendedImagingExams(examRecommendations.imagingExams());
-        state.setExamPriority(examRecommendations.priority());
-        state.setExamRecommendations(examRecommendations.rationale());
+        assessmentGraph.start(state);
         
-        log.info("Exam recommendations completed - Priority: {}", examRecommendations.priority());
-        
-        // 4. EMR/Comms Agent
-        state.setCurrentAgent("EMR_COMMS");
-        FHIRDocumentation documentation = emrCommsAgent.generateDocumentation(state);
-        state.setFhirDocument(documentation.fhirDocument());
-        state.setCommunicationText(documentation.communicationText());
-        
-        log.info("FHIR documentation generated - Type: {}", documentation.documentType());
-        
-        // Aguardar aprovação humana
-        state.setStatus("AWAITING_APPROVAL");
-        state.setApprovalStatus("PENDING");
-        
-        log.info("Assessment completed, awaiting human approval");
+        log.info("Agent flow completed - Risk: {}, Exam priority: {}",
+            state.getRiskLevel(), state.getExamPriority());
     }
     
     /**
      * Processa aprovação humana
+     * A decisão é registrada no checkpoint e o grafo é retomado a partir do
+     * nó de aprovação: aprovação conclui o fluxo; rejeição reprocessa com o
+     * feedback do médico até o limite de iterações.
+     * Na rejeição, apenas os agentes alvo (informados ou identificados no
+     * feedback) e os que dependem deles são reexecutados.
      */
-    public PatientAssessmentState processApproval(String sessionId, String decision, String comments) {
+    public PatientAssessmentState processApproval(String sessionId, String decision, String comments,
+                                                  List<String> targetAgents) {
         log.info("Processing approval for session: {} - Decision: {}", sessionId, decision);
         
-        PatientAssessmentState state = activeSessions.get(sessionId);
-        if (state == null) {
-            throw new IllegalArgumentException("Session not found: " + sessionId);
-        }
-        
-        if (!"AWAITING_APPROVAL".equals(state.getStatus())) {
-            throw new IllegalStateException("Session is not awaiting approval");
-        }
-        
-        state.setApprovalStatus(decision);
-        state.setApprovalComments(comments);
+        PatientAssessmentState state = getSessionState(sessionId);
+        Set<String> reprocessAgents = resolveReprocessAgents(targetAgents, comments);
         
-        if ("APPROVED".equals(decision)) {
-            state.setStatus("COMPLETED");
-            log.info("Assessment approved and completed for session: {}", sessionId);
-        } else if ("REJECTED".equals(decision)) {
-            // Verificar se pode reprocessar
-            if (state.getReprocessingCount() < state.getMaxReprocessingIterations()) {
-                log.info("Assessment rejected, initiating reprocessing. Iteration: {}", 
-                    state.getReprocessingCount() + 1);
-                
-                // Salvar feedback do médico
-                state.setPhysicianFeedback(comments);
-                
-                // Salvar estado atual no histórico
-                saveCurrentStateToHistory(state);
-                
-                // Incrementar contador de reprocessamento
-                state.setReprocessingCount(state.getReprocessingCount() + 1);
-                
-                // Reprocessar com feedback
-                reprocessWithFeedback(state);
+        synchronized (state) {
+            if (!"AWAITING_APPROVAL".equals(state.getStatus())) {
+                throw new IllegalStateException("Session is not awaiting approval");
+            }
+            
+            Observation observation = observation("process-approval", state)
+                .highCardinalityKeyValue("decision", String.valueOf(decision))
+                .start();
+            try (Observation.Scope scope = observation.openScope()) {
+                assessmentGraph.resume(state, decision, comments, reprocessAgents);
+                if ("COMPLETED".equals(state.getStatus())) {
+                    semanticCache.promote(sessionId);
+                } else if ("REJECTED".equals(state.getStatus())) {
+                    semanticCache.discard(sessionId);
+                }
+                log.info("Approval processed for session: {} - Status: {}", sessionId, state.getStatus());
                 
-            } else {
-                state.setStatus("REJECTED");
-                log.warn("Maximum reprocessing iterations reached for session: {}", sessionId);
+            } catch (Exception e) {
+                log.error("Error during reprocessing", e);
+                observation.error(e);
+                state.setErrorMessage("Reprocessing failed: " + e.getMessage());
+                state.setStatus("ERROR");
+                eventPublisher.statusChanged(state);
+            } finally {
+                AssessmentObservations.withOutcome(observation, state);
+                observation.stop();
             }
         }
+        sessionRegistry.save(state);
         
         return state;
     }
     
     /**
-     * Salva o estado atual no histórico antes de reprocessar
+     * Observação da execução do fluxo para a sessão
+     *
+     * @param operation start-assessment ou process-approval (nome do span)
      */
-    private void saveCurrentStateToHistory(PatientAssessmentState state) {
-        String historyEntry = String.format(
-            "Iteration %d - Risk: %s, Exams: %s, Physician Feedback: %s",
-            state.getReprocessingCount(),
-            state.getRiskLevel(),
-            state.getRecommendedLabExams() != null ? state.getRecommendedLabExams().size() : 0,
-            state.getPhysicianFeedback()
-        );
-        state.getAssessmentHistory().add(historyEntry);
-        log.debug("Saved to history: {}", historyEntry);
+    private Observation observation(String operation, PatientAssessmentState state) {
+        return AssessmentObservations.withSession(
+            Observation.createNotStarted(AssessmentObservations.ASSESSMENT, observationRegistry)
+                .contextualName(operation)
+                .lowCardinalityKeyValue(AssessmentObservations.OPERATION_KEY, operation), state);
     }
     
     /**
-     * Reprocessa a avaliação incorporando o feedback do médico
+     * Agentes alvo do reprocessamento: os informados na requisição ou, na
+     * ausência deles, os identificados no feedback. Vazio reprocessa todos.
      */
-    private void reprocessWithFeedback(PatientAssessmentState state) {
-        log.info("Reprocessing assessment with physician feedback for session: {}", 
-            state.getSessionId());
-        
-        try {
-            // Limpar resultados anteriores (mantendo dados iniciais do paciente)
-            clearPreviousResults(state);
-            
-            // Reexecutar fluxo de agentes com feedback incorporado
-            state.setStatus("REPROCESSING");
-            executeAgentFlow(state);
-            
-            log.info("Reprocessing completed for session: {}", state.getSessionId());
-            
-        } catch (Exception e) {
-            log.error("Error during reprocessing", e);
-            state.setStatus("ERROR");
-            state.setErrorMessage("Reprocessing failed: " + e.getMessage());
+    private Set<String> resolveReprocessAgents(List<String> targetAgents, String comments) {
+        if (targetAgents == null || targetAgents.isEmpty()) {
+            return feedbackClassifier.classify(comments);
         }
-    }
-    
-    /**
-     * Limpa resultados anteriores mantendo dados iniciais do paciente
-     */
-    private void clearPreviousResults(PatientAssessmentState state) {
-        // Manter: patientId, symptoms, medicalHistory, currentMedications, physicianFeedback
-        // Limpar: resultados dos agentes
-        state.setRiskLevel(null);
-        state.setSymptomsSummary(null);
-        state.setTriageRecommendations(null);
-        state.setDrugInteractions(new ArrayList<>());
-        state.setContraindications(new ArrayList<>());
-        state.setPharmacistRecommendations(null);
-        state.setRecommendedLabExams(new ArrayList<>());
-        state.setRecommendedImagingExams(new ArrayList<>());
-        state.setExamPriority(null);
-        state.setExamRecommendations(null);
-        state.setFhirDocument(null);
-        state.setCommunicationText(null);
-        state.setApprovalStatus("PENDING");
         
-        log.debug("Cleared previous results for reprocessing");
+        Set<String> agents = new LinkedHashSet<>(targetAgents);
+        List<String> unknown = agents.stream()
+            .filter(agent -> !assessmentGraph.agentNames().contains(agent))
+            .toList();
+        if (!unknown.isEmpty()) {
+            throw new IllegalStateException("Unknown target agents: " + unknown);
+        }
+        return agents;
     }
     
     /**
      * Recupera estado de uma sessão
+     * Sessões ausentes da memória (ex.: após reinício) são restauradas do
+     * SessionStore, se configurado, ou do último checkpoint do grafo.
      */
     public PatientAssessmentState getSessionState(String sessionId) {
-        PatientAssessmentState state = activeSessions.get(sessionId);
+        PatientAssessmentState state = sessionRegistry.get(sessionId);
         if (state == null) {
-            throw new IllegalArgumentException("Session not found: " + sessionId);
+            state = restoreSession(sessionId);
         }
         return state;
     }
     
+    /**
+     * Restaura a sessão a partir do store ou do checkpoint e retoma o fluxo interrompido.
+     * Sessões aguardando aprovação são retomadas de forma síncrona (nenhum agente
+     * é reexecutado); sessões interrompidas durante o processamento continuam em
+     * background a partir do último agente concluído.
+     */
+    private PatientAssessmentState restoreSession(String sessionId) {
+        PatientAssessmentState restored = sessionRegistry.loadStored(sessionId)
+            .or(() -> assessmentGraph.restore(sessionId))
+            .orElseThrow(() -> new IllegalArgumentException("Session not found: " + sessionId));
+        return resumeSession(restored);
+    }
+    
+    /**
+     * Assume uma sessão transferida por outro nó do cluster e retoma o fluxo
+     * Sem o checkpoint do nó de origem, sessões aguardando aprovação não
+     * reexecutam agentes e sessões interrompidas reiniciam o fluxo.
+     */
+    public PatientAssessmentState adoptSession(PatientAssessmentState state) {
+        return resumeSession(state);
+    }
+    
+    private PatientAssessmentState resumeSession(PatientAssessmentState restored) {
+        PatientAssessmentState existing = sessionRegistry.putIfAbsent(restored);
+        if (existing != null) {
+            return existing;
+        }
+        
+        log.info("Session {} restored with status {}", restored.getSessionId(), restored.getStatus());
+        if ("AWAITING_APPROVAL".equals(restored.getStatus())) {
+            recoverSession(restored);
+        } else if ("PROCESSING".equals(restored.getStatus()) || "REPROCESSING".equals(restored.getStatus())) {
+            assessmentExecutor.execute(() -> recoverSession(restored));
+        } else {
+            sessionRegistry.save(restored);
+        }
+        return restored;
+    }
+    
+    private void recoverSession(PatientAssessmentState state) {
+        try {
+            assessmentGraph.recover(state);
+        } catch (Exception e) {
+            log.error("Error recovering session {}", state.getSessionId(), e);
+            state.setErrorMessage("Recovery failed: " + e.getMessage());
+            state.setStatus("ERROR");
+            eventPublisher.statusChanged(state);
+        }
+        sessionRegistry.save(state);
+    }
+    
+    /**
+     * Inscreve um cliente SSE nos eventos de progresso da sessão
+     */
+    public SseEmitter streamSession(String sessionId) {
+        return eventPublisher.subscribe(getSessionState(sessionId));
+    }
+    
     /**
      * Remove sessão (após conclusão ou timeout)
      */
     public void removeSession(String sessionId) {
-        activeSessions.remove(sessionId);
+        sessionRegistry.remove(sessionId);
+        discardSession(sessionId);
         log.info("Session removed: {}", sessionId);
     }
+    
+    /**
+     * Sessão removida da memória por inatividade ou pelo limite de sessões
+     * Sessões aguardando aprovação removidas pelo limite mantêm o checkpoint
+     * e são restauradas no próximo acesso; nos demais casos o checkpoint e os
+     * resultados pendentes do cache semântico são descartados.
+     */
+    private void sessionEvicted(String sessionId, String status, SessionRegistry.EvictionReason reason) {
+        if (reason == SessionRegistry.EvictionReason.CAPACITY && "AWAITING_APPROVAL".equals(status)) {
+            // Restaurada do checkpoint no próximo acesso
+            assessmentGraph.offload(sessionId);
+            return;
+        }
+        discardSession(sessionId);
+    }
+    
+    private void discardSession(String sessionId) {
+        assessmentGraph.discard(sessionId);
+        semanticCache.discard(sessionId);
+    }
 }
-
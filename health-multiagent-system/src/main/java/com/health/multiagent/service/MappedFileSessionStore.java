@@ -0,0 +1,239 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.model.PatientAssessmentState;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * SessionStore em arquivo mapeado em memória
+ * Os estados são gravados com a codificação compacta do SessionCodec em um
+ * log de registros (tamanho, marcador de registro ativo e conteúdo). Apenas
+ * o índice sessionId -> posição fica no heap; o conteúdo fica no page cache
+ * do sistema operacional e sobrevive a reinícios da aplicação.
+ * Regravações e remoções marcam o registro anterior como removido; o
+ * arquivo é compactado quando o espaço removido supera o ativo.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "health.multiagent.session.store", havingValue = "mapped-file")
+public class MappedFileSessionStore implements SessionStore {
+    
+    private static final int MAGIC = 0x48535331;
+    
+    // Cabeçalho: magic (4), reservado (4) e posição final dos registros (8)
+    private static final int HEADER_SIZE = 16;
+    private static final int END_POSITION_OFFSET = 8;
+    
+    // Registro: tamanho do conteúdo (4) e marcador (1)
+    private static final int RECORD_HEADER_SIZE = 5;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 0;
+    
+    private static final int COMPACTION_MIN_BYTES = 1 << 20;
+    
+    private final Path path;
+    private final Map<String, Integer> index = new HashMap<>();
+    
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+    private long deletedBytes;
+    
+    public MappedFileSessionStore(
+            @Value("${health.multiagent.session.mapped-file.path:data/sessions.db}") String path,
+            @Value("${health.multiagent.session.mapped-file.initial-size-mb:16}") int initialSizeMb) throws IOException {
+        this.path = Path.of(path).toAbsolutePath();
+        if (this.path.getParent() != null) {
+            Files.createDirectories(this.path.getParent());
+        }
+        
+        this.channel = open(this.path);
+        map(Math.max(channel.size(), (long) initialSizeMb << 20));
+        if (buffer.getInt(0) == MAGIC) {
+            readIndex();
+        } else {
+            buffer.putInt(0, MAGIC);
+            setEnd(HEADER_SIZE);
+        }
+        log.info("Session store {} opened with {} sessions", this.path, index.size());
+    }
+    
+    @Override
+    public synchronized void save(PatientAssessmentState state) {
+        byte[] content = SessionCodec.encode(state);
+        int recordSize = RECORD_HEADER_SIZE + content.length;
+        ensureCapacity(recordSize);
+        
+        int position = end;
+        buffer.putInt(position, content.length);
+        buffer.put(position + 4, LIVE);
+        buffer.put(position + RECORD_HEADER_SIZE, content);
+        setEnd(position + recordSize);
+        
+        Integer previous = index.put(state.getSessionId(), position);
+        if (previous != null) {
+            markDeleted(previous);
+        }
+        compactIfNeeded();
+    }
+    
+    @Override
+    public synchronized Optional<PatientAssessmentState> load(String sessionId) {
+        Integer position = index.get(sessionId);
+        if (position == null) {
+            return Optional.empty();
+        }
+        return Optional.of(SessionCodec.decode(content(buffer, position)));
+    }
+    
+    @Override
+    public synchronized void delete(String sessionId) {
+        Integer position = index.remove(sessionId);
+        if (position != null) {
+            markDeleted(position);
+            compactIfNeeded();
+        }
+    }
+    
+    @Override
+    public synchronized Set<String> sessionIds() {
+        return Set.copyOf(index.keySet());
+    }
+    
+    /**
+     * Tamanho ocupado pelos registros, incluindo os removidos ainda não compactados
+     */
+    public synchronized long fileBytes() {
+        return end;
+    }
+    
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+    
+    private void readIndex() {
+        int limit = (int) buffer.getLong(END_POSITION_OFFSET);
+        int position = HEADER_SIZE;
+        while (position + RECORD_HEADER_SIZE <= limit) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > limit) {
+                log.warn("Truncated session record at {} in {}, ignoring the rest of the file", position, path);
+                break;
+            }
+            if (buffer.get(position + 4) == LIVE) {
+                Integer previous = index.put(SessionCodec.sessionId(content(buffer, position)), position);
+                // Gravação interrompida antes de marcar a versão anterior
+                if (previous != null) {
+                    markDeleted(previous);
+                }
+            } else {
+                deletedBytes += RECORD_HEADER_SIZE + length;
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        setEnd(position);
+    }
+    
+    private void markDeleted(int position) {
+        buffer.put(position + 4, DELETED);
+        deletedBytes += RECORD_HEADER_SIZE + buffer.getInt(position);
+    }
+    
+    private void setEnd(int position) {
+        end = position;
+        buffer.putLong(END_POSITION_OFFSET, position);
+    }
+    
+    private void ensureCapacity(int recordSize) {
+        long required = (long) end + recordSize;
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Session store is full: " + path);
+        }
+        long capacity = buffer.capacity();
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        map(Math.min(capacity, Integer.MAX_VALUE));
+    }
+    
+    /**
+     * Reescreve os registros ativos em um novo arquivo, que substitui o atual
+     */
+    private void compactIfNeeded() {
+        long liveBytes = end - HEADER_SIZE - deletedBytes;
+        if (deletedBytes < COMPACTION_MIN_BYTES || deletedBytes < liveBytes) {
+            return;
+        }
+        
+        Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+        try {
+            // Sobra de uma compactação interrompida
+            Files.deleteIfExists(compacted);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to compact session store " + path, e);
+        }
+        try (FileChannel target = open(compacted)) {
+            MappedByteBuffer targetBuffer = target.map(FileChannel.MapMode.READ_WRITE, 0, buffer.capacity());
+            targetBuffer.putInt(0, MAGIC);
+            int position = HEADER_SIZE;
+            for (Map.Entry<String, Integer> entry : index.entrySet()) {
+                int source = entry.getValue();
+                int recordSize = RECORD_HEADER_SIZE + buffer.getInt(source);
+                targetBuffer.put(position, buffer, source, recordSize);
+                entry.setValue(position);
+                position += recordSize;
+            }
+            targetBuffer.putLong(END_POSITION_OFFSET, position);
+            targetBuffer.force();
+            
+            channel.close();
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Session store compacted: {} -> {} bytes", end, position);
+            channel = open(path);
+            map(buffer.capacity());
+            end = position;
+            deletedBytes = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to compact session store " + path, e);
+        }
+    }
+    
+    private void map(long size) {
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to map session store " + path, e);
+        }
+    }
+    
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+    
+    private static ByteBuffer content(ByteBuffer buffer, int position) {
+        int length = buffer.getInt(position);
+        return buffer.slice(position + RECORD_HEADER_SIZE, length);
+    }
+}
@@ -0,0 +1,139 @@
+package com.health.multiagent.service;
+
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.BaseCheckpointSaver;
+import org.bsc.langgraph4j.checkpoint.FileSystemSaver;
+import org.bsc.langgraph4j.checkpoint.MemorySaver;
+import org.bsc.langgraph4j.serializer.std.ObjectStreamStateSerializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Checkpoints do grafo com liberação por sessão
+ * O MemorySaver (e o FileSystemSaver, que o estende) mantém a lista de
+ * checkpoints de cada thread no heap indefinidamente, e qualquer consulta
+ * cria uma entrada vazia para a thread. As implementações abaixo permitem
+ * verificar a existência de checkpoints sem deixar entradas para sessões
+ * desconhecidas e liberar os checkpoints de uma sessão descartada.
+ */
+interface SessionCheckpointSaver extends BaseCheckpointSaver {
+    
+    /**
+     * Indica se a sessão tem checkpoints (em memória ou em arquivo), sem registrar entrada para ela
+     */
+    boolean hasCheckpoints(RunnableConfig config);
+    
+    /**
+     * Remove os checkpoints da sessão do heap e, quando existir, o arquivo
+     */
+    void discard(RunnableConfig config);
+    
+    /**
+     * Libera o heap mantendo a sessão recuperável: com arquivo, remove apenas a
+     * entrada em memória (recarregada do arquivo no próximo acesso); apenas em
+     * memória, os checkpoints são a única cópia e são mantidos
+     */
+    void offload(RunnableConfig config);
+    
+    /**
+     * Checkpoints apenas em memória (diretório vazio) ou em arquivos no diretório
+     */
+    static SessionCheckpointSaver create(String checkpointDir,
+                                         ObjectStreamStateSerializer<AssessmentGraphState> serializer) {
+        if (checkpointDir == null || checkpointDir.isBlank()) {
+            return new InMemory();
+        }
+        try {
+            Path directory = Files.createDirectories(Path.of(checkpointDir));
+            return new FileSystem(directory, serializer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create checkpoint directory: " + checkpointDir, e);
+        }
+    }
+    
+    private static String threadId(RunnableConfig config) {
+        return config.threadId().orElse(THREAD_ID_DEFAULT);
+    }
+    
+    final class InMemory extends MemorySaver implements SessionCheckpointSaver {
+        
+        @Override
+        public boolean hasCheckpoints(RunnableConfig config) {
+            try {
+                return loadOrInitCheckpoints(config, checkpoints -> {
+                    if (checkpoints.isEmpty()) {
+                        remove(threadId(config));
+                        return false;
+                    }
+                    return true;
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to read checkpoints of thread " + threadId(config), e);
+            }
+        }
+        
+        @Override
+        public void discard(RunnableConfig config) {
+            try {
+                loadOrInitCheckpoints(config, checkpoints -> remove(threadId(config)));
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to discard checkpoints of thread " + threadId(config), e);
+            }
+        }
+        
+        @Override
+        public void offload(RunnableConfig config) {
+            // Única cópia dos checkpoints da sessão
+        }
+    }
+    
+    final class FileSystem extends FileSystemSaver implements SessionCheckpointSaver {
+        
+        FileSystem(Path directory, ObjectStreamStateSerializer<AssessmentGraphState> serializer) {
+            super(directory, serializer);
+        }
+        
+        /**
+         * Carrega o arquivo da sessão, se existir (ex.: após reinício)
+         */
+        @Override
+        public boolean hasCheckpoints(RunnableConfig config) {
+            try {
+                return loadOrInitCheckpoints(config, checkpoints -> {
+                    if (checkpoints.isEmpty()) {
+                        remove(threadId(config));
+                        return false;
+                    }
+                    return true;
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to read checkpoints of thread " + threadId(config), e);
+            }
+        }
+        
+        /**
+         * Apaga o arquivo antes de liberar a entrada, para que ela não seja recarregada dele
+         */
+        @Override
+        public void discard(RunnableConfig config) {
+            deleteFile(config);
+            try {
+                loadOrInitCheckpoints(config, checkpoints -> remove(threadId(config)));
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to discard checkpoints of thread " + threadId(config), e);
+            }
+        }
+        
+        @Override
+        public void offload(RunnableConfig config) {
+            try {
+                loadOrInitCheckpoints(config, checkpoints -> remove(threadId(config)));
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to offload checkpoints of thread " + threadId(config), e);
+            }
+        }
+    }
+}
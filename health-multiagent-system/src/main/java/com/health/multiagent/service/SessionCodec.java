@@ -0,0 +1,233 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.model.FhirDocument;
+import com.health.multiagent.model.PatientAssessmentState;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Codificação binária compacta do estado da sessão
+ * Campos em ordem fixa, sem nomes: textos em UTF-8 precedidos do tamanho
+ * (varint, zero para nulo e tamanho + 1 nos demais), listas precedidas da
+ * quantidade de itens. O sessionId é sempre o primeiro campo, permitindo
+ * indexar um registro sem decodificá-lo por inteiro.
+ */
+final class SessionCodec {
+    
+    // Versão 2: campo urgent; versão 3: medicationIds; versão 4: medicalHistorySummary.
+    // Registros anteriores são lidos sem eles
+    private static final byte VERSION = 4;
+    
+    private SessionCodec() {
+    }
+    
+    static byte[] encode(PatientAssessmentState state) {
+        Writer out = new Writer();
+        out.text(state.getSessionId());
+        out.raw(VERSION);
+        LocalDateTime startTime = state.getStartTime();
+        if (startTime != null) {
+            out.varint(1);
+            out.varlong(startTime.toEpochSecond(ZoneOffset.UTC));
+            out.varint(startTime.getNano());
+        } else {
+            out.varint(0);
+        }
+        out.text(state.getPatientId());
+        out.text(state.getSymptoms());
+        out.text(state.getMedicalHistory());
+        out.text(state.getMedicalHistorySummary());
+        out.list(state.getCurrentMedications());
+        out.list(state.getMedicationIds());
+        out.text(state.getRiskLevel());
+        out.varint(state.getUrgent() == null ? 0 : state.getUrgent() ? 2 : 1);
+        out.text(state.getSymptomsSummary());
+        out.text(state.getTriageRecommendations());
+        out.list(state.getDrugInteractions());
+        out.list(state.getContraindications());
+        out.text(state.getPharmacistRecommendations());
+        out.list(state.getRecommendedLabExams());
+        out.list(state.getRecommendedImagingExams());
+        out.text(state.getExamPriority());
+        out.text(state.getExamRecommendations());
+        out.bytes(state.getFhirDocument() != null ? state.getFhirDocument().toUtf8() : null);
+        out.text(state.getCommunicationText());
+        out.text(state.getApprovalStatus());
+        out.text(state.getApprovalComments());
+        out.varint(state.getReprocessingCount());
+        out.varint(state.getMaxReprocessingIterations());
+        out.text(state.getPhysicianFeedback());
+        out.list(state.getAssessmentHistory());
+        out.text(state.getCurrentAgent());
+        out.text(state.getStatus());
+        out.text(state.getErrorMessage());
+        return Arrays.copyOf(out.buffer, out.size);
+    }
+    
+    /**
+     * Decodifica um registro a partir da posição atual do buffer
+     *
+     * @throws IllegalArgumentException se o registro estiver truncado ou em versão desconhecida
+     */
+    static PatientAssessmentState decode(ByteBuffer in) {
+        try {
+            PatientAssessmentState state = new PatientAssessmentState();
+            state.setSessionId(text(in));
+            byte version = in.get();
+            if (version < 1 || version > VERSION) {
+                throw new IllegalArgumentException("Unsupported session encoding version: " + version);
+            }
+            if (varint(in) == 1) {
+                state.setStartTime(LocalDateTime.ofEpochSecond(varlong(in), varint(in), ZoneOffset.UTC));
+            }
+            state.setPatientId(text(in));
+            state.setSymptoms(text(in));
+            state.setMedicalHistory(text(in));
+            if (version >= 4) {
+                state.setMedicalHistorySummary(text(in));
+            }
+            state.setCurrentMedications(list(in));
+            if (version >= 3) {
+                state.setMedicationIds(list(in));
+            }
+            state.setRiskLevel(text(in));
+            if (version >= 2) {
+                int urgent = varint(in);
+                state.setUrgent(urgent == 0 ? null : urgent == 2);
+            }
+            state.setSymptomsSummary(text(in));
+            state.setTriageRecommendations(text(in));
+            state.setDrugInteractions(list(in));
+            state.setContraindications(list(in));
+            state.setPharmacistRecommendations(text(in));
+            state.setRecommendedLabExams(list(in));
+            state.setRecommendedImagingExams(list(in));
+            state.setExamPriority(text(in));
+            state.setExamRecommendations(text(in));
+            state.setFhirDocument(FhirDocument.ofUtf8(bytes(in)));
+            state.setCommunicationText(text(in));
+            state.setApprovalStatus(text(in));
+            state.setApprovalComments(text(in));
+            state.setReprocessingCount(varint(in));
+            state.setMaxReprocessingIterations(varint(in));
+            state.setPhysicianFeedback(text(in));
+            state.setAssessmentHistory(list(in));
+            state.setCurrentAgent(text(in));
+            state.setStatus(text(in));
+            state.setErrorMessage(text(in));
+            return state;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated session record", e);
+        }
+    }
+    
+    /**
+     * Lê apenas o sessionId a partir da posição atual do buffer
+     */
+    static String sessionId(ByteBuffer in) {
+        return text(in);
+    }
+    
+    private static String text(ByteBuffer in) {
+        byte[] bytes = bytes(in);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+    
+    private static byte[] bytes(ByteBuffer in) {
+        int length = varint(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+    
+    private static List<String> list(ByteBuffer in) {
+        int size = varint(in);
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(text(in));
+        }
+        return values;
+    }
+    
+    private static int varint(ByteBuffer in) {
+        return (int) varlong(in);
+    }
+    
+    private static long varlong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+    
+    private static final class Writer {
+        
+        private byte[] buffer = new byte[1024];
+        private int size;
+        
+        private void text(String value) {
+            bytes(value != null ? value.getBytes(StandardCharsets.UTF_8) : null);
+        }
+        
+        private void bytes(byte[] bytes) {
+            if (bytes == null) {
+                varint(0);
+                return;
+            }
+            varint(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+        
+        private void raw(byte value) {
+            ensure(1);
+            buffer[size++] = value;
+        }
+        
+        private void list(List<String> values) {
+            if (values == null) {
+                varint(0);
+                return;
+            }
+            varint(values.size());
+            for (String value : values) {
+                text(value);
+            }
+        }
+        
+        private void varint(int value) {
+            varlong(value & 0xFFFFFFFFL);
+        }
+        
+        private void varlong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+        
+        private void ensure(int additional) {
+            if (size + additional > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+            }
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.exception.AssessmentCapacityExceededException;
+import com.health.multiagent.model.FhirDocument;
+import com.health.multiagent.model.PatientAssessmentState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Sessões de avaliação mantidas em memória
+ * Cada acesso renova o prazo da sessão; uma varredura periódica remove as
+ * sessões sem acesso há mais de session.timeout-minutes. O número de
+ * sessões é limitado por session.max-sessions: ao atingir o limite, são
+ * removidas primeiro as sessões finalizadas (COMPLETED, REJECTED, ERROR) e
+ * depois as aguardando aprovação, sempre as de acesso mais antigo.
+ * Sessões em processamento nunca são removidas.
+ * Com um SessionStore configurado, as sessões fora de processamento são
+ * gravadas nele e, após session.offload-after sem acesso, mantidas apenas lá
+ * (o heap retém somente ID, status e último acesso), sendo recarregadas no
+ * próximo acesso. Sessões gravadas por execuções anteriores são restauradas
+ * via loadStored e seguem o mesmo prazo de expiração.
+ */
+@Slf4j
+@Component
+public class SessionRegistry {
+    
+    static final String ACTIVE_METRIC = "health.sessions.active";
+    static final String RETAINED_BYTES_METRIC = "health.sessions.retained.bytes";
+    static final String EVICTIONS_METRIC = "health.sessions.evictions";
+    static final String STORED_METRIC = "health.sessions.stored";
+    
+    private static final Set<String> FINISHED = Set.of("COMPLETED", "REJECTED", "ERROR");
+    // TRANSFERRING: cópia a caminho de outro nó do cluster (SessionRebalancer)
+    private static final Set<String> IN_FLIGHT = Set.of("PROCESSING", "REPROCESSING", "TRANSFERRING");
+    
+    // Estimativa do objeto de estado, das listas e dos campos não textuais
+    private static final long STATE_OVERHEAD_BYTES = 512;
+    private static final long STRING_OVERHEAD_BYTES = 40;
+    private static final long OFFLOADED_ENTRY_BYTES = 128;
+    
+    private final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+    // Sessões gravadas no store por execuções anteriores ou removidas pelo limite, ainda não restauradas
+    private final Map<String, Long> dormant = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final SessionStore store;
+    private final long timeoutMillis;
+    private final long offloadAfterMillis;
+    private final int maxSessions;
+    private final LongSupplier clock;
+    
+    private volatile EvictionListener evictionListener = (sessionId, status, reason) -> { };
+    
+    @Autowired
+    public SessionRegistry(
+            MeterRegistry meterRegistry,
+            ObjectProvider<SessionStore> sessionStore,
+            @Value("${health.multiagent.session.timeout-minutes:30}") long timeoutMinutes,
+            @Value("${health.multiagent.session.max-sessions:10000}") int maxSessions,
+            @Value("${health.multiagent.session.offload-after:PT2M}") Duration offloadAfter) {
+        this(meterRegistry, Duration.ofMinutes(timeoutMinutes), maxSessions,
+            sessionStore.getIfAvailable(), offloadAfter, System::currentTimeMillis);
+    }
+    
+    SessionRegistry(MeterRegistry meterRegistry, Duration timeout, int maxSessions,
+                    SessionStore store, Duration offloadAfter, LongSupplier clock) {
+        this.meterRegistry = meterRegistry;
+        this.store = store;
+        this.timeoutMillis = timeout.toMillis();
+        this.offloadAfterMillis = offloadAfter.toMillis();
+        this.maxSessions = maxSessions;
+        this.clock = clock;
+        
+        Gauge.builder(ACTIVE_METRIC, sessions, Map::size)
+            .description("Assessment sessions held in memory")
+            .register(meterRegistry);
+        Gauge.builder(RETAINED_BYTES_METRIC, this, SessionRegistry::retainedBytes)
+            .description("Estimated heap retained by assessment sessions")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        
+        if (store != null) {
+            long now = clock.getAsLong();
+            store.sessionIds().forEach(sessionId -> dormant.put(sessionId, now));
+            Gauge.builder(STORED_METRIC, this, SessionRegistry::storedSessions)
+                .description("Assessment sessions held only in the session store")
+                .register(meterRegistry);
+            log.info("Session store enabled with {} sessions from previous runs", dormant.size());
+        }
+    }
+    
+    /**
+     * Motivo da remoção de uma sessão pelo registro
+     */
+    public enum EvictionReason {
+        EXPIRED,
+        CAPACITY
+    }
+    
+    /**
+     * Notificado quando o registro remove uma sessão por expiração ou capacidade
+     */
+    @FunctionalInterface
+    public interface EvictionListener {
+        void onEviction(String sessionId, String status, EvictionReason reason);
+    }
+    
+    public void setEvictionListener(EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+    
+    /**
+     * Registra uma nova sessão, removendo outras se o limite for atingido
+     *
+     * @throws AssessmentCapacityExceededException se o limite foi atingido apenas por sessões em processamento
+     */
+    public void put(PatientAssessmentState state) {
+        synchronized (this) {
+            ensureCapacity();
+            sessions.put(state.getSessionId(), new Entry(state, clock.getAsLong()));
+        }
+    }
+    
+    /**
+     * Grava a sessão no store ao fim de uma etapa (aguardando aprovação ou finalizada)
+     * Sem store configurado, não faz nada.
+     */
+    public void save(PatientAssessmentState state) {
+        if (store == null) {
+            return;
+        }
+        synchronized (state) {
+            store.save(state);
+        }
+        Entry entry = sessions.get(state.getSessionId());
+        if (entry != null) {
+            entry.attach(state);
+        }
+    }
+    
+    /**
+     * Carrega do store uma sessão que não está no registro (ex.: gravada antes
+     * de um reinício). A sessão carregada não é registrada: cabe ao chamador
+     * registrá-la e retomar o fluxo.
+     */
+    public Optional<PatientAssessmentState> loadStored(String sessionId) {
+        if (store == null) {
+            return Optional.empty();
+        }
+        dormant.remove(sessionId);
+        return store.load(sessionId);
+    }
+    
+    /**
+     * Registra a sessão se ainda não existir
+     *
+     * @return a sessão já registrada, ou nulo se a informada foi registrada
+     */
+    public PatientAssessmentState putIfAbsent(PatientAssessmentState state) {
+        Entry existing = sessions.get(state.getSessionId());
+        if (existing == null) {
+            synchronized (this) {
+                ensureCapacity();
+                existing = sessions.putIfAbsent(state.getSessionId(), new Entry(state, clock.getAsLong()));
+            }
+        }
+        return existing != null ? touch(existing) : null;
+    }
+    
+    /**
+     * Sessão pelo ID, renovando o prazo de expiração, ou nulo se não estiver registrada
+     * Sessões mantidas apenas no store são recarregadas.
+     */
+    public PatientAssessmentState get(String sessionId) {
+        Entry entry = sessions.get(sessionId);
+        return entry != null ? touch(entry) : null;
+    }
+    
+    public void remove(String sessionId) {
+        sessions.remove(sessionId);
+        dormant.remove(sessionId);
+        if (store != null) {
+            store.delete(sessionId);
+        }
+    }
+    
+    /**
+     * IDs das sessões registradas neste nó
+     */
+    public Set<String> sessionIds() {
+        return Set.copyOf(sessions.keySet());
+    }
+    
+    public int size() {
+        return sessions.size();
+    }
+    
+    /**
+     * Remove as sessões sem acesso dentro do prazo
+     */
+    @Scheduled(fixedDelayString = "${health.multiagent.session.sweep-interval:PT1M}")
+    public void evictExpired() {
+        long now = clock.getAsLong();
+        long deadline = now - timeoutMillis;
+        sessions.forEach((sessionId, entry) -> {
+            if (entry.lastAccess < deadline && !isInFlight(entry) && sessions.remove(sessionId, entry)) {
+                evicted(sessionId, entry, EvictionReason.EXPIRED);
+            } else if (store != null && entry.lastAccess < now - offloadAfterMillis) {
+                offload(sessionId, entry);
+            }
+        });
+        dormant.forEach((sessionId, since) -> {
+            if (since < deadline && dormant.remove(sessionId, since)) {
+                log.info("Stored session {} expired without being restored", sessionId);
+                store.delete(sessionId);
+                evictionListener.onEviction(sessionId, null, EvictionReason.EXPIRED);
+            }
+        });
+    }
+    
+    /**
+     * Sessões mantidas apenas no store (descarregadas do heap ou aguardando restauração)
+     */
+    public long storedSessions() {
+        return dormant.size() + sessions.values().stream().filter(entry -> entry.state == null).count();
+    }
+    
+    /**
+     * Estimativa dos bytes retidos pelas sessões em memória
+     */
+    public long retainedBytes() {
+        long bytes = 0;
+        for (Entry entry : sessions.values()) {
+            PatientAssessmentState state = entry.state;
+            if (state == null) {
+                bytes += OFFLOADED_ENTRY_BYTES;
+                continue;
+            }
+            try {
+                bytes += estimateBytes(state);
+            } catch (ConcurrentModificationException e) {
+                // Lista alterada pelo fluxo durante a leitura: considera apenas o overhead
+                bytes += STATE_OVERHEAD_BYTES;
+            }
+        }
+        return bytes;
+    }
+    
+    private void ensureCapacity() {
+        int excess = sessions.size() - maxSessions + 1;
+        if (excess <= 0) {
+            return;
+        }
+        
+        List<Map.Entry<String, Entry>> candidates = sessions.entrySet().stream()
+            .filter(candidate -> !isInFlight(candidate.getValue()))
+            .sorted(Comparator.comparing((Map.Entry<String, Entry> candidate) -> !isFinished(candidate.getValue()))
+                .thenComparingLong(candidate -> candidate.getValue().lastAccess))
+            .limit(excess)
+            .toList();
+        for (Map.Entry<String, Entry> candidate : candidates) {
+            if (sessions.remove(candidate.getKey(), candidate.getValue())) {
+                evicted(candidate.getKey(), candidate.getValue(), EvictionReason.CAPACITY);
+            }
+        }
+        
+        if (sessions.size() >= maxSessions) {
+            throw new AssessmentCapacityExceededException(
+                "Session limit reached: " + maxSessions + " assessments in progress, retry later");
+        }
+    }
+    
+    private void evicted(String sessionId, Entry entry, EvictionReason reason) {
+        String status = entry.status();
+        log.info("Session {} evicted ({}) with status {}", sessionId, reason, status);
+        Counter.builder(EVICTIONS_METRIC)
+            .description("Assessment sessions evicted from memory")
+            .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+            .register(meterRegistry)
+            .increment();
+        if (store != null) {
+            // Aguardando aprovação removida pelo limite continua restaurável a partir do store
+            if (reason == EvictionReason.CAPACITY && "AWAITING_APPROVAL".equals(status)) {
+                dormant.put(sessionId, entry.lastAccess);
+            } else {
+                store.delete(sessionId);
+            }
+        }
+        try {
+            evictionListener.onEviction(sessionId, status, reason);
+        } catch (RuntimeException e) {
+            log.warn("Error handling eviction of session {}", sessionId, e);
+        }
+    }
+    
+    /**
+     * Grava a sessão no store e libera o estado do heap, se não estiver em processamento
+     */
+    private void offload(String sessionId, Entry entry) {
+        synchronized (entry) {
+            PatientAssessmentState state = entry.state;
+            if (state == null) {
+                return;
+            }
+            synchronized (state) {
+                if (IN_FLIGHT.contains(state.getStatus())) {
+                    return;
+                }
+                store.save(state);
+                entry.status = state.getStatus();
+                entry.state = null;
+            }
+        }
+        log.debug("Session {} offloaded to the session store", sessionId);
+    }
+    
+    /**
+     * Renova o prazo e devolve o estado, recarregando do store se foi descarregado
+     */
+    private PatientAssessmentState touch(Entry entry) {
+        entry.lastAccess = clock.getAsLong();
+        PatientAssessmentState state = entry.state;
+        if (state != null) {
+            return state;
+        }
+        synchronized (entry) {
+            if (entry.state == null) {
+                entry.state = store.load(entry.sessionId)
+                    .orElseThrow(() -> new IllegalStateException("Session missing from store: " + entry.sessionId));
+            }
+            return entry.state;
+        }
+    }
+    
+    private static boolean isFinished(Entry entry) {
+        return FINISHED.contains(entry.status());
+    }
+    
+    private static boolean isInFlight(Entry entry) {
+        return IN_FLIGHT.contains(entry.status());
+    }
+    
+    private static long estimateBytes(PatientAssessmentState state) {
+        long bytes = STATE_OVERHEAD_BYTES;
+        bytes += sizeOf(state.getSessionId()) + sizeOf(state.getPatientId());
+        bytes += sizeOf(state.getSymptoms()) + sizeOf(state.getMedicalHistory());
+        bytes += sizeOf(state.getMedicalHistorySummary());
+        bytes += sizeOf(state.getCurrentMedications()) + sizeOf(state.getMedicationIds());
+        bytes += sizeOf(state.getSymptomsSummary()) + sizeOf(state.getTriageRecommendations());
+        bytes += sizeOf(state.getDrugInteractions()) + sizeOf(state.getContraindications());
+        bytes += sizeOf(state.getPharmacistRecommendations());
+        bytes += sizeOf(state.getRecommendedLabExams()) + sizeOf(state.getRecommendedImagingExams());
+        bytes += sizeOf(state.getExamRecommendations());
+        bytes += sizeOf(state.getFhirDocument()) + sizeOf(state.getCommunicationText());
+        bytes += sizeOf(state.getApprovalComments()) + sizeOf(state.getPhysicianFeedback());
+        bytes += sizeOf(state.getAssessmentHistory()) + sizeOf(state.getErrorMessage());
+        return bytes;
+    }
+    
+    /**
+     * Strings compactas: um byte por caractere para texto Latin-1 (português)
+     */
+    private static long sizeOf(String value) {
+        return value != null ? STRING_OVERHEAD_BYTES + value.length() : 0;
+    }
+    
+    private static long sizeOf(FhirDocument document) {
+        return document != null ? STRING_OVERHEAD_BYTES + document.size() : 0;
+    }
+    
+    private static long sizeOf(List<String> values) {
+        long bytes = 0;
+        if (values != null) {
+            for (String value : values) {
+                bytes += sizeOf(value);
+            }
+        }
+        return bytes;
+    }
+    
+    /**
+     * Sessão registrada; state é nulo enquanto a sessão estiver apenas no store
+     */
+    private static final class Entry {
+        
+        private final String sessionId;
+        private volatile PatientAssessmentState state;
+        // Status no momento do descarregamento, usado enquanto state é nulo
+        private volatile String status;
+        private volatile long lastAccess;
+        
+        private Entry(PatientAssessmentState state, long lastAccess) {
+            this.sessionId = state.getSessionId();
+            this.state = state;
+            this.lastAccess = lastAccess;
+        }
+        
+        private String status() {
+            PatientAssessmentState current = state;
+            return current != null ? current.getStatus() : status;
+        }
+        
+        private synchronized void attach(PatientAssessmentState current) {
+            state = current;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.model.PatientAssessmentState;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Armazenamento das sessões fora do heap
+ * Usado pelo SessionRegistry para guardar sessões que não estão em
+ * processamento (aguardando aprovação ou finalizadas), que são recarregadas
+ * no próximo acesso. Sem implementação configurada, as sessões permanecem
+ * apenas em memória.
+ */
+public interface SessionStore {
+    
+    /**
+     * Grava o estado atual da sessão, substituindo a versão anterior
+     */
+    void save(PatientAssessmentState state);
+    
+    /**
+     * Carrega uma nova instância do estado gravado
+     */
+    Optional<PatientAssessmentState> load(String sessionId);
+    
+    void delete(String sessionId);
+    
+    /**
+     * IDs das sessões gravadas, inclusive as de execuções anteriores da aplicação
+     */
+    Set<String> sessionIds();
+}
@@ -0,0 +1,267 @@
+package com.health.multiagent.tracing;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.StatusData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exportação dos spans para um arquivo local no formato OTLP/JSON
+ * Cada lote exportado é uma linha com um ExportTraceServiceRequest
+ * (resourceSpans -> scopeSpans -> spans), o mesmo formato do file exporter
+ * do OpenTelemetry Collector: o arquivo pode ser lido pelo receiver
+ * otlpjsonfile ou analisado diretamente, sem coletor externo.
+ * Ao ultrapassar o tamanho máximo, o arquivo atual é renomeado com o
+ * sufixo ".1" (substituindo o anterior) e um novo arquivo é iniciado.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "health.multiagent.tracing.file.enabled", havingValue = "true")
+public class OtlpJsonFileSpanExporter implements SpanExporter {
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private final Path path;
+    private final Path rolledPath;
+    private final long maxBytes;
+    
+    private OutputStream out;
+    private long size;
+    private boolean shutdown;
+    
+    public OtlpJsonFileSpanExporter(
+            @Value("${health.multiagent.tracing.file.path:data/traces.jsonl}") String path,
+            @Value("${health.multiagent.tracing.file.max-size-mb:64}") long maxSizeMb) {
+        this.path = Path.of(path);
+        this.rolledPath = this.path.resolveSibling(this.path.getFileName() + ".1");
+        this.maxBytes = maxSizeMb * 1024 * 1024;
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open trace file: " + path, e);
+        }
+        log.info("Exporting spans as OTLP/JSON to {}", this.path.toAbsolutePath());
+    }
+    
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        if (shutdown) {
+            return CompletableResultCode.ofFailure();
+        }
+        if (spans.isEmpty()) {
+            return CompletableResultCode.ofSuccess();
+        }
+        try {
+            byte[] line = encode(spans);
+            if (size > 0 && size + line.length > maxBytes) {
+                roll();
+            }
+            out.write(line);
+            out.flush();
+            size += line.length;
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            log.warn("Unable to write {} spans to {}", spans.size(), path, e);
+            return CompletableResultCode.ofFailure();
+        }
+    }
+    
+    @Override
+    public synchronized CompletableResultCode flush() {
+        try {
+            out.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+    
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        if (shutdown) {
+            return CompletableResultCode.ofSuccess();
+        }
+        shutdown = true;
+        try {
+            out.close();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+    
+    private void open() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        out = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        size = Files.size(path);
+    }
+    
+    private void roll() throws IOException {
+        out.close();
+        Files.move(path, rolledPath, StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+    
+    /**
+     * ExportTraceServiceRequest do lote, em uma linha terminada por '\n'
+     */
+    static byte[] encode(Collection<SpanData> spans) throws IOException {
+        Map<Resource, Map<InstrumentationScopeInfo, List<SpanData>>> grouped = new LinkedHashMap<>();
+        for (SpanData span : spans) {
+            grouped.computeIfAbsent(span.getResource(), resource -> new LinkedHashMap<>())
+                .computeIfAbsent(span.getInstrumentationScopeInfo(), scope -> new ArrayList<>())
+                .add(span);
+        }
+        
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024 * spans.size());
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(buffer, JsonEncoding.UTF8)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("resourceSpans");
+            for (Map.Entry<Resource, Map<InstrumentationScopeInfo, List<SpanData>>> resource : grouped.entrySet()) {
+                json.writeStartObject();
+                json.writeObjectFieldStart("resource");
+                writeAttributes(json, resource.getKey().getAttributes());
+                json.writeEndObject();
+                json.writeArrayFieldStart("scopeSpans");
+                for (Map.Entry<InstrumentationScopeInfo, List<SpanData>> scope : resource.getValue().entrySet()) {
+                    writeScopeSpans(json, scope.getKey(), scope.getValue());
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        buffer.write('\n');
+        return buffer.toByteArray();
+    }
+    
+    private static void writeScopeSpans(JsonGenerator json, InstrumentationScopeInfo scope, List<SpanData> spans)
+            throws IOException {
+        json.writeStartObject();
+        json.writeObjectFieldStart("scope");
+        json.writeStringField("name", scope.getName());
+        if (scope.getVersion() != null) {
+            json.writeStringField("version", scope.getVersion());
+        }
+        json.writeEndObject();
+        json.writeArrayFieldStart("spans");
+        for (SpanData span : spans) {
+            writeSpan(json, span);
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+    
+    private static void writeSpan(JsonGenerator json, SpanData span) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("traceId", span.getTraceId());
+        json.writeStringField("spanId", span.getSpanId());
+        if (span.getParentSpanContext().isValid()) {
+            json.writeStringField("parentSpanId", span.getParentSpanId());
+        }
+        json.writeStringField("name", span.getName());
+        json.writeNumberField("kind", kind(span.getKind()));
+        // Inteiros de 64 bits são strings no mapeamento JSON do OTLP
+        json.writeStringField("startTimeUnixNano", Long.toString(span.getStartEpochNanos()));
+        json.writeStringField("endTimeUnixNano", Long.toString(span.getEndEpochNanos()));
+        writeAttributes(json, span.getAttributes());
+        
+        if (!span.getEvents().isEmpty()) {
+            json.writeArrayFieldStart("events");
+            for (EventData event : span.getEvents()) {
+                json.writeStartObject();
+                json.writeStringField("timeUnixNano", Long.toString(event.getEpochNanos()));
+                json.writeStringField("name", event.getName());
+                writeAttributes(json, event.getAttributes());
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+        
+        StatusData status = span.getStatus();
+        json.writeObjectFieldStart("status");
+        json.writeNumberField("code", switch (status.getStatusCode()) {
+            case UNSET -> 0;
+            case OK -> 1;
+            case ERROR -> 2;
+        });
+        if (!status.getDescription().isEmpty()) {
+            json.writeStringField("message", status.getDescription());
+        }
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+    
+    private static int kind(SpanKind kind) {
+        return switch (kind) {
+            case INTERNAL -> 1;
+            case SERVER -> 2;
+            case CLIENT -> 3;
+            case PRODUCER -> 4;
+            case CONSUMER -> 5;
+        };
+    }
+    
+    private static void writeAttributes(JsonGenerator json, Attributes attributes) throws IOException {
+        json.writeArrayFieldStart("attributes");
+        for (Map.Entry<AttributeKey<?>, Object> attribute : attributes.asMap().entrySet()) {
+            json.writeStartObject();
+            json.writeStringField("key", attribute.getKey().getKey());
+            json.writeFieldName("value");
+            writeValue(json, attribute.getValue());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+    
+    private static void writeValue(JsonGenerator json, Object value) throws IOException {
+        json.writeStartObject();
+        switch (value) {
+            case Boolean bool -> json.writeBooleanField("boolValue", bool);
+            case Long number -> json.writeStringField("intValue", number.toString());
+            case Double number -> json.writeNumberField("doubleValue", number);
+            case List<?> values -> {
+                json.writeObjectFieldStart("arrayValue");
+                json.writeArrayFieldStart("values");
+                for (Object element : values) {
+                    writeValue(json, element);
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            default -> json.writeStringField("stringValue", String.valueOf(value));
+        }
+        json.writeEndObject();
+    }
+}
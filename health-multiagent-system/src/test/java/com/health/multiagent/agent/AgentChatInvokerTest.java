@@ -0,0 +1,88 @@
+package com.health.multiagent.agent;
+
+import com.health.multiagent.llm.ResponseSchemas;
+import com.health.multiagent.llm.StructuredOutputException;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.RiskAssessment;
+import com.health.multiagent.service.AssessmentEventPublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes unitários das chamadas estruturadas ao LLM
+ */
+class AgentChatInvokerTest {
+    
+    private static final RiskAssessment DEFAULTS =
+        new RiskAssessment("MEDIUM", "Assessment completed", "Proceed to next evaluation", false);
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PatientAssessmentState state = PatientAssessmentState.builder().sessionId("s1").build();
+    private ChatModel chatModel;
+    private AgentChatInvoker invoker;
+    
+    @BeforeEach
+    void setUp() {
+        chatModel = mock(ChatModel.class);
+        invoker = new AgentChatInvoker(chatModel, mock(AssessmentEventPublisher.class),
+            new PromptBudget(meterRegistry, ObservationRegistry.NOOP, 0, 0, 0, 0, 0), meterRegistry,
+            ObservationRegistry.NOOP, false, true);
+    }
+    
+    @Test
+    void testCall_SendsRecordSchemaAsFormat() {
+        respond("{\"riskLevel\": \"HIGH\", \"symptomsSummary\": \"Dor\", \"recommendations\": \"ECG\", \"urgent\": true}");
+        
+        RiskAssessment assessment = invoker.call("TRIAGE", state, new Prompt("Avaliar"), RiskAssessment.class, DEFAULTS);
+        
+        ArgumentCaptor<Prompt> prompt = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel).call(prompt.capture());
+        Map<String, Object> schema = ResponseSchemas.of(RiskAssessment.class);
+        assertThat(((OllamaOptions) prompt.getValue().getOptions()).getFormat()).isEqualTo(schema);
+        assertThat(schema.get("required")).isEqualTo(List.of("riskLevel", "symptomsSummary", "recommendations", "urgent"));
+        assertThat(assessment.riskLevel()).isEqualTo("HIGH");
+        assertThat(meterRegistry.find(AgentChatInvoker.PARSE_FAILURES_METRIC).counters()).isEmpty();
+    }
+    
+    @Test
+    void testCall_CountsParseFailures() {
+        respond("{\"riskLevel\": \"LOW\"}");
+        invoker.call("TRIAGE", state, new Prompt("Avaliar"), RiskAssessment.class, DEFAULTS);
+        
+        respond("Não foi possível avaliar");
+        assertThatThrownBy(() -> invoker.call("TRIAGE", state, new Prompt("Avaliar"), RiskAssessment.class, DEFAULTS))
+            .isInstanceOf(StructuredOutputException.class);
+        
+        assertThat(failures("incomplete")).isEqualTo(1);
+        assertThat(failures("malformed")).isEqualTo(1);
+    }
+    
+    private void respond(String text) {
+        when(chatModel.call(any(Prompt.class)))
+            .thenReturn(new ChatResponse(List.of(new Generation(new AssistantMessage(text)))));
+    }
+    
+    private double failures(String reason) {
+        return meterRegistry.get(AgentChatInvoker.PARSE_FAILURES_METRIC)
+            .tag("agent", "TRIAGE").tag("reason", reason).counter().count();
+    }
+}
@@ -0,0 +1,88 @@
+package com.health.multiagent.agent;
+
+import com.health.multiagent.model.PatientAssessmentState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes unitários do cache de resumos do histórico médico
+ */
+class MedicalHistorySummarizerTest {
+    
+    private static final String HISTORY = "Hipertensão arterial desde 2010, em uso de losartana. ".repeat(20);
+    
+    private final AgentChatInvoker chatInvoker = mock(AgentChatInvoker.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MedicalHistorySummarizer summarizer = new MedicalHistorySummarizer(
+        chatInvoker, meterRegistry, true, 100, 100, Duration.ofDays(7));
+    
+    @Test
+    void testSummarize_ReusesSummaryUntilHistoryChanges() {
+        when(chatInvoker.call(eq(MedicalHistorySummarizer.NAME), any(), any()))
+            .thenReturn(" Hipertensão controlada com losartana. ", "Hipertensão e DM2.");
+        
+        assertThat(summarizer.summarize(session("P1", HISTORY))).isEqualTo("Hipertensão controlada com losartana.");
+        assertThat(summarizer.summarize(session("P1", HISTORY + "\n")))
+            .isEqualTo("Hipertensão controlada com losartana.");
+        assertThat(summarizer.summarize(session("P1", HISTORY + "Diabetes tipo 2 desde 2023.")))
+            .isEqualTo("Hipertensão e DM2.");
+        
+        verify(chatInvoker, times(2)).call(eq(MedicalHistorySummarizer.NAME), any(), any());
+        assertThat(meterRegistry.get(MedicalHistorySummarizer.REQUESTS_METRIC).tag("result", "hit").counter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get(MedicalHistorySummarizer.REQUESTS_METRIC).tag("result", "invalidated")
+            .counter().count()).isEqualTo(1);
+    }
+    
+    @Test
+    void testSummarize_ConcurrentMissesShareOneCall() throws Exception {
+        CountDownLatch calling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(chatInvoker.call(eq(MedicalHistorySummarizer.NAME), any(), any())).thenAnswer(invocation -> {
+            calling.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "Hipertensão controlada com losartana.";
+        });
+        
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> summarizer.summarize(session("P1", HISTORY)));
+        assertThat(calling.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> summarizer.summarize(session("P1", HISTORY)));
+        Thread.sleep(100);
+        release.countDown();
+        
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("Hipertensão controlada com losartana.");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("Hipertensão controlada com losartana.");
+        verify(chatInvoker, times(1)).call(eq(MedicalHistorySummarizer.NAME), any(), any());
+    }
+    
+    @Test
+    void testSummarize_KeepsShortOrAnonymousHistory() {
+        PatientAssessmentState shortHistory = session("P1", "Asma leve");
+        PatientAssessmentState anonymous = session(null, HISTORY);
+        
+        assertThat(summarizer.summarize(shortHistory)).isNull();
+        assertThat(summarizer.summarize(anonymous)).isNull();
+        assertThat(MedicalHistorySummarizer.medicalHistory(shortHistory)).isEqualTo("Asma leve");
+        verify(chatInvoker, times(0)).call(any(), any(), any());
+    }
+    
+    private static PatientAssessmentState session(String patientId, String history) {
+        return PatientAssessmentState.builder()
+            .patientId(patientId)
+            .medicalHistory(history)
+            .build();
+    }
+}
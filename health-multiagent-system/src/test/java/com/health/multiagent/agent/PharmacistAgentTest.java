@@ -0,0 +1,55 @@
+package com.health.multiagent.agent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.health.multiagent.llm.SemanticResultCache;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.PharmacyAnalysis;
+import com.health.multiagent.pharmacy.DrugInteractionKnowledgeBase;
+import com.health.multiagent.pharmacy.MedicationNormalizer;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes unitários da combinação da base local de interações com a análise do LLM
+ */
+class PharmacistAgentTest {
+    
+    private static final ClassPathResource SOURCE = new ClassPathResource("drug-interactions.json");
+    
+    private final AgentChatInvoker chatInvoker = mock(AgentChatInvoker.class);
+    
+    @Test
+    void testAnalyzeMedications_KeepsLlmInteractionsForPairsMissingFromKnowledgeBase() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        MedicationNormalizer normalizer = new MedicationNormalizer(objectMapper, SOURCE);
+        DrugInteractionKnowledgeBase knowledgeBase = new DrugInteractionKnowledgeBase(
+            objectMapper, normalizer, true, SOURCE);
+        PharmacistAgent agent = new PharmacistAgent(
+            chatInvoker, mock(SemanticResultCache.class), knowledgeBase, normalizer);
+        
+        // AAS e clopidogrel estão na base, mas o par não tem interação cadastrada
+        PatientAssessmentState state = PatientAssessmentState.builder()
+            .patientId("P1")
+            .currentMedications(List.of("AAS 100 mg", "Clopidogrel 75mg"))
+            .build();
+        assertThat(knowledgeBase.check(normalizer.canonicalIds(state.getCurrentMedications())).complete()).isTrue();
+        
+        String interaction = "AAS + Clopidogrel: dupla antiagregação aumenta o risco de sangramento";
+        when(chatInvoker.call(eq(PharmacistAgent.NAME), any(), any(), eq(PharmacyAnalysis.class), any()))
+            .thenReturn(new PharmacyAnalysis(List.of(interaction, interaction), List.of(),
+                "Avaliar proteção gástrica", true));
+        
+        PharmacyAnalysis analysis = agent.analyzeMedications(state);
+        
+        assertThat(analysis.drugInteractions()).containsExactly(interaction);
+        assertThat(analysis.hasSafetyConcerns()).isTrue();
+    }
+}
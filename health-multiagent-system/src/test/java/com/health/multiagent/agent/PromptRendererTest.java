@@ -0,0 +1,115 @@
+package com.health.multiagent.agent;
+
+import com.health.multiagent.model.PatientAssessmentState;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Testes unitários do renderizador de prompts pré-compilado
+ */
+class PromptRendererTest {
+    
+    private static final PromptRenderer RENDERER = PromptRenderer.builder("""
+        Paciente {patientId}: {symptoms}
+        Medicações: {currentMedications}
+        {physicianFeedbackSection}
+        Responda: {{"riskLevel": "{{LOW|HIGH}}"}}
+        """)
+        .text("patientId", PatientAssessmentState::getPatientId, "UNKNOWN")
+        .text("symptoms", PatientAssessmentState::getSymptoms, "No symptoms")
+        .list("currentMedications", PatientAssessmentState::getCurrentMedications, ", ", "None reported")
+        .bind("physicianFeedbackSection", PromptRenderer.physicianFeedback("Revise a avaliação."))
+        .build();
+    
+    @Test
+    void testRender_SubstitutesValuesAndLiteralBraces() {
+        PatientAssessmentState state = PatientAssessmentState.builder()
+            .symptoms("Febre")
+            .currentMedications(List.of("Dipirona", "Losartana"))
+            .build();
+        
+        assertThat(RENDERER.render(state)).isEqualTo("""
+            Paciente UNKNOWN: Febre
+            Medicações: Dipirona, Losartana
+            
+            Responda: {"riskLevel": "{LOW|HIGH}"}
+            """);
+    }
+    
+    @Test
+    void testRender_PhysicianFeedbackSection() {
+        PatientAssessmentState state = PatientAssessmentState.builder()
+            .patientId("P1")
+            .physicianFeedback("Risco subestimado")
+            .reprocessingCount(2)
+            .build();
+        
+        assertThat(RENDERER.render(state)).contains("""
+            Medicações: None reported
+            
+            IMPORTANT - Physician Feedback from Previous Assessment:
+            Risco subestimado
+            
+            Revise a avaliação.
+            Reprocessing iteration: 2 of 3
+            """);
+    }
+    
+    @Test
+    void testRender_TruncatesLongestVariablesToFitBudget() {
+        PromptRenderer renderer = PromptRenderer.builder("""
+            Paciente {patientId}
+            Sintomas: {symptoms}
+            Histórico: {medicalHistory}
+            """)
+            .text("patientId", PatientAssessmentState::getPatientId, "UNKNOWN")
+            .text("symptoms", PatientAssessmentState::getSymptoms, "No symptoms")
+            .text("medicalHistory", PatientAssessmentState::getMedicalHistory, "No history")
+            .truncatable("symptoms", "medicalHistory")
+            .build();
+        StringBuilder history = new StringBuilder("Internação por pneumonia em 2015.");
+        for (int year = 2016; year <= 2024; year++) {
+            history.append(" Consulta de rotina em ").append(year).append(", sem alterações.");
+        }
+        history.append(" Alergia a penicilina.");
+        PatientAssessmentState state = PatientAssessmentState.builder()
+            .patientId("P1")
+            .symptoms("Febre e tosse")
+            .medicalHistory(history.toString())
+            .build();
+        
+        PromptRenderer.Rendered unlimited = renderer.render(state, 0);
+        PromptRenderer.Rendered rendered = renderer.render(state, 60);
+        
+        assertThat(unlimited.truncated()).isFalse();
+        assertThat(unlimited.text()).isEqualTo(renderer.render(state));
+        assertThat(rendered.tokens()).isLessThanOrEqualTo(60);
+        assertThat(rendered.tokens()).isEqualTo(TokenEstimator.estimate(rendered.text()));
+        assertThat(rendered.truncatedTokens()).isEqualTo(unlimited.tokens() - rendered.tokens());
+        assertThat(rendered.text())
+            .contains("Sintomas: Febre e tosse\n")
+            .contains("Histórico: Internação por pneumonia em 2015.")
+            .contains(" [...] ")
+            .endsWith("Alergia a penicilina.\n");
+        assertThat(renderer.render(state, 60)).isEqualTo(rendered);
+    }
+    
+    @Test
+    void testBuild_RejectsUnboundOrUnusedVariables() {
+        assertThatThrownBy(() -> PromptRenderer.builder("{patientId} {symptoms}")
+            .text("patientId", PatientAssessmentState::getPatientId, "UNKNOWN")
+            .build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("symptoms");
+        assertThatThrownBy(() -> PromptRenderer.builder("{patientId}")
+            .text("patientId", PatientAssessmentState::getPatientId, "UNKNOWN")
+            .text("riskLevel", PatientAssessmentState::getRiskLevel, "UNKNOWN")
+            .build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("riskLevel");
+    }
+}
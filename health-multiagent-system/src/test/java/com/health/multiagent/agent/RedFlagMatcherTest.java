@@ -0,0 +1,72 @@
+package com.health.multiagent.agent;
+
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.RiskAssessment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes unitários da busca de sinais de alarme
+ */
+class RedFlagMatcherTest {
+    
+    private final RedFlagMatcher matcher = new RedFlagMatcher(List.of(
+        "dor torácica", "dor", "perda de consciência", "chest pain", "pain", "Chest"));
+    
+    @Test
+    void testFind_IgnoresAccentsCaseAndPunctuationAndReportsOverlappingTerms() {
+        assertThat(matcher.find("Paciente com DOR TORACICA há 2h; episódio de perda de consciencia."))
+            .containsExactly("dor", "dor torácica", "perda de consciência");
+        assertThat(matcher.find("Severe chest-pain")).containsExactly("Chest", "chest pain", "pain");
+    }
+    
+    @Test
+    void testFind_MatchesWholeWordsOnly() {
+        assertThat(matcher.find("Dormência no braço, painel viral negativo")).isEmpty();
+        assertThat(matcher.find(null)).isEmpty();
+    }
+    
+    @Test
+    void testAssess_ClassifiesRedFlagsAsCriticalAndUrgent() {
+        RedFlagRules rules = new RedFlagRules(new SimpleMeterRegistry(), true, List.of("dor torácica", "sudorese"));
+        PatientAssessmentState critical = PatientAssessmentState.builder()
+            .symptoms("Dor torácica há 2 horas, com sudorese")
+            .build();
+        PatientAssessmentState mild = PatientAssessmentState.builder()
+            .symptoms("Coriza e espirros há 3 dias")
+            .build();
+        
+        RiskAssessment assessment = rules.assess(critical).orElseThrow();
+        
+        assertThat(assessment.riskLevel()).isEqualTo("CRITICAL");
+        assertThat(assessment.urgent()).isTrue();
+        assertThat(assessment.symptomsSummary()).contains("dor torácica, sudorese");
+        assertThat(rules.assess(mild)).isEmpty();
+    }
+    
+    @Test
+    void testFind_IgnoresNegatedTerms() {
+        RedFlagMatcher negatable = new RedFlagMatcher(List.of("dor torácica", "dor no peito", "febre"));
+        
+        assertThat(negatable.find("Paciente nega dor torácica")).isEmpty();
+        assertThat(negatable.find("Cefaleia leve, sem dor no peito")).isEmpty();
+        assertThat(negatable.find("Ausência de febre e dor torácica")).isEmpty();
+        assertThat(negatable.find("Sem febre, mas com dor torácica há 1 hora")).containsExactly("dor torácica");
+        assertThat(negatable.find("Nega febre. Dor no peito ao esforço")).containsExactly("dor no peito");
+    }
+    
+    @Test
+    void testAssess_ChecksOnlyCurrentSymptoms() {
+        RedFlagRules rules = new RedFlagRules(new SimpleMeterRegistry(), true, List.of("convulsão", "dor torácica"));
+        PatientAssessmentState pastEvent = PatientAssessmentState.builder()
+            .symptoms("Tosse seca há 5 dias, nega dor torácica")
+            .medicalHistory("Convulsão na infância, sem recorrência")
+            .build();
+        
+        assertThat(rules.assess(pastEvent)).isEmpty();
+    }
+}
@@ -0,0 +1,188 @@
+package com.health.multiagent.benchmark;
+
+import com.health.multiagent.agent.EMRCommsAgent;
+import com.health.multiagent.agent.ExamAgent;
+import com.health.multiagent.agent.PharmacistAgent;
+import com.health.multiagent.agent.TriageAgent;
+import com.health.multiagent.model.PatientAssessmentState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara a geração dos quatro prompts de uma avaliação com os renderizadores
+ * pré-compilados e com PromptTemplate + mapa de variáveis, usados anteriormente
+ * Execução: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=PromptRenderingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptRenderingBenchmark {
+    
+    private final TriageAgent triageAgent = new TriageAgent(null, null, null);
+    private final PharmacistAgent pharmacistAgent = new PharmacistAgent(null, null, null, null);
+    private final ExamAgent examAgent = new ExamAgent(null);
+    private final EMRCommsAgent emrCommsAgent = new EMRCommsAgent(null);
+    
+    private PatientAssessmentState state;
+    
+    @Setup
+    public void setUp() {
+        state = PatientAssessmentState.builder()
+            .sessionId("benchmark")
+            .patientId("P-1024")
+            .symptoms("Dor torácica há 2 horas, irradiando para o braço esquerdo, com sudorese e náusea")
+            .medicalHistory("Hipertensão arterial há 10 anos, diabetes tipo 2, tabagista")
+            .currentMedications(new ArrayList<>(List.of("Losartana 50mg", "Metformina 850mg", "AAS 100mg")))
+            .riskLevel("HIGH")
+            .symptomsSummary("Dor torácica típica com sintomas autonômicos")
+            .triageRecommendations("Encaminhar para emergência, ECG em até 10 minutos")
+            .drugInteractions(new ArrayList<>(List.of("Losartana + AAS: redução do efeito anti-hipertensivo")))
+            .contraindications(new ArrayList<>(List.of("AINEs")))
+            .pharmacistRecommendations("Manter AAS, suspender metformina antes de contraste")
+            .recommendedLabExams(new ArrayList<>(List.of("Troponina", "CK-MB", "Hemograma", "Creatinina")))
+            .recommendedImagingExams(new ArrayList<>(List.of("ECG", "Radiografia de tórax")))
+            .examPriority("EMERGENCY")
+            .examRecommendations("Investigar síndrome coronariana aguda")
+            .reprocessingCount(1)
+            .physicianFeedback("Considerar dissecção de aorta no diagnóstico diferencial")
+            .assessmentHistory(new ArrayList<>(List.of("Iteração 0: rejeitado")))
+            .build();
+    }
+    
+    @Benchmark
+    public void precompiledRenderer(Blackhole blackhole) {
+        blackhole.consume(triageAgent.createPrompt(state));
+        blackhole.consume(pharmacistAgent.createPrompt(state));
+        blackhole.consume(examAgent.createPrompt(state));
+        blackhole.consume(emrCommsAgent.createPrompt(state));
+    }
+    
+    @Benchmark
+    public void promptTemplate(Blackhole blackhole) {
+        blackhole.consume(new PromptTemplate(TriageAgent.TRIAGE_PROMPT_TEMPLATE).create(triageVariables()));
+        blackhole.consume(new PromptTemplate(PharmacistAgent.PHARMACY_PROMPT_TEMPLATE).create(pharmacyVariables()));
+        blackhole.consume(new PromptTemplate(ExamAgent.EXAM_PROMPT_TEMPLATE).create(examVariables()));
+        blackhole.consume(new PromptTemplate(EMRCommsAgent.EMR_PROMPT_TEMPLATE).create(emrVariables()));
+    }
+    
+    private String feedbackSection(String instruction) {
+        return String.format("""
+            
+            IMPORTANT - Physician Feedback from Previous Assessment:
+            %s
+            
+            %s
+            Reprocessing iteration: %d of %d
+            """,
+            state.getPhysicianFeedback(), instruction,
+            state.getReprocessingCount(), state.getMaxReprocessingIterations());
+    }
+    
+    private Map<String, Object> triageVariables() {
+        return Map.of(
+            "patientId", state.getPatientId() != null ? state.getPatientId() : "UNKNOWN",
+            "symptoms", state.getSymptoms() != null ? state.getSymptoms() : "No symptoms provided",
+            "medicalHistory", state.getMedicalHistory() != null ? state.getMedicalHistory() : "No history available",
+            "currentMedications", state.getCurrentMedications() != null && !state.getCurrentMedications().isEmpty()
+                ? String.join(", ", state.getCurrentMedications())
+                : "None reported",
+            "physicianFeedbackSection", feedbackSection("Please incorporate this feedback in your new assessment.")
+        );
+    }
+    
+    private Map<String, Object> pharmacyVariables() {
+        return Map.of(
+            "patientId", state.getPatientId() != null ? state.getPatientId() : "UNKNOWN",
+            "symptoms", state.getSymptoms() != null ? state.getSymptoms() : "No symptoms",
+            "medicalHistory", state.getMedicalHistory() != null ? state.getMedicalHistory() : "No history",
+            "currentMedications", state.getCurrentMedications() != null && !state.getCurrentMedications().isEmpty()
+                ? String.join(", ", state.getCurrentMedications())
+                : "None reported",
+            "riskLevel", state.getRiskLevel() != null ? state.getRiskLevel() : "UNKNOWN",
+            "triageRecommendations", state.getTriageRecommendations() != null
+                ? state.getTriageRecommendations()
+                : "No recommendations",
+            "knownInteractionsSection", "",
+            "physicianFeedbackSection", feedbackSection("Please incorporate this feedback in your medication analysis.")
+        );
+    }
+    
+    private Map<String, Object> examVariables() {
+        return Map.of(
+            "patientId", state.getPatientId() != null ? state.getPatientId() : "UNKNOWN",
+            "symptoms", state.getSymptoms() != null ? state.getSymptoms() : "No symptoms",
+            "medicalHistory", state.getMedicalHistory() != null ? state.getMedicalHistory() : "No history",
+            "riskLevel", state.getRiskLevel() != null ? state.getRiskLevel() : "UNKNOWN",
+            "triageRecommendations", state.getTriageRecommendations() != null
+                ? state.getTriageRecommendations()
+                : "None",
+            "drugInteractions", state.getDrugInteractions() != null && !state.getDrugInteractions().isEmpty()
+                ? String.join(", ", state.getDrugInteractions())
+                : "None identified",
+            "pharmacyRecommendations", state.getPharmacistRecommendations() != null
+                ? state.getPharmacistRecommendations()
+                : "None",
+            "physicianFeedbackSection", feedbackSection("Please incorporate this feedback in your exam recommendations.")
+        );
+    }
+    
+    private Map<String, Object> emrVariables() {
+        String reprocessingInfo = String.format("""
+            
+            Reprocessing Information:
+            - Current iteration: %d of %d
+            - Assessment history: %s
+            """,
+            state.getReprocessingCount(),
+            state.getMaxReprocessingIterations(),
+            String.join("; ", state.getAssessmentHistory()));
+        String feedbackSection = String.format("""
+            
+            CRITICAL - Physician Feedback that MUST be addressed:
+            %s
+            
+            Ensure the new documentation addresses all physician concerns.
+            """,
+            state.getPhysicianFeedback());
+        
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("patientId", state.getPatientId() != null ? state.getPatientId() : "UNKNOWN");
+        variables.put("symptoms", state.getSymptoms() != null ? state.getSymptoms() : "No symptoms");
+        variables.put("medicalHistory", state.getMedicalHistory() != null ? state.getMedicalHistory() : "No history");
+        variables.put("currentMedications", String.join(", ", state.getCurrentMedications()));
+        variables.put("riskLevel", state.getRiskLevel() != null ? state.getRiskLevel() : "UNKNOWN");
+        variables.put("symptomsSummary", state.getSymptomsSummary() != null ? state.getSymptomsSummary() : "N/A");
+        variables.put("triageRecommendations", state.getTriageRecommendations() != null
+            ? state.getTriageRecommendations() : "None");
+        variables.put("drugInteractions", String.join(", ", state.getDrugInteractions()));
+        variables.put("contraindications", String.join(", ", state.getContraindications()));
+        variables.put("pharmacyRecommendations", state.getPharmacistRecommendations() != null
+            ? state.getPharmacistRecommendations() : "None");
+        variables.put("labExams", String.join(", ", state.getRecommendedLabExams()));
+        variables.put("imagingExams", String.join(", ", state.getRecommendedImagingExams()));
+        variables.put("examPriority", state.getExamPriority() != null ? state.getExamPriority() : "ROUTINE");
+        variables.put("examRationale", state.getExamRecommendations() != null ? state.getExamRecommendations() : "N/A");
+        variables.put("reprocessingInfoSection", reprocessingInfo);
+        variables.put("physicianFeedbackSection", feedbackSection);
+        return variables;
+    }
+}
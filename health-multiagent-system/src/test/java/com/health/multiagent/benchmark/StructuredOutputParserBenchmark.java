@@ -0,0 +1,120 @@
+package com.health.multiagent.benchmark;
+
+import com.health.multiagent.llm.StructuredOutputParser;
+import com.health.multiagent.model.PharmacyAnalysis;
+import com.health.multiagent.model.RiskAssessment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Compara o parser Jackson com a extração por regex usada anteriormente pelos agentes
+ * Execução: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=StructuredOutputParserBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StructuredOutputParserBenchmark {
+    
+    private static final String TRIAGE_RESPONSE = """
+        ```json
+        {
+          "riskLevel": "HIGH",
+          "symptomsSummary": "Dor torácica há 2 horas, irradiando para o braço esquerdo, com sudorese",
+          "recommendations": "Encaminhar imediatamente para emergência, realizar ECG e troponina",
+          "urgent": true
+        }
+        ```
+        """;
+    
+    private static final String PHARMACY_RESPONSE = """
+        ```json
+        {
+          "drugInteractions": ["Losartana + AAS: redução do efeito anti-hipertensivo", "Metformina + contraste iodado"],
+          "contraindications": ["AINEs em paciente com hipertensão não controlada"],
+          "recommendations": "Manter losartana, suspender metformina 48h antes de exames com contraste",
+          "hasSafetyConcerns": true
+        }
+        ```
+        """;
+    
+    private static final RiskAssessment RISK_DEFAULTS =
+        new RiskAssessment("MEDIUM", "Assessment completed", "Proceed to next evaluation", false);
+    private static final PharmacyAnalysis PHARMACY_DEFAULTS =
+        new PharmacyAnalysis(List.of(), List.of(), "No specific recommendations", false);
+    
+    @Benchmark
+    public RiskAssessment triageRegex() {
+        String cleaned = TRIAGE_RESPONSE.replaceAll("```json\\s*", "").replaceAll("```\\s*", "").trim();
+        return new RiskAssessment(
+            extractJsonValue(cleaned, "riskLevel", "MEDIUM"),
+            extractJsonValue(cleaned, "symptomsSummary", "Assessment completed"),
+            extractJsonValue(cleaned, "recommendations", "Proceed to next evaluation"),
+            Boolean.parseBoolean(extractJsonValue(cleaned, "urgent", "false")));
+    }
+    
+    @Benchmark
+    public RiskAssessment triageJackson() {
+        return StructuredOutputParser.parse(TRIAGE_RESPONSE, RiskAssessment.class, RISK_DEFAULTS);
+    }
+    
+    @Benchmark
+    public PharmacyAnalysis pharmacyRegex() {
+        String cleaned = PHARMACY_RESPONSE.replaceAll("```json\\s*", "").replaceAll("```\\s*", "").trim();
+        return new PharmacyAnalysis(
+            extractJsonArray(cleaned, "drugInteractions"),
+            extractJsonArray(cleaned, "contraindications"),
+            extractJsonValue(cleaned, "recommendations", "No specific recommendations"),
+            Boolean.parseBoolean(extractJsonValue(cleaned, "hasSafetyConcerns", "false")));
+    }
+    
+    @Benchmark
+    public PharmacyAnalysis pharmacyJackson() {
+        return StructuredOutputParser.parse(PHARMACY_RESPONSE, PharmacyAnalysis.class, PHARMACY_DEFAULTS);
+    }
+    
+    // Extração por regex, como era feita em TriageAgent/PharmacistAgent
+    
+    private static String extractJsonValue(String json, String key, String defaultValue) {
+        Pattern p = Pattern.compile("\"" + key + "\"\\s*:\\s*\"([^\"]+)\"");
+        Matcher m = p.matcher(json);
+        if (m.find()) {
+            return m.group(1);
+        }
+        p = Pattern.compile("\"" + key + "\"\\s*:\\s*([^,}\\s]+)");
+        m = p.matcher(json);
+        if (m.find()) {
+            return m.group(1);
+        }
+        return defaultValue;
+    }
+    
+    private static List<String> extractJsonArray(String json, String key) {
+        Pattern p = Pattern.compile("\"" + key + "\"\\s*:\\s*\\[([^]]+)]");
+        Matcher m = p.matcher(json);
+        if (m.find()) {
+            return Arrays.stream(m.group(1).split(","))
+                .map(s -> s.trim().replaceAll("^\"|\"$", ""))
+                .filter(s -> !s.isEmpty())
+                .collect(Collectors.toList());
+        }
+        return new ArrayList<>();
+    }
+}
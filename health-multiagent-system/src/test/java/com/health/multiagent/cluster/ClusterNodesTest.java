@@ -0,0 +1,110 @@
+package com.health.multiagent.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.health.multiagent.HealthMultiAgentApplication;
+import com.health.multiagent.service.SessionRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes de integração do particionamento de sessões com dois nós na mesma JVM
+ * Não requer o Ollama: a sessão concluída é criada no node-1 pelo endpoint
+ * de transferência, sem executar os agentes.
+ */
+class ClusterNodesTest {
+    
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private ConfigurableApplicationContext node1;
+    private ConfigurableApplicationContext node2;
+    
+    @AfterEach
+    void tearDown() {
+        if (node1 != null) {
+            node1.close();
+        }
+        if (node2 != null) {
+            node2.close();
+        }
+    }
+    
+    @Test
+    void testStatusForwardedToOwnerAndSessionTransferredOnMembershipChange() throws Exception {
+        int port1 = freePort();
+        int port2 = freePort();
+        String members = "node-1=http://localhost:" + port1 + "/api,node-2=http://localhost:" + port2 + "/api";
+        node1 = startNode("node-1", port1, members);
+        node2 = startNode("node-2", port2, members);
+        
+        String sessionId = node1.getBean(ClusterMembership.class).newSessionId();
+        assertThat(node2.getBean(ClusterMembership.class).ownerOf(sessionId)).isEqualTo("node-1");
+        sendTo(port1, "POST", "/cluster/sessions",
+            "{\"sessionId\":\"" + sessionId + "\",\"patientId\":\"P-1\",\"status\":\"COMPLETED\"}");
+        
+        // Consulta no nó que não é dono é encaminhada ao node-1
+        JsonNode forwarded = send(port2, "GET", "/health-assessment/status/" + sessionId, null);
+        assertThat(forwarded.get("sessionId").asText()).isEqualTo(sessionId);
+        assertThat(forwarded.get("status").asText()).isEqualTo("COMPLETED");
+        assertThat(node2.getBean(SessionRegistry.class).get(sessionId)).isNull();
+        
+        // node-1 deixa o cluster: a sessão é transferida para o node-2
+        String remaining = "{\"node-2\":\"http://localhost:" + port2 + "/api\"}";
+        send(port2, "PUT", "/cluster/nodes", remaining);
+        JsonNode rebalanced = send(port1, "PUT", "/cluster/nodes", remaining);
+        
+        assertThat(rebalanced.get("transferredSessions").asInt()).isEqualTo(1);
+        assertThat(node1.getBean(SessionRegistry.class).get(sessionId)).isNull();
+        assertThat(node2.getBean(SessionRegistry.class).get(sessionId)).isNotNull();
+        assertThat(send(port1, "GET", "/health-assessment/status/" + sessionId, null).get("sessionId").asText())
+            .isEqualTo(sessionId);
+    }
+    
+    private static ConfigurableApplicationContext startNode(String nodeId, int port, String members) {
+        // Argumentos de linha de comando têm precedência sobre o application.yml
+        return new SpringApplicationBuilder(HealthMultiAgentApplication.class).run(
+            "--server.port=" + port,
+            "--spring.jmx.enabled=false",
+            "--health.multiagent.graph.checkpoint-dir=",
+            "--health.multiagent.semantic-cache.enabled=false",
+            "--health.multiagent.cluster.enabled=true",
+            "--health.multiagent.cluster.node-id=" + nodeId,
+            "--health.multiagent.cluster.nodes=" + members);
+    }
+    
+    private JsonNode send(int port, String method, String path, String body) throws Exception {
+        return objectMapper.readTree(sendTo(port, method, path, body));
+    }
+    
+    private String sendTo(int port, String method, String path, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api" + path));
+        if (body != null) {
+            request.header("Content-Type", "application/json");
+        }
+        HttpResponse<String> response = httpClient.send(
+            request.method(method, body != null
+                ? HttpRequest.BodyPublishers.ofString(body)
+                : HttpRequest.BodyPublishers.noBody()).build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).as("%s %s: %s", method, path, response.body()).isLessThan(300);
+        return response.body();
+    }
+    
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.health.multiagent.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes unitários do anel de hash consistente
+ */
+class HashRingTest {
+    
+    @Test
+    void testOwner_MovesOnlyKeysOfNewNode() {
+        HashRing ring = new HashRing(List.of("node-1", "node-2", "node-3"), 128);
+        HashRing grown = new HashRing(List.of("node-1", "node-2", "node-3", "node-4"), 128);
+        List<String> keys = IntStream.range(0, 10_000).mapToObj(i -> "session-" + i).toList();
+        
+        long moved = keys.stream().filter(key -> !ring.ownerOf(key).equals(grown.ownerOf(key))).count();
+        
+        assertThat(keys).allMatch(key -> ring.ownerOf(key).equals(grown.ownerOf(key))
+            || grown.ownerOf(key).equals("node-4"));
+        assertThat(moved).isBetween(1_500L, 3_500L);
+    }
+    
+    @Test
+    void testRandomToken_BelongsToNode() {
+        HashRing ring = new HashRing(List.of("node-1", "node-2", "node-3"), 16);
+        Random random = new Random(42);
+        
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(ring.owner(ring.randomToken("node-2", random))).isEqualTo("node-2");
+        }
+    }
+}
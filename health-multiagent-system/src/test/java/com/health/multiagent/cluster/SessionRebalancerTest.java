@@ -0,0 +1,94 @@
+package com.health.multiagent.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.service.HealthAssessmentService;
+import com.health.multiagent.service.SessionRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * Testes unitários da transferência de sessões para o novo dono
+ * O node-1 não faz parte dos membros, então todas as sessões pertencem ao node-2.
+ */
+class SessionRebalancerTest {
+    
+    private static final String SESSIONS_URL = "http://node-2/api" + ClusterController.SESSIONS_PATH;
+    
+    private final SessionRegistry sessionRegistry = mock(SessionRegistry.class);
+    private final HealthAssessmentService assessmentService = mock(HealthAssessmentService.class);
+    private final PatientAssessmentState state = PatientAssessmentState.builder()
+        .sessionId("s1")
+        .status("AWAITING_APPROVAL")
+        .build();
+    private MockRestServiceServer server;
+    private SessionRebalancer rebalancer;
+    
+    @BeforeEach
+    void setUp() {
+        ClusterMembership membership = new ClusterMembership(true, "node-1", List.of("node-2=http://node-2/api"), 16);
+        RestClient.Builder restClientBuilder = RestClient.builder();
+        server = MockRestServiceServer.bindTo(restClientBuilder).build();
+        rebalancer = new SessionRebalancer(membership, sessionRegistry, assessmentService, restClientBuilder,
+            new ObjectMapper());
+        when(sessionRegistry.sessionIds()).thenReturn(Set.of("s1"));
+        when(sessionRegistry.get("s1")).thenReturn(state);
+    }
+    
+    @Test
+    void testRebalance_SendsSnapshotOutsideSessionLock() {
+        server.expect(requestTo(SESSIONS_URL))
+            .andExpect(method(HttpMethod.POST))
+            .andExpect(jsonPath("$.status").value("AWAITING_APPROVAL"))
+            .andRespond(request -> {
+                // Aprovações concorrentes não ficam presas atrás da chamada HTTP
+                assertThat(Thread.holdsLock(state)).isFalse();
+                assertThat(state.getStatus()).isEqualTo(SessionRebalancer.TRANSFERRING);
+                return withSuccess().createResponse(request);
+            });
+        
+        assertThat(rebalancer.rebalance()).isEqualTo(1);
+        
+        server.verify();
+        verify(assessmentService).removeSession("s1");
+    }
+    
+    @Test
+    void testRebalance_RestoresStatusWhenOwnerUnavailable() {
+        server.expect(requestTo(SESSIONS_URL)).andRespond(withServerError());
+        
+        assertThat(rebalancer.rebalance()).isZero();
+        
+        assertThat(state.getStatus()).isEqualTo("AWAITING_APPROVAL");
+        verify(assessmentService, never()).removeSession("s1");
+    }
+    
+    @Test
+    void testRebalance_SkipsBusySessions() {
+        for (String status : List.of("PROCESSING", "REPROCESSING", SessionRebalancer.TRANSFERRING)) {
+            state.setStatus(status);
+            
+            assertThat(rebalancer.rebalance()).isZero();
+        }
+        
+        server.verify();
+        verify(assessmentService, never()).removeSession("s1");
+    }
+}
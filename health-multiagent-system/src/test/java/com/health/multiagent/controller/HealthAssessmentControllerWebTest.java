@@ -0,0 +1,125 @@
+package com.health.multiagent.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.health.multiagent.exception.AssessmentCapacityExceededException;
+import com.health.multiagent.model.BatchSymptomsRequest;
+import com.health.multiagent.model.SymptomsRequest;
+import com.health.multiagent.service.BatchAssessmentService;
+import com.health.multiagent.service.HealthAssessmentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Testes das respostas de recusa e de erro do controller, sem Ollama
+ */
+@WebMvcTest(HealthAssessmentController.class)
+class HealthAssessmentControllerWebTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @MockitoBean
+    private HealthAssessmentService assessmentService;
+    
+    @MockitoBean
+    private BatchAssessmentService batchService;
+    
+    @Test
+    void testSubmitSymptoms_AsyncOverCapacityReturnsServiceUnavailable() throws Exception {
+        when(assessmentService.submitAssessment(any()))
+            .thenThrow(new AssessmentCapacityExceededException("Too many assessments in progress (200), retry later"));
+        SymptomsRequest request = SymptomsRequest.builder()
+            .patientId("TEST-001")
+            .symptoms("Febre alta há 3 dias")
+            .build();
+        
+        mockMvc.perform(post("/health-assessment/symptoms")
+                .param("async", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+            .andExpect(jsonPath("$.status").value("REJECTED"))
+            .andExpect(jsonPath("$.message").value("Too many assessments in progress (200), retry later"));
+    }
+    
+    @Test
+    void testSubmitSymptoms_SessionLimitReturnsServiceUnavailable() throws Exception {
+        when(assessmentService.startAssessment(any()))
+            .thenThrow(new AssessmentCapacityExceededException("Session limit reached: 3 assessments in progress, retry later"));
+        SymptomsRequest request = SymptomsRequest.builder()
+            .patientId("TEST-001")
+            .symptoms("Febre alta há 3 dias")
+            .build();
+        
+        mockMvc.perform(post("/health-assessment/symptoms")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+            .andExpect(jsonPath("$.status").value("REJECTED"))
+            .andExpect(jsonPath("$.message").value("Session limit reached: 3 assessments in progress, retry later"));
+    }
+    
+    @Test
+    void testApproveAction_SessionLimitReturnsServiceUnavailable() throws Exception {
+        when(assessmentService.processApproval(eq("s1"), eq("APPROVED"), any(), any()))
+            .thenThrow(new AssessmentCapacityExceededException("Session limit reached: 3 assessments in progress, retry later"));
+        
+        mockMvc.perform(post("/health-assessment/approve/s1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"decision\": \"APPROVED\"}"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+            .andExpect(jsonPath("$.status").value("REJECTED"));
+    }
+    
+    @Test
+    void testSubmitBatch_OverLimitReturnsErrorMessage() throws Exception {
+        when(batchService.submitBatch(anyList()))
+            .thenThrow(new IllegalArgumentException("Batch exceeds the limit of 2 items"));
+        SymptomsRequest item = SymptomsRequest.builder()
+            .patientId("TEST-001")
+            .symptoms("Febre alta há 3 dias")
+            .build();
+        BatchSymptomsRequest request = BatchSymptomsRequest.builder()
+            .items(List.of(item, item, item))
+            .build();
+        
+        mockMvc.perform(post("/health-assessment/symptoms/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.status").value("ERROR"))
+            .andExpect(jsonPath("$.message").value("Batch exceeds the limit of 2 items"));
+    }
+    
+    @Test
+    void testSubmitBatch_EmptyBatchReturnsValidationMessage() throws Exception {
+        mockMvc.perform(post("/health-assessment/symptoms/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new BatchSymptomsRequest())))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.status").value("ERROR"))
+            .andExpect(jsonPath("$.data.items").value("At least one item is required"));
+    }
+}
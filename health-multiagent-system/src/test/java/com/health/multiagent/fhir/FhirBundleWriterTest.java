@@ -0,0 +1,95 @@
+package com.health.multiagent.fhir;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.health.multiagent.model.FHIRDocumentation;
+import com.health.multiagent.model.FhirDocument;
+import com.health.multiagent.model.PatientAssessmentState;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes unitários da montagem do Bundle FHIR
+ */
+class FhirBundleWriterTest {
+    
+    private static final Instant TIMESTAMP = Instant.parse("2025-03-10T14:30:15.250Z");
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @Test
+    void testWrite_BuildsResourcesFromAssessmentState() throws Exception {
+        PatientAssessmentState state = PatientAssessmentState.builder()
+            .sessionId("s1")
+            .patientId("P-1024")
+            .symptoms("Dor \"em aperto\" no peito")
+            .currentMedications(new ArrayList<>(List.of("Losartana 50mg", "Vitamina D")))
+            .medicationIds(new ArrayList<>(List.of("losartana@50mg", "?vitamina d")))
+            .riskLevel("HIGH")
+            .urgent(true)
+            .drugInteractions(new ArrayList<>(List.of("Losartana + Espironolactona (grave): hipercalemia")))
+            .recommendedLabExams(new ArrayList<>(List.of("Troponina")))
+            .recommendedImagingExams(new ArrayList<>(List.of("ECG")))
+            .examPriority("EMERGENCY")
+            .build();
+        
+        FhirDocument document = FhirBundleWriter.write(state, TIMESTAMP);
+        JsonNode bundle = objectMapper.readTree(document.toUtf8());
+        
+        assertThat(bundle.path("resourceType").asText()).isEqualTo("Bundle");
+        assertThat(bundle.path("timestamp").asText()).isEqualTo("2025-03-10T14:30:15Z");
+        assertThat(bundle.path("entry").findValuesAsText("resourceType")).containsExactly(
+            "Patient", "ClinicalImpression", "MedicationStatement", "MedicationStatement",
+            "ServiceRequest", "ServiceRequest");
+        
+        JsonNode impression = bundle.path("entry").get(1).path("resource");
+        assertThat(impression.path("description").asText()).isEqualTo("Dor \"em aperto\" no peito");
+        assertThat(impression.path("subject").path("reference").asText())
+            .isEqualTo(bundle.path("entry").get(0).path("fullUrl").asText());
+        assertThat(impression.path("finding").findValuesAsText("text"))
+            .containsExactly("Nível de risco: HIGH (urgente)", "Interação medicamentosa: "
+                + "Losartana + Espironolactona (grave): hipercalemia");
+        
+        JsonNode losartan = bundle.path("entry").get(2).path("resource");
+        assertThat(losartan.path("medicationCodeableConcept").path("coding").get(0).path("code").asText())
+            .isEqualTo("losartana");
+        assertThat(losartan.path("dosage").get(0).path("text").asText()).isEqualTo("50mg");
+        assertThat(bundle.path("entry").get(3).path("resource").has("dosage")).isFalse();
+        assertThat(bundle.path("entry").get(4).path("resource").path("priority").asText()).isEqualTo("stat");
+        
+        assertThat(FhirBundleWriter.write(state, TIMESTAMP)).isEqualTo(document);
+    }
+    
+    @Test
+    void testSerialize_EmbedsBundleAsJsonObject() throws Exception {
+        PatientAssessmentState state = PatientAssessmentState.builder()
+            .sessionId("s1")
+            .patientId("P-1024")
+            .symptoms("Cefaleia intensa")
+            .build();
+        state.setFhirDocument(FhirBundleWriter.write(state, TIMESTAMP));
+        
+        JsonNode response = objectMapper.readTree(objectMapper.writeValueAsBytes(state));
+        
+        assertThat(response.path("fhirDocument").isObject()).isTrue();
+        assertThat(response.path("fhirDocument").path("resourceType").asText()).isEqualTo("Bundle");
+        
+        // Resultado do EMR/Comms Agent enviado no evento agent-completed
+        JsonNode completed = objectMapper.readTree(objectMapper.writeValueAsBytes(
+            new FHIRDocumentation(state.getFhirDocument(), "Paciente avaliado", "ASSESSMENT")));
+        assertThat(completed.path("fhirDocument")).isEqualTo(response.path("fhirDocument"));
+        
+        // Estado recebido de outro nó, com o Bundle como objeto ou como texto
+        PatientAssessmentState adopted = objectMapper.treeToValue(response, PatientAssessmentState.class);
+        assertThat(objectMapper.readTree(adopted.getFhirDocument().toUtf8()))
+            .isEqualTo(response.path("fhirDocument"));
+        PatientAssessmentState legacy = objectMapper.readValue(
+            "{\"fhirDocument\": \"{\\\"resourceType\\\": \\\"Bundle\\\"}\"}", PatientAssessmentState.class);
+        assertThat(legacy.getFhirDocument()).isEqualTo(FhirDocument.of("{\"resourceType\": \"Bundle\"}"));
+    }
+}
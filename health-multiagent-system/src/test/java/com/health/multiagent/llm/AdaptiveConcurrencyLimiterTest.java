@@ -0,0 +1,157 @@
+package com.health.multiagent.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Testes unitários do limitador adaptativo de chamadas ao LLM
+ */
+class AdaptiveConcurrencyLimiterTest {
+    
+    private static final Duration AGING_INTERVAL = Duration.ofSeconds(30);
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    
+    @Test
+    void testLimit_GrowsWithStableLatencyAndBacksOffOnSlowCalls() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 0, Duration.ZERO);
+        
+        for (int round = 0; round < 10; round++) {
+            completeRound(limiter, limiter.limit(), Duration.ofSeconds(2));
+        }
+        int grown = limiter.limit();
+        completeRound(limiter, grown, Duration.ofSeconds(10));
+        
+        assertThat(grown).isGreaterThan(4);
+        assertThat(limiter.limit()).isLessThan(grown);
+        assertThat(meterRegistry.get(AdaptiveConcurrencyLimiter.LIMIT_METRIC).gauge().value())
+            .isEqualTo(limiter.limit());
+    }
+    
+    @Test
+    void testLimit_LongCallsOfAnotherAgentDoNotLookLikeCongestion() {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 0, Duration.ZERO);
+        
+        for (int round = 0; round < 10; round++) {
+            completeRound(limiter, "TRIAGE", 2, Duration.ofSeconds(2));
+            completeRound(limiter, "EMR_COMMS", 2, Duration.ofSeconds(20));
+        }
+        
+        assertThat(limiter.limit()).isGreaterThanOrEqualTo(4);
+    }
+    
+    @Test
+    void testAcquire_RejectsWhenQueueIsFullOrWaitExpires() {
+        AdaptiveConcurrencyLimiter noQueue = limiter(1, 0, Duration.ZERO);
+        noQueue.acquire(CallPriority.MEDIUM);
+        
+        assertThatThrownBy(() -> noQueue.acquire(CallPriority.MEDIUM)).isInstanceOf(ConcurrencyLimitExceededException.class);
+        
+        AdaptiveConcurrencyLimiter shortWait = limiter(1, 1, Duration.ofMillis(20));
+        shortWait.acquire(CallPriority.MEDIUM);
+        
+        assertThatThrownBy(() -> shortWait.acquire(CallPriority.MEDIUM)).isInstanceOf(ConcurrencyLimitExceededException.class)
+            .hasMessageContaining("Timed out");
+        assertThat(shortWait.queued()).isZero();
+        assertThat(meterRegistry.get(AdaptiveConcurrencyLimiter.REJECTIONS_METRIC).tag("reason", "queue_full")
+            .counter().count()).isEqualTo(1);
+    }
+    
+    @Test
+    void testAcquire_WaitingCallProceedsWhenSlotIsReleased() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, Duration.ofSeconds(5));
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire(CallPriority.MEDIUM);
+        Thread waiting = Thread.ofVirtual().start(() -> limiter.acquire(CallPriority.MEDIUM).release());
+        
+        while (limiter.queued() == 0) {
+            Thread.sleep(5);
+        }
+        first.release();
+        waiting.join(5_000);
+        
+        assertThat(waiting.isAlive()).isFalse();
+        assertThat(limiter.inFlight()).isZero();
+    }
+    
+    @Test
+    void testAcquire_HigherPriorityWaiterIsAdmittedFirst() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 10, Duration.ofSeconds(5));
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire(CallPriority.MEDIUM);
+        List<CallPriority> admitted = new CopyOnWriteArrayList<>();
+        Thread low = waitInQueue(limiter, CallPriority.LOW, admitted);
+        Thread critical = waitInQueue(limiter, CallPriority.CRITICAL, admitted);
+        
+        first.release();
+        low.join(5_000);
+        critical.join(5_000);
+        
+        assertThat(admitted).containsExactly(CallPriority.CRITICAL, CallPriority.LOW);
+        assertThat(meterRegistry.get(AdaptiveConcurrencyLimiter.WAIT_METRIC).tag("priority", "critical")
+            .timer().count()).isEqualTo(1);
+    }
+    
+    @Test
+    void testAcquire_AgedLowPriorityWaiterIsNotStarved() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 10, Duration.ofSeconds(5));
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire(CallPriority.MEDIUM);
+        List<CallPriority> admitted = new CopyOnWriteArrayList<>();
+        Thread low = waitInQueue(limiter, CallPriority.LOW, admitted);
+        // LOW está três níveis abaixo de CRITICAL: após três intervalos, empata e vence pela ordem de chegada
+        clock.addAndGet(AGING_INTERVAL.multipliedBy(3).toNanos());
+        Thread critical = waitInQueue(limiter, CallPriority.CRITICAL, admitted);
+        
+        first.release();
+        low.join(5_000);
+        critical.join(5_000);
+        
+        assertThat(admitted).containsExactly(CallPriority.LOW, CallPriority.CRITICAL);
+    }
+    
+    /**
+     * Inicia uma chamada que aguarda na fila e registra a ordem de admissão
+     */
+    private Thread waitInQueue(AdaptiveConcurrencyLimiter limiter, CallPriority priority,
+                               List<CallPriority> admitted) throws InterruptedException {
+        int queued = limiter.queued();
+        Thread thread = Thread.ofVirtual().start(() -> {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire(priority);
+            admitted.add(priority);
+            permit.release();
+        });
+        while (limiter.queued() == queued) {
+            Thread.sleep(5);
+        }
+        return thread;
+    }
+    
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int maxQueue, Duration maxWait) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, 1, 16, maxQueue, maxWait, AGING_INTERVAL, 2.0, meterRegistry,
+            clock::get);
+    }
+    
+    /**
+     * Ocupa todas as vagas e conclui as chamadas com a latência informada
+     */
+    private void completeRound(AdaptiveConcurrencyLimiter limiter, int calls, Duration latency) {
+        completeRound(limiter, AdaptiveConcurrencyLimiter.DEFAULT_AGENT, calls, latency);
+    }
+    
+    private void completeRound(AdaptiveConcurrencyLimiter limiter, String agent, int calls, Duration latency) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            permits.add(limiter.acquire(agent, CallPriority.MEDIUM));
+        }
+        clock.addAndGet(latency.toNanos());
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::release);
+    }
+}
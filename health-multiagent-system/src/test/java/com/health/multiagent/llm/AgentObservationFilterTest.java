@@ -0,0 +1,49 @@
+package com.health.multiagent.llm;
+
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.observation.ChatModelObservationContext;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes da chave "agent" nas observações das chamadas ao modelo
+ */
+class AgentObservationFilterTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+    
+    @Test
+    void testMap_TagsModelObservationsWithCurrentAgent() {
+        observationRegistry.observationConfig()
+            .observationFilter(new AgentObservationFilter())
+            .observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        
+        AgentCallContext.call("TRIAGE", () -> observe("model.call", chatContext()));
+        observe("model.call", chatContext());
+        observe("other", new Observation.Context());
+        
+        assertThat(meterRegistry.get("model.call").tag(AgentObservationFilter.AGENT_KEY, "TRIAGE").timer().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("model.call").tag(AgentObservationFilter.AGENT_KEY, "none").timer().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("other").timer().getId().getTag(AgentObservationFilter.AGENT_KEY)).isNull();
+    }
+    
+    private Object observe(String name, Observation.Context context) {
+        Observation.createNotStarted(name, () -> context, observationRegistry).observe(() -> { });
+        return null;
+    }
+    
+    private static ChatModelObservationContext chatContext() {
+        return ChatModelObservationContext.builder()
+            .prompt(new Prompt("Sintomas: febre"))
+            .provider("ollama")
+            .build();
+    }
+}
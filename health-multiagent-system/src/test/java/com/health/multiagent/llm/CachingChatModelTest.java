@@ -0,0 +1,101 @@
+package com.health.multiagent.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes unitários do cache de respostas do LLM
+ */
+class CachingChatModelTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ChatModel delegate;
+    private CachingChatModel cachingModel;
+    
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ChatModel.class);
+        when(delegate.call(any(Prompt.class))).thenAnswer(invocation ->
+            new ChatResponse(List.of(new Generation(new AssistantMessage("{\"riskLevel\":\"LOW\"}")))));
+        cachingModel = new CachingChatModel(delegate, Set.of("TRIAGE"), 10, Duration.ofMinutes(5), meterRegistry);
+    }
+    
+    @Test
+    void testIdenticalPrompt_IsServedFromCache() {
+        String first = AgentCallContext.call("TRIAGE", () -> text(cachingModel.call(new Prompt("Dor de cabeça"))));
+        String second = AgentCallContext.call("TRIAGE", () -> text(cachingModel.call(new Prompt("Dor de cabeça"))));
+        AgentCallContext.call("TRIAGE", () -> cachingModel.call(new Prompt("Febre")));
+        
+        assertThat(second).isEqualTo(first);
+        verify(delegate, times(2)).call(any(Prompt.class));
+        assertThat(count("hit")).isEqualTo(1);
+        assertThat(count("miss")).isEqualTo(2);
+    }
+    
+    @Test
+    void testSlowMiss_DoesNotBlockOtherKeys() throws Exception {
+        CountDownLatch calling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.call(any(Prompt.class))).thenAnswer(invocation -> {
+            if (invocation.<Prompt>getArgument(0).getContents().contains("Dor de cabeça")) {
+                calling.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("{\"riskLevel\":\"LOW\"}"))));
+        });
+        
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(() ->
+            AgentCallContext.call("TRIAGE", () -> text(cachingModel.call(new Prompt("Dor de cabeça")))));
+        assertThat(calling.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> sameKey = CompletableFuture.supplyAsync(() ->
+            AgentCallContext.call("TRIAGE", () -> text(cachingModel.call(new Prompt("Dor de cabeça")))));
+        CompletableFuture<String> otherKey = CompletableFuture.supplyAsync(() ->
+            AgentCallContext.call("TRIAGE", () -> text(cachingModel.call(new Prompt("Febre")))));
+        
+        assertThat(otherKey.get(2, TimeUnit.SECONDS)).isEqualTo("{\"riskLevel\":\"LOW\"}");
+        assertThat(slow).isNotDone();
+        release.countDown();
+        
+        assertThat(sameKey.get(5, TimeUnit.SECONDS)).isEqualTo(slow.get(5, TimeUnit.SECONDS));
+        verify(delegate, times(2)).call(any(Prompt.class));
+    }
+    
+    @Test
+    void testDisabledAgent_BypassesCache() {
+        AgentCallContext.call("EXAM", () -> cachingModel.call(new Prompt("Dor de cabeça")));
+        AgentCallContext.call("EXAM", () -> cachingModel.call(new Prompt("Dor de cabeça")));
+        cachingModel.call(new Prompt("Dor de cabeça"));
+        
+        verify(delegate, times(3)).call(any(Prompt.class));
+        assertThat(meterRegistry.find(CachingChatModel.REQUESTS_METRIC).counters()).isEmpty();
+    }
+    
+    private double count(String result) {
+        return meterRegistry.get(CachingChatModel.REQUESTS_METRIC)
+            .tag("agent", "TRIAGE").tag("result", result).counter().count();
+    }
+    
+    private static String text(ChatResponse response) {
+        return response.getResult().getOutput().getText();
+    }
+}
@@ -0,0 +1,94 @@
+package com.health.multiagent.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * Testes unitários do índice HNSW
+ */
+class HnswIndexTest {
+    
+    private static final int DIMENSIONS = 32;
+    
+    @Test
+    void testSearch_FindsExactVector() {
+        Random random = new Random(42);
+        HnswIndex<Integer> index = new HnswIndex<>(16, 100, 50, random);
+        List<float[]> vectors = IntStream.range(0, 500).mapToObj(i -> randomVector(random)).toList();
+        for (int i = 0; i < vectors.size(); i++) {
+            index.add(vectors.get(i), i);
+        }
+        
+        int found = 0;
+        for (int i = 0; i < vectors.size(); i += 10) {
+            List<HnswIndex.Match<Integer>> matches = index.search(vectors.get(i), 1);
+            if (matches.get(0).value() == i) {
+                found++;
+                assertThat(matches.get(0).similarity()).isCloseTo(1.0, offset(1e-5));
+            }
+        }
+        assertThat(index.size()).isEqualTo(500);
+        assertThat(found).isGreaterThanOrEqualTo(49);
+    }
+    
+    @Test
+    void testSearch_RecallAgainstBruteForce() {
+        Random random = new Random(7);
+        HnswIndex<Integer> index = new HnswIndex<>(16, 100, 50, random);
+        List<float[]> vectors = IntStream.range(0, 1000).mapToObj(i -> randomVector(random)).toList();
+        for (int i = 0; i < vectors.size(); i++) {
+            index.add(vectors.get(i), i);
+        }
+        
+        int hits = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+            int expected = IntStream.range(0, vectors.size()).boxed()
+                .max(Comparator.comparingDouble(i -> cosine(query, vectors.get(i))))
+                .orElseThrow();
+            if (index.search(query, 5).stream().anyMatch(match -> match.value() == expected)) {
+                hits++;
+            }
+        }
+        assertThat(hits).isGreaterThanOrEqualTo(45);
+    }
+    
+    @Test
+    void testDimensionMismatch_IsRejected() {
+        HnswIndex<String> index = new HnswIndex<>(16, 100, 50);
+        index.add(new float[] {1, 0, 0}, "a");
+        
+        assertThat(new HnswIndex<String>(16, 100, 50).search(new float[] {1, 0}, 3)).isEmpty();
+        assertThatThrownBy(() -> index.add(new float[] {1, 0}, "b")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> index.search(new float[] {1, 0}, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+    
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+}
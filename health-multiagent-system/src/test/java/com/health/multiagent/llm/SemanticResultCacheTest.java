@@ -0,0 +1,121 @@
+package com.health.multiagent.llm;
+
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.RiskAssessment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes unitários do cache semântico de resultados
+ */
+class SemanticResultCacheTest {
+    
+    private final AtomicInteger executions = new AtomicInteger();
+    private SemanticResultCache cache;
+    
+    @BeforeEach
+    void setUp() {
+        EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+        // Embedding simulado: textos sobre cefaleia ficam próximos entre si
+        when(embeddingModel.embed(anyString())).thenAnswer(invocation -> {
+            String text = invocation.getArgument(0);
+            return text.contains("cefaleia")
+                ? new float[] {1f, 0.05f, 0f}
+                : new float[] {0f, 0f, 1f};
+        });
+        cache = new SemanticResultCache(embeddingModel, new SimpleMeterRegistry(), true, Set.of("TRIAGE"), 0.95, 100);
+    }
+    
+    @Test
+    void testApprovedResult_IsReusedForSimilarPresentation() {
+        PatientAssessmentState first = session("s1", null);
+        RiskAssessment original = triage(first, "cefaleia intensa");
+        
+        RiskAssessment beforeApproval = triage(session("s2", null), "cefaleia intensa");
+        cache.promote("s1");
+        RiskAssessment afterApproval = triage(session("s3", null), "Cefaleia  intensa");
+        RiskAssessment unrelated = triage(session("s4", null), "dor abdominal");
+        
+        assertThat(afterApproval).isSameAs(original);
+        assertThat(beforeApproval).isNotSameAs(original);
+        assertThat(unrelated).isNotSameAs(original);
+        assertThat(executions).hasValue(3);
+    }
+    
+    @Test
+    void testReprocessingWithFeedback_AlwaysExecutesAgent() {
+        triage(session("s1", null), "cefaleia intensa");
+        cache.promote("s1");
+        
+        triage(session("s2", "Reavaliar risco"), "cefaleia intensa");
+        
+        assertThat(executions).hasValue(2);
+    }
+    
+    @Test
+    void testReusedResult_IsAdaptedToCurrentPatient() {
+        RiskAssessment original = triage(session("s1", null), "cefaleia intensa");
+        cache.promote("s1");
+        
+        RiskAssessment reused = cache.computeIfAbsent("TRIAGE", session("s2", null), "cefaleia intensa", null,
+            RiskAssessment.class, () -> null,
+            hit -> new RiskAssessment(hit.riskLevel(), "cefaleia pulsátil", hit.recommendations(), hit.urgent()));
+        RiskAssessment again = triage(session("s3", null), "cefaleia intensa");
+        
+        assertThat(reused.riskLevel()).isEqualTo(original.riskLevel());
+        assertThat(reused.symptomsSummary()).isEqualTo("cefaleia pulsátil");
+        assertThat(again).isSameAs(original);
+    }
+    
+    @Test
+    void testFullIndex_EvictsOldestApprovedResults() {
+        Map<String, float[]> vectors = Map.of(
+            "febre", new float[] {1f, 0f, 0f},
+            "tosse", new float[] {0f, 1f, 0f},
+            "coriza", new float[] {0f, 0f, 1f});
+        EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+        when(embeddingModel.embed(anyString())).thenAnswer(invocation -> vectors.get((String) invocation.getArgument(0)));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        cache = new SemanticResultCache(embeddingModel, meterRegistry, true, Set.of("TRIAGE"), 0.95, 2);
+        
+        triage(session("s1", null), "febre");
+        triage(session("s2", null), "tosse");
+        triage(session("s3", null), "coriza");
+        cache.promote("s1");
+        cache.promote("s2");
+        cache.promote("s3");
+        triage(session("s4", null), "febre");
+        triage(session("s5", null), "tosse");
+        triage(session("s6", null), "coriza");
+        
+        // "febre" foi removida para indexar "coriza"; as demais continuam sendo reaproveitadas
+        assertThat(executions).hasValue(4);
+        assertThat(meterRegistry.get(SemanticResultCache.EVICTIONS_METRIC).tag("agent", "TRIAGE").counter().count())
+            .isEqualTo(1);
+    }
+    
+    private RiskAssessment triage(PatientAssessmentState state, String symptoms) {
+        return cache.computeIfAbsent("TRIAGE", state, symptoms, null, RiskAssessment.class, () -> {
+            executions.incrementAndGet();
+            return new RiskAssessment("HIGH", symptoms, "Avaliação presencial", true);
+        });
+    }
+    
+    private static PatientAssessmentState session(String sessionId, String feedback) {
+        PatientAssessmentState state = new PatientAssessmentState();
+        state.setSessionId(sessionId);
+        state.setPhysicianFeedback(feedback);
+        return state;
+    }
+}
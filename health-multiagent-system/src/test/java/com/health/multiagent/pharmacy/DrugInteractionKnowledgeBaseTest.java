@@ -0,0 +1,47 @@
+package com.health.multiagent.pharmacy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes unitários da base local de interações medicamentosas
+ */
+class DrugInteractionKnowledgeBaseTest {
+    
+    private static final ClassPathResource SOURCE = new ClassPathResource("drug-interactions.json");
+    
+    @Test
+    void testCheck_FindsKnownPairsByNameAliasAndDose() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        MedicationNormalizer normalizer = new MedicationNormalizer(objectMapper, SOURCE);
+        DrugInteractionKnowledgeBase knowledgeBase = new DrugInteractionKnowledgeBase(
+            objectMapper, normalizer, true, SOURCE);
+        
+        InteractionFindings findings = knowledgeBase.check(normalizer.canonicalIds(List.of(
+            "Marevan 5mg", "AAS 100 mg", "Losartana potássica 50mg", "Espironolactona 25mg", "Vitamina D")));
+        
+        assertThat(findings.descriptions()).containsExactly(
+            "Varfarina + Ácido acetilsalicílico (grave): Risco aumentado de sangramento pela soma dos efeitos "
+                + "anticoagulante e antiplaquetário.",
+            "Losartana + Espironolactona (grave): Risco de hipercalemia; monitorar potássio e função renal.");
+        assertThat(findings.unresolved()).containsExactly("?vitamina d");
+        assertThat(findings.hasMajor()).isTrue();
+        assertThat(findings.complete()).isFalse();
+    }
+    
+    @Test
+    void testCheck_DisabledBaseLeavesAllMedicationsUnresolved() {
+        DrugInteractionKnowledgeBase knowledgeBase = new DrugInteractionKnowledgeBase(false,
+            new DrugInteractionKnowledgeBase.Catalog(List.of()), new MedicationNormalizer(List.of()));
+        
+        InteractionFindings findings = knowledgeBase.check(List.of("varfarina@5mg", "aas@100mg"));
+        
+        assertThat(findings.interactions()).isEmpty();
+        assertThat(findings.unresolved()).containsExactly("varfarina@5mg", "aas@100mg");
+    }
+}
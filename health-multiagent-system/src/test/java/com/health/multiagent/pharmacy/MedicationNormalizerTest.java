@@ -0,0 +1,35 @@
+package com.health.multiagent.pharmacy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes unitários da normalização de medicações
+ */
+class MedicationNormalizerTest {
+    
+    private final MedicationNormalizer normalizer = new MedicationNormalizer(List.of(
+        new MedicationNormalizer.Drug("losartana", "Losartana", List.of("losartan", "cozaar")),
+        new MedicationNormalizer.Drug("omeprazol", "Omeprazol", List.of("omeprazole")),
+        new MedicationNormalizer.Drug("aas", "Ácido acetilsalicílico", List.of("aas", "aspirina"))));
+    
+    @Test
+    void testCanonicalIds_SameRegimenWrittenDifferentlyGetsTheSameId() {
+        assertThat(normalizer.canonicalIds(List.of(
+            "Losartana 50mg", "losartan potássico 50 MG", "COZAAR 50,0 mg 1x ao dia", "Losartna 50mg")))
+            .containsOnly("losartana@50mg");
+        assertThat(normalizer.canonicalIds(List.of("AAS 100mg", "Aspirina", "Vitamina D 1000 UI")))
+            .containsExactly("aas@100mg", "aas", "?vitamina d@1000ui");
+    }
+    
+    @Test
+    void testNormalize_FuzzyMatchKeepsFirstLetterAndShortNamesExact() {
+        assertThat(normalizer.normalize("Omeprazl 20mg").drugId()).isEqualTo("omeprazol");
+        assertThat(normalizer.normalize("Esomeprazol 20mg").drugId()).isNull();
+        assertThat(normalizer.normalize("AAZ").drugId()).isNull();
+        assertThat(normalizer.normalize("Losartana 50mg").name()).isEqualTo("Losartana");
+    }
+}
@@ -0,0 +1,91 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.agent.Agent;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.StateField;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Testes unitários do grafo de dependências entre agentes
+ */
+class AgentDependencyGraphTest {
+    
+    private static final Agent TRIAGE = agent("TRIAGE",
+        Set.of(StateField.SYMPTOMS), Set.of(), Set.of(StateField.RISK_LEVEL));
+    private static final Agent PHARMACIST = agent("PHARMACIST",
+        Set.of(StateField.RISK_LEVEL), Set.of(), Set.of(StateField.DRUG_INTERACTIONS));
+    private static final Agent EXAM = agent("EXAM",
+        Set.of(StateField.RISK_LEVEL), Set.of(StateField.DRUG_INTERACTIONS), Set.of(StateField.EXAM_PRIORITY));
+    private static final Agent EMR = agent("EMR_COMMS",
+        Set.of(StateField.DRUG_INTERACTIONS, StateField.EXAM_PRIORITY), Set.of(), Set.of(StateField.FHIR_DOCUMENT));
+    
+    @Test
+    void testSequentialMode_HonoursOptionalInputs() {
+        AgentDependencyGraph graph = new AgentDependencyGraph(List.of(EMR, EXAM, PHARMACIST, TRIAGE), FlowMode.SEQUENTIAL);
+        
+        assertThat(graph.dependenciesOf("EXAM")).containsExactlyInAnyOrder("TRIAGE", "PHARMACIST");
+        assertThat(graph.executionOrder()).extracting(Agent::name)
+            .containsExactly("TRIAGE", "PHARMACIST", "EXAM", "EMR_COMMS");
+    }
+    
+    @Test
+    void testParallelMode_ExamOnlyWaitsForTriage() {
+        AgentDependencyGraph graph = new AgentDependencyGraph(List.of(TRIAGE, PHARMACIST, EXAM, EMR), FlowMode.PARALLEL);
+        
+        assertThat(graph.dependenciesOf("PHARMACIST")).containsExactly("TRIAGE");
+        assertThat(graph.dependenciesOf("EXAM")).containsExactly("TRIAGE");
+        assertThat(graph.dependenciesOf("EMR_COMMS")).containsExactlyInAnyOrder("PHARMACIST", "EXAM");
+    }
+    
+    @Test
+    void testAffectedBy_IncludesTransitiveDependents() {
+        AgentDependencyGraph graph = new AgentDependencyGraph(List.of(TRIAGE, PHARMACIST, EXAM, EMR), FlowMode.SEQUENTIAL);
+        
+        assertThat(graph.affectedBy(List.of("PHARMACIST"))).containsExactly("PHARMACIST", "EXAM", "EMR_COMMS");
+        assertThat(graph.affectedBy(List.of("EMR_COMMS"))).containsExactly("EMR_COMMS");
+    }
+    
+    @Test
+    void testCyclicDependency_IsRejected() {
+        Agent first = agent("FIRST", Set.of(StateField.EXAM_PRIORITY), Set.of(), Set.of(StateField.RISK_LEVEL));
+        Agent second = agent("SECOND", Set.of(StateField.RISK_LEVEL), Set.of(), Set.of(StateField.EXAM_PRIORITY));
+        
+        assertThatThrownBy(() -> new AgentDependencyGraph(List.of(first, second), FlowMode.PARALLEL))
+            .isInstanceOf(IllegalStateException.class);
+    }
+    
+    private static Agent agent(String name, Set<StateField> required, Set<StateField> optional, Set<StateField> outputs) {
+        return new Agent() {
+            @Override
+            public String name() {
+                return name;
+            }
+            
+            @Override
+            public Set<StateField> requiredInputs() {
+                return required;
+            }
+            
+            @Override
+            public Set<StateField> optionalInputs() {
+                return optional;
+            }
+            
+            @Override
+            public Set<StateField> outputs() {
+                return outputs;
+            }
+            
+            @Override
+            public Object execute(PatientAssessmentState state) {
+                return null;
+            }
+        };
+    }
+}
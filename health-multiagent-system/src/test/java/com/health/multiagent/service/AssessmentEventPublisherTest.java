@@ -0,0 +1,166 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.agent.AgentChatInvoker;
+import com.health.multiagent.agent.PromptBudget;
+import com.health.multiagent.model.AssessmentEvent;
+import com.health.multiagent.model.PatientAssessmentState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.MockedConstruction;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes unitários da publicação de eventos SSE
+ * Os SseEmitter criados pelo publicador são substituídos por mocks, que
+ * registram os eventos enviados e o encerramento sem um container servlet.
+ */
+class AssessmentEventPublisherTest {
+    
+    private final AssessmentEventPublisher publisher = new AssessmentEventPublisher(1);
+    private MockedConstruction<SseEmitter> emitters;
+    
+    @BeforeEach
+    void setUp() {
+        emitters = mockConstruction(SseEmitter.class);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        emitters.close();
+    }
+    
+    @Test
+    void testSubscribe_SendsCurrentStatus() throws Exception {
+        SseEmitter emitter = publisher.subscribe(session("s1", "PROCESSING"));
+        
+        List<AssessmentEvent> sent = sent(emitter, AssessmentEventPublisher.EVENT_STATUS);
+        assertThat(sent).singleElement().extracting(AssessmentEvent::status).isEqualTo("PROCESSING");
+        verify(emitter, never()).complete();
+        assertThat(publisher.hasSubscribers("s1")).isTrue();
+    }
+    
+    @Test
+    void testSubscribe_CompletesImmediatelyForTerminalSession() throws Exception {
+        SseEmitter emitter = publisher.subscribe(session("s1", "COMPLETED"));
+        
+        assertThat(sent(emitter, AssessmentEventPublisher.EVENT_STATUS)).hasSize(1);
+        verify(emitter).complete();
+    }
+    
+    @Test
+    void testStatusChanged_ClosesAndRemovesEmittersOnTerminalStatus() throws Exception {
+        for (String status : List.of("COMPLETED", "REJECTED", "ERROR")) {
+            String sessionId = "s-" + status;
+            SseEmitter first = publisher.subscribe(session(sessionId, "PROCESSING"));
+            SseEmitter second = publisher.subscribe(session(sessionId, "PROCESSING"));
+            
+            publisher.statusChanged(session(sessionId, "AWAITING_APPROVAL"));
+            verify(first, never()).complete();
+            publisher.statusChanged(session(sessionId, status));
+            
+            for (SseEmitter emitter : List.of(first, second)) {
+                assertThat(sent(emitter, AssessmentEventPublisher.EVENT_STATUS))
+                    .extracting(AssessmentEvent::status)
+                    .containsExactly("PROCESSING", "AWAITING_APPROVAL", status);
+                verify(emitter).complete();
+            }
+            assertThat(publisher.hasSubscribers(sessionId)).isFalse();
+        }
+    }
+    
+    @Test
+    void testPublish_DropsSubscriberWhoseSendFails() throws Exception {
+        SseEmitter broken = publisher.subscribe(session("s1", "PROCESSING"));
+        SseEmitter healthy = publisher.subscribe(session("s1", "PROCESSING"));
+        IOException disconnected = new IOException("Broken pipe");
+        doThrow(disconnected).when(broken).send(any(SseEmitter.SseEventBuilder.class));
+        
+        publisher.agentStarted(session("s1", "PROCESSING"), "TRIAGE");
+        publisher.agentCompleted(session("s1", "PROCESSING"), "TRIAGE", null);
+        
+        verify(broken).completeWithError(disconnected);
+        // Inscrição e agent-started; agent-completed não é mais enviado ao cliente removido
+        verify(broken, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        assertThat(sent(healthy, AssessmentEventPublisher.EVENT_AGENT_COMPLETED)).hasSize(1);
+        
+        doThrow(disconnected).when(healthy).send(any(SseEmitter.SseEventBuilder.class));
+        publisher.token("s1", "TRIAGE", "Dor");
+        assertThat(publisher.hasSubscribers("s1")).isFalse();
+    }
+    
+    @Test
+    void testHasSubscribers_GatesTokenStreaming() throws Exception {
+        ChatModel chatModel = mock(ChatModel.class);
+        ChatResponse response = new ChatResponse(List.of(new Generation(new AssistantMessage("Dor torácica"))));
+        when(chatModel.call(any(Prompt.class))).thenReturn(response);
+        when(chatModel.stream(any(Prompt.class))).thenReturn(Flux.just(response));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AgentChatInvoker invoker = new AgentChatInvoker(chatModel, publisher,
+            new PromptBudget(meterRegistry, ObservationRegistry.NOOP, 0, 0, 0, 0, 0), meterRegistry,
+            ObservationRegistry.NOOP, true, true);
+        PatientAssessmentState state = session("s1", "PROCESSING");
+        
+        invoker.call("TRIAGE", state, new Prompt("Avaliar"));
+        verify(chatModel).call(any(Prompt.class));
+        verify(chatModel, never()).stream(any(Prompt.class));
+        
+        SseEmitter emitter = publisher.subscribe(state);
+        invoker.call("TRIAGE", state, new Prompt("Avaliar"));
+        verify(chatModel).stream(any(Prompt.class));
+        assertThat(sent(emitter, AssessmentEventPublisher.EVENT_TOKEN))
+            .singleElement().extracting(AssessmentEvent::data).isEqualTo("Dor torácica");
+    }
+    
+    /**
+     * Eventos com o nome informado enviados ao emitter, na ordem de envio
+     */
+    private static List<AssessmentEvent> sent(SseEmitter emitter, String eventName) throws IOException {
+        ArgumentCaptor<SseEmitter.SseEventBuilder> events = ArgumentCaptor.forClass(SseEmitter.SseEventBuilder.class);
+        verify(emitter, atLeast(0)).send(events.capture());
+        return events.getAllValues().stream()
+            .map(SseEmitter.SseEventBuilder::build)
+            .filter(parts -> parts.stream().anyMatch(part -> part.getData() instanceof String text
+                && text.contains("event:" + eventName + "\n")))
+            .map(parts -> parts.stream()
+                .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                .filter(AssessmentEvent.class::isInstance)
+                .map(AssessmentEvent.class::cast)
+                .findFirst()
+                .orElse(null))
+            .filter(Objects::nonNull)
+            .toList();
+    }
+    
+    private static PatientAssessmentState session(String sessionId, String status) {
+        return PatientAssessmentState.builder()
+            .sessionId(sessionId)
+            .status(status)
+            .build();
+    }
+}
@@ -0,0 +1,224 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.agent.Agent;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.StateField;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.bsc.langgraph4j.checkpoint.MemorySaver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes do fluxo de agentes como StateGraph, com agentes simulados
+ * e checkpoints em memória
+ */
+class AssessmentGraphTest {
+    
+    private final Map<String, AtomicInteger> executions = new ConcurrentHashMap<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+    
+    private ExecutorService executor;
+    private AssessmentGraph graph;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        List<Agent> agents = List.of(
+            agent("TRIAGE", Set.of(StateField.SYMPTOMS), Set.of(StateField.RISK_LEVEL), "HIGH"),
+            agent("PHARMACIST", Set.of(StateField.RISK_LEVEL), Set.of(StateField.PHARMACIST_RECOMMENDATIONS), "ok"),
+            agent("EXAM", Set.of(StateField.RISK_LEVEL), Set.of(StateField.EXAM_PRIORITY), "URGENT"),
+            agent("EMR_COMMS", Set.of(StateField.PHARMACIST_RECOMMENDATIONS, StateField.EXAM_PRIORITY),
+                Set.of(StateField.COMMUNICATION_TEXT), "text"));
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        graph = new AssessmentGraph(agents, executor, new AssessmentEventPublisher(1), observationRegistry,
+            meterRegistry, FlowMode.PARALLEL, "");
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+    
+    @Test
+    void testStart_InterruptsBeforeApproval() {
+        PatientAssessmentState session = newSession();
+        
+        graph.start(session);
+        
+        assertThat(session.getStatus()).isEqualTo("AWAITING_APPROVAL");
+        assertThat(session.getApprovalStatus()).isEqualTo("PENDING");
+        assertThat(session.getRiskLevel()).isEqualTo("HIGH");
+        assertThat(session.getExamPriority()).isEqualTo("URGENT");
+        assertThat(session.getCommunicationText()).isEqualTo("text");
+        assertThat(executions).allSatisfy((name, count) -> assertThat(count).hasValue(1));
+        assertThat(executions).hasSize(4);
+    }
+    
+    @Test
+    void testRejection_ReprocessesAndApprovalCompletes() throws Exception {
+        PatientAssessmentState session = newSession();
+        graph.start(session);
+        
+        graph.resume(session, "REJECTED", "Rever exames", List.of());
+        
+        assertThat(session.getStatus()).isEqualTo("AWAITING_APPROVAL");
+        assertThat(session.getReprocessingCount()).isEqualTo(1);
+        assertThat(session.getPhysicianFeedback()).isEqualTo("Rever exames");
+        assertThat(session.getAssessmentHistory()).hasSize(1);
+        assertThat(executions).allSatisfy((name, count) -> assertThat(count).hasValue(2));
+        
+        graph.resume(session, "APPROVED", null, List.of());
+        
+        assertThat(session.getStatus()).isEqualTo("COMPLETED");
+        assertThat(executions).allSatisfy((name, count) -> assertThat(count).hasValue(2));
+    }
+    
+    @Test
+    void testTargetedRejection_ReusesUnaffectedAgents() throws Exception {
+        PatientAssessmentState session = newSession();
+        graph.start(session);
+        
+        graph.resume(session, "REJECTED", "Rever exames", List.of("EXAM"));
+        
+        assertThat(session.getStatus()).isEqualTo("AWAITING_APPROVAL");
+        assertThat(session.getRiskLevel()).isEqualTo("HIGH");
+        assertThat(session.getPharmacistRecommendations()).isEqualTo("ok");
+        assertThat(executions.get("TRIAGE")).hasValue(1);
+        assertThat(executions.get("PHARMACIST")).hasValue(1);
+        assertThat(executions.get("EXAM")).hasValue(2);
+        assertThat(executions.get("EMR_COMMS")).hasValue(2);
+        assertThat(meterRegistry.get(AssessmentObservations.AGENT_EXECUTION).tag("agent", "EXAM").timer().count())
+            .isEqualTo(2);
+        assertThat(meterRegistry.get(AssessmentGraph.STAGES_METRIC).tag("agent", "TRIAGE").tag("status", "reused")
+            .counter().count()).isEqualTo(1);
+    }
+    
+    @Test
+    void testStart_AgentObservationsAreChildrenOfTheAssessment() {
+        List<Observation.Context> agentContexts = new CopyOnWriteArrayList<>();
+        observationRegistry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                if (AssessmentObservations.AGENT_EXECUTION.equals(context.getName())) {
+                    agentContexts.add(context);
+                }
+            }
+            
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        PatientAssessmentState session = newSession();
+        Observation assessment = Observation.start(AssessmentObservations.ASSESSMENT, observationRegistry);
+        
+        try (Observation.Scope scope = assessment.openScope()) {
+            graph.start(session);
+        } finally {
+            assessment.stop();
+        }
+        
+        // Pharmacist e Exam executam em outras threads (ramos paralelos)
+        assertThat(agentContexts).hasSize(4).allSatisfy(context -> {
+            assertThat(context.getParentObservation()).isSameAs(assessment);
+            assertThat(context.getHighCardinalityKeyValue(AssessmentObservations.RISK_LEVEL_KEY).getValue())
+                .isEqualTo("HIGH");
+        });
+    }
+    
+    @Test
+    void testRestore_ReturnsCheckpointedState() {
+        PatientAssessmentState session = newSession();
+        graph.start(session);
+        
+        PatientAssessmentState restored = graph.restore(session.getSessionId()).orElseThrow();
+        
+        assertThat(restored.getStatus()).isEqualTo("AWAITING_APPROVAL");
+        assertThat(restored.getSymptoms()).isEqualTo(session.getSymptoms());
+        assertThat(restored.getCommunicationText()).isEqualTo("text");
+        assertThat(graph.restore(UUID.randomUUID().toString())).isEmpty();
+    }
+    
+    @Test
+    void testDiscard_ReleasesCheckpointsOfEvictedSessions() throws Exception {
+        List<String> sessionIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            PatientAssessmentState session = newSession();
+            graph.start(session);
+            sessionIds.add(session.getSessionId());
+        }
+        assertThat(checkpointedThreads()).containsAll(sessionIds);
+        
+        sessionIds.forEach(graph::discard);
+        
+        assertThat(checkpointedThreads()).doesNotContainAnyElementsOf(sessionIds);
+        assertThat(graph.restore(sessionIds.get(0))).isEmpty();
+        assertThat(graph.restore(UUID.randomUUID().toString())).isEmpty();
+        assertThat(checkpointedThreads()).isEmpty();
+    }
+    
+    /**
+     * Threads com entrada no mapa interno do MemorySaver
+     */
+    @SuppressWarnings("unchecked")
+    private Set<String> checkpointedThreads() throws Exception {
+        Field field = MemorySaver.class.getDeclaredField("_checkpointsByThread");
+        field.setAccessible(true);
+        return Set.copyOf(((Map<String, ?>) field.get(graph.checkpointSaver())).keySet());
+    }
+    
+    private PatientAssessmentState newSession() {
+        PatientAssessmentState session = new PatientAssessmentState();
+        session.setSessionId(UUID.randomUUID().toString());
+        session.setPatientId("P001");
+        session.setSymptoms("Dor no peito");
+        session.setStatus("PROCESSING");
+        return session;
+    }
+    
+    private Agent agent(String name, Set<StateField> required, Set<StateField> outputs, String value) {
+        return new Agent() {
+            @Override
+            public String name() {
+                return name;
+            }
+            
+            @Override
+            public Set<StateField> requiredInputs() {
+                return required;
+            }
+            
+            @Override
+            public Set<StateField> outputs() {
+                return outputs;
+            }
+            
+            @Override
+            public Object execute(PatientAssessmentState state) {
+                executions.computeIfAbsent(name, key -> new AtomicInteger()).incrementAndGet();
+                outputs.forEach(field -> field.set(state, value));
+                return value;
+            }
+        };
+    }
+}
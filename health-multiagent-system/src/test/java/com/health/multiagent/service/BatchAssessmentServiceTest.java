@@ -0,0 +1,94 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.cluster.ClusterMembership;
+import com.health.multiagent.model.BatchStatusResponse;
+import com.health.multiagent.model.PatientAssessmentState;
+import com.health.multiagent.model.SymptomsRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Testes unitários do processamento em lote
+ */
+class BatchAssessmentServiceTest {
+    
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HealthAssessmentService assessmentService = mock(HealthAssessmentService.class);
+    private final ClusterMembership membership = new ClusterMembership(false, "local", List.of(), 16);
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    void testSubmitBatch_LimitsConcurrencyAndReportsItems() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        when(assessmentService.startAssessment(any())).thenAnswer(invocation -> {
+            PatientAssessmentState state = invocation.getArgument(0);
+            state.setSessionId(UUID.randomUUID().toString());
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            release.await(5, TimeUnit.SECONDS);
+            running.decrementAndGet();
+            state.setStatus(state.getPatientId().equals("P-3") ? "ERROR" : "AWAITING_APPROVAL");
+            return state;
+        });
+        BatchAssessmentService batchService = new BatchAssessmentService(assessmentService, executor, membership, 2, 10, 60);
+        
+        BatchStatusResponse accepted = batchService.submitBatch(requests(6));
+        // Os itens são marcados em processamento antes de chamar o serviço
+        awaitUntil(() -> running.get() == 2);
+        BatchStatusResponse inProgress = batchService.getBatchStatus(accepted.getBatchId()).orElseThrow();
+        release.countDown();
+        awaitUntil(() -> "COMPLETED".equals(batchService.getBatchStatus(accepted.getBatchId()).orElseThrow().getStatus()));
+        BatchStatusResponse completed = batchService.getBatchStatus(accepted.getBatchId()).orElseThrow();
+        
+        assertThat(accepted.getTotal()).isEqualTo(6);
+        assertThat(inProgress.getQueued()).isEqualTo(4);
+        assertThat(maxRunning.get()).isEqualTo(2);
+        assertThat(completed.getFinished()).isEqualTo(6);
+        assertThat(completed.getItems()).allSatisfy(item -> assertThat(item.getSessionId()).isNotNull());
+        assertThat(completed.getItems().get(3).getStatus()).isEqualTo("ERROR");
+        assertThat(completed.getItems().get(0).getStatus()).isEqualTo("AWAITING_APPROVAL");
+    }
+    
+    @Test
+    void testSubmitBatch_RejectsOversizedBatch() {
+        BatchAssessmentService batchService = new BatchAssessmentService(assessmentService, executor, membership, 2, 3, 60);
+        
+        assertThatThrownBy(() -> batchService.submitBatch(requests(4)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+    
+    private static List<SymptomsRequest> requests(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> SymptomsRequest.builder().patientId("P-" + i).symptoms("Febre").build())
+            .toList();
+    }
+    
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
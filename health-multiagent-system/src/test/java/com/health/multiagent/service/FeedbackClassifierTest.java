@@ -0,0 +1,29 @@
+package com.health.multiagent.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes unitários da classificação do feedback médico por agente
+ */
+class FeedbackClassifierTest {
+    
+    private final FeedbackClassifier classifier = new FeedbackClassifier();
+    
+    @Test
+    void testClassify_PortugueseAndEnglishTerms() {
+        assertThat(classifier.classify("Incluir ECG e hemograma nos exames"))
+            .containsExactly("EXAM");
+        assertThat(classifier.classify("Check the drug interaction and the FHIR wording"))
+            .containsExactly("PHARMACIST", "EMR_COMMS");
+        assertThat(classifier.classify("Reavaliar a gravidade; a medicação está correta"))
+            .containsExactly("TRIAGE", "PHARMACIST");
+    }
+    
+    @Test
+    void testClassify_UnrecognizedFeedback() {
+        assertThat(classifier.classify("Por favor, revise")).isEmpty();
+        assertThat(classifier.classify(null)).isEmpty();
+    }
+}
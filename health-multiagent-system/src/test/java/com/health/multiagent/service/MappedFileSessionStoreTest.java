@@ -0,0 +1,89 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.model.FhirDocument;
+import com.health.multiagent.model.PatientAssessmentState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes unitários do SessionStore em arquivo mapeado em memória
+ */
+class MappedFileSessionStoreTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    void testSaveAndLoad_RoundTripsAllFields() throws Exception {
+        MappedFileSessionStore store = new MappedFileSessionStore(tempDir.resolve("sessions.db").toString(), 1);
+        PatientAssessmentState state = PatientAssessmentState.builder()
+            .sessionId("s1")
+            .startTime(LocalDateTime.of(2025, 3, 10, 14, 30, 15, 123_456_789))
+            .patientId("P-1024")
+            .symptoms("Dor torácica há 2 horas, com sudorese")
+            .medicalHistorySummary("Hipertensão controlada")
+            .currentMedications(new ArrayList<>(List.of("Losartana 50mg", "AAS 100mg")))
+            .medicationIds(new ArrayList<>(List.of("losartana@50mg", "aas@100mg")))
+            .riskLevel("HIGH")
+            .urgent(true)
+            .fhirDocument(FhirDocument.of("{\"resourceType\":\"Bundle\"}"))
+            .reprocessingCount(1)
+            .assessmentHistory(new ArrayList<>(List.of("Iteração 0: rejeitado")))
+            .status("AWAITING_APPROVAL")
+            .build();
+        
+        store.save(state);
+        PatientAssessmentState loaded = store.load("s1").orElseThrow();
+        
+        assertThat(loaded).usingRecursiveComparison().isEqualTo(state);
+        assertThat(loaded.getMedicalHistory()).isNull();
+        assertThat(store.load("missing")).isEmpty();
+        store.close();
+    }
+    
+    @Test
+    void testReopen_KeepsLatestVersionAndDeletions() throws Exception {
+        String path = tempDir.resolve("sessions.db").toString();
+        MappedFileSessionStore store = new MappedFileSessionStore(path, 1);
+        store.save(session("s1", "AWAITING_APPROVAL"));
+        store.save(session("s2", "AWAITING_APPROVAL"));
+        store.save(session("s1", "COMPLETED"));
+        store.delete("s2");
+        store.close();
+        
+        MappedFileSessionStore reopened = new MappedFileSessionStore(path, 1);
+        
+        assertThat(reopened.sessionIds()).containsExactly("s1");
+        assertThat(reopened.load("s1").orElseThrow().getStatus()).isEqualTo("COMPLETED");
+        reopened.close();
+    }
+    
+    @Test
+    void testSave_GrowsAndCompactsFile() throws Exception {
+        MappedFileSessionStore store = new MappedFileSessionStore(tempDir.resolve("sessions.db").toString(), 1);
+        PatientAssessmentState state = session("s1", "AWAITING_APPROVAL");
+        state.setFhirDocument(FhirDocument.of("x".repeat(100_000)));
+        
+        for (int i = 0; i < 50; i++) {
+            state.setReprocessingCount(i);
+            store.save(state);
+        }
+        store.save(session("s2", "COMPLETED"));
+        
+        assertThat(store.fileBytes()).isLessThan(2_000_000);
+        assertThat(store.load("s1").orElseThrow().getReprocessingCount()).isEqualTo(49);
+        assertThat(store.load("s2")).isPresent();
+        store.close();
+    }
+    
+    private static PatientAssessmentState session(String sessionId, String status) {
+        return PatientAssessmentState.builder().sessionId(sessionId).status(status).build();
+    }
+}
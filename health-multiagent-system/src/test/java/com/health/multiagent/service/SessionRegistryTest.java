@@ -0,0 +1,116 @@
+package com.health.multiagent.service;
+
+import com.health.multiagent.exception.AssessmentCapacityExceededException;
+import com.health.multiagent.model.FhirDocument;
+import com.health.multiagent.model.PatientAssessmentState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Testes unitários do registro de sessões
+ */
+class SessionRegistryTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> evicted = new ArrayList<>();
+    private SessionRegistry registry;
+    
+    @BeforeEach
+    void setUp() {
+        registry = new SessionRegistry(meterRegistry, Duration.ofMinutes(30), 3, null, Duration.ofMinutes(2), clock::get);
+        registry.setEvictionListener((sessionId, status, reason) -> evicted.add(sessionId + ":" + reason));
+    }
+    
+    @Test
+    void testEvictExpired_ByLastAccess() {
+        registry.put(session("idle", "AWAITING_APPROVAL"));
+        registry.put(session("active", "AWAITING_APPROVAL"));
+        registry.put(session("running", "PROCESSING"));
+        
+        clock.set(Duration.ofMinutes(20).toMillis());
+        registry.get("active");
+        clock.set(Duration.ofMinutes(40).toMillis());
+        registry.evictExpired();
+        
+        assertThat(evicted).containsExactly("idle:EXPIRED");
+        assertThat(registry.get("idle")).isNull();
+        assertThat(registry.get("active")).isNotNull();
+        assertThat(registry.get("running")).isNotNull();
+        assertThat(meterRegistry.get(SessionRegistry.EVICTIONS_METRIC).tag("reason", "expired").counter().count())
+            .isEqualTo(1);
+    }
+    
+    @Test
+    void testPut_EvictsFinishedSessionsFirst() {
+        registry.put(session("awaiting", "AWAITING_APPROVAL"));
+        clock.incrementAndGet();
+        registry.put(session("completed", "COMPLETED"));
+        clock.incrementAndGet();
+        registry.put(session("running", "PROCESSING"));
+        
+        registry.put(session("new-1", "PROCESSING"));
+        registry.put(session("new-2", "PROCESSING"));
+        
+        assertThat(evicted).containsExactly("completed:CAPACITY", "awaiting:CAPACITY");
+        assertThat(registry.size()).isEqualTo(3);
+        assertThatThrownBy(() -> registry.put(session("new-3", "PROCESSING")))
+            .isInstanceOf(AssessmentCapacityExceededException.class);
+    }
+    
+    @Test
+    void testGauges() {
+        PatientAssessmentState state = session("s1", "COMPLETED");
+        state.setFhirDocument(FhirDocument.of("x".repeat(10_000)));
+        registry.put(state);
+        
+        assertThat(meterRegistry.get(SessionRegistry.ACTIVE_METRIC).gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get(SessionRegistry.RETAINED_BYTES_METRIC).gauge().value()).isGreaterThan(10_000);
+    }
+    
+    @Test
+    void testEvictExpired_OffloadsIdleSessionsToStore(@TempDir Path tempDir) throws Exception {
+        MappedFileSessionStore store = new MappedFileSessionStore(tempDir.resolve("sessions.db").toString(), 1);
+        SessionRegistry stored = new SessionRegistry(
+            new SimpleMeterRegistry(), Duration.ofMinutes(30), 3, store, Duration.ofMinutes(2), clock::get);
+        PatientAssessmentState awaiting = session("awaiting", "AWAITING_APPROVAL");
+        awaiting.setFhirDocument(FhirDocument.of("x".repeat(10_000)));
+        stored.put(awaiting);
+        stored.save(awaiting);
+        stored.put(session("running", "PROCESSING"));
+        
+        clock.set(Duration.ofMinutes(5).toMillis());
+        stored.evictExpired();
+        
+        assertThat(stored.storedSessions()).isEqualTo(1);
+        assertThat(stored.retainedBytes()).isLessThan(10_000);
+        PatientAssessmentState reloaded = stored.get("awaiting");
+        assertThat(reloaded.getFhirDocument()).isEqualTo(awaiting.getFhirDocument());
+        assertThat(stored.get("running").getStatus()).isEqualTo("PROCESSING");
+        
+        // Reinício: a sessão gravada é restaurada do store e expira se não for acessada
+        SessionRegistry restarted = new SessionRegistry(
+            new SimpleMeterRegistry(), Duration.ofMinutes(30), 3, store, Duration.ofMinutes(2), clock::get);
+        assertThat(restarted.get("awaiting")).isNull();
+        assertThat(restarted.storedSessions()).isEqualTo(1);
+        clock.set(Duration.ofMinutes(40).toMillis());
+        restarted.evictExpired();
+        assertThat(restarted.loadStored("awaiting")).isEmpty();
+        store.close();
+    }
+    
+    private static PatientAssessmentState session(String sessionId, String status) {
+        return PatientAssessmentState.builder().sessionId(sessionId).status(status).build();
+    }
+}
@@ -0,0 +1,73 @@
+package com.health.multiagent.tracing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Testes da exportação de spans em OTLP/JSON para arquivo
+ */
+class OtlpJsonFileSpanExporterTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void testExport_WritesOtlpJsonLinesWithParentSpans() throws Exception {
+        Path file = dir.resolve("traces/traces.jsonl");
+        OtlpJsonFileSpanExporter exporter = new OtlpJsonFileSpanExporter(file.toString(), 64);
+        try (SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+                .build()) {
+            Tracer tracer = tracerProvider.get("health-multiagent");
+            
+            Span assessment = tracer.spanBuilder("start-assessment")
+                .setAttribute("session.id", "S1")
+                .setAttribute("iteration", 0L)
+                .startSpan();
+            try (Scope scope = assessment.makeCurrent()) {
+                tracer.spanBuilder("TRIAGE").startSpan().setStatus(StatusCode.ERROR, "timeout").end();
+            } finally {
+                assessment.end();
+            }
+        }
+        
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(2);
+        JsonNode triage = span(lines.get(0));
+        JsonNode root = span(lines.get(1));
+        
+        assertThat(triage.get("name").asText()).isEqualTo("TRIAGE");
+        assertThat(triage.get("traceId").asText()).isEqualTo(root.get("traceId").asText());
+        assertThat(triage.get("parentSpanId").asText()).isEqualTo(root.get("spanId").asText());
+        assertThat(triage.at("/status/code").asInt()).isEqualTo(2);
+        assertThat(triage.at("/status/message").asText()).isEqualTo("timeout");
+        assertThat(root.has("parentSpanId")).isFalse();
+        assertThat(root.get("kind").asInt()).isEqualTo(1);
+        assertThat(root.get("startTimeUnixNano").isTextual()).isTrue();
+        assertThat(root.get("attributes").findValuesAsText("key")).containsExactlyInAnyOrder("session.id", "iteration");
+        assertThat(root.get("attributes").findValue("intValue").asText()).isEqualTo("0");
+        assertThat(root.get("attributes").findValue("stringValue").asText()).isEqualTo("S1");
+    }
+    
+    private JsonNode span(String line) throws Exception {
+        JsonNode request = objectMapper.readTree(line);
+        assertThat(request.at("/resourceSpans/0/scopeSpans/0/scope/name").asText()).isEqualTo("health-multiagent");
+        return request.at("/resourceSpans/0/scopeSpans/0/spans/0");
+    }
+}
@@ -134,6 +134,50 @@ export function pollAssessmentStatus(sessionId, onUpdate, interval = 2000) {
   };
 }
 
+// Status após os quais o servidor não envia novos eventos
+const TERMINAL_STATUSES = ['COMPLETED', 'REJECTED', 'ERROR'];
+
+/**
+ * Acompanha o progresso da avaliação via Server-Sent Events
+ * @param {string} sessionId - ID da sessão
+ * @param {Object} handlers - Callbacks por tipo de evento
+ * @param {Function} handlers.onStatus - Mudança de status da sessão
+ * @param {Function} handlers.onAgentStarted - Início de um agente
+ * @param {Function} handlers.onAgentCompleted - Conclusão de um agente
+ * @param {Function} handlers.onToken - Fragmento de texto gerado pelo LLM
+ * @param {Function} handlers.onError - Erro na conexão
+ * @returns {Function} Função para encerrar o stream
+ */
+export function streamAssessmentEvents(sessionId, handlers = {}) {
+  const source = new EventSource(`${API_BASE_URL}/stream/${sessionId}`);
+  let ended = false;
+  const listen = (eventName, callback) => {
+    if (callback) {
+      source.addEventListener(eventName, (event) => callback(JSON.parse(event.data)));
+    }
+  };
+
+  // O servidor encerra o stream após o status terminal; fechar aqui evita a reconexão automática
+  source.addEventListener('status', (event) => {
+    if (TERMINAL_STATUSES.includes(JSON.parse(event.data).status)) {
+      ended = true;
+      source.close();
+    }
+  });
+  listen('status', handlers.onStatus);
+  listen('agent-started', handlers.onAgentStarted);
+  listen('agent-completed', handlers.onAgentCompleted);
+  listen('token', handlers.onToken);
+
+  source.onerror = (error) => {
+    // No fim normal do stream o EventSource reporta erro em CONNECTING, tentando reconectar
+    source.close();
+    if (!ended && handlers.onError) handlers.onError(error);
+  };
+
+  return () => source.close();
+}
+
 /**
  * Formata medicações de string para array
  * @param {string} medicationsString - String com medicações separadas por vírgula ou linha